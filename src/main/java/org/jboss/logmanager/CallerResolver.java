@@ -0,0 +1,39 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+/**
+ * A mechanism for finding the code which called a logger.  This is used by {@link ExtLogRecord} to populate the
+ * source class, method, file and line of a record the first time one of them is requested.
+ *
+ * @see CallerResolvers
+ */
+public interface CallerResolver {
+
+    /**
+     * Find the stack frame of the caller of the logger.  This is the first frame, searching from the top of the
+     * calling thread's stack, which follows a frame of the logger class and which is not itself a frame of the logger
+     * class.
+     *
+     * @param loggerClassName the name of the logger class
+     * @return the caller's stack frame, or {@code null} if it could not be found
+     */
+    StackTraceElement getCaller(String loggerClassName);
+}
@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.PrivilegedAction;
+import java.util.Iterator;
+
+import static java.security.AccessController.doPrivileged;
+
+/**
+ * Caller resolver utility methods.
+ */
+public final class CallerResolvers {
+
+    private CallerResolvers() {
+    }
+
+    private static final CallerResolver THROWABLE_RESOLVER = new CallerResolver() {
+        public StackTraceElement getCaller(final String loggerClassName) {
+            final StackTraceElement[] stack = new Throwable().getStackTrace();
+            boolean found = false;
+            for (StackTraceElement element : stack) {
+                final String className = element.getClassName();
+                if (found) {
+                    if (! loggerClassName.equals(className)) {
+                        return element;
+                    }
+                } else {
+                    found = loggerClassName.equals(className);
+                }
+            }
+            return null;
+        }
+    };
+
+    private static final CallerResolver STACK_WALKER_RESOLVER = doPrivileged(new PrivilegedAction<CallerResolver>() {
+        public CallerResolver run() {
+            try {
+                return new StackWalkerResolver();
+            } catch (Throwable ignored) {
+                // not running on Java 9 or later
+                return null;
+            }
+        }
+    });
+
+    /**
+     * Get a caller resolver which captures the entire stack of the calling thread with a {@link Throwable} and then
+     * searches it.  This works on every platform, but the cost grows with the depth of the stack.
+     *
+     * @return the throwable caller resolver
+     */
+    public static CallerResolver throwableResolver() {
+        return THROWABLE_RESOLVER;
+    }
+
+    /**
+     * Get a caller resolver which walks the stack of the calling thread lazily with a {@code java.lang.StackWalker},
+     * stopping at the caller's frame, so that only the frames above the caller are inspected and only the caller's
+     * frame is converted to a {@link StackTraceElement}.
+     *
+     * @return the stack walker caller resolver, or {@code null} if the platform does not provide a stack walker
+     */
+    public static CallerResolver stackWalkerResolver() {
+        return STACK_WALKER_RESOLVER;
+    }
+
+    /**
+     * Get the best caller resolver available on this platform.
+     *
+     * @return the stack walker caller resolver if it is available, otherwise the throwable caller resolver
+     */
+    public static CallerResolver defaultResolver() {
+        return STACK_WALKER_RESOLVER == null ? THROWABLE_RESOLVER : STACK_WALKER_RESOLVER;
+    }
+
+    /**
+     * A resolver using {@code java.lang.StackWalker}.  Since this code must also compile for platforms which predate
+     * the stack walker, it is accessed reflectively; the function which consumes the stream of frames is a proxy, and
+     * the stream is consumed through its iterator so that frames are still fetched lazily.
+     */
+    private static final class StackWalkerResolver implements CallerResolver {
+        private final Object walker;
+        private final Method walk;
+        private final Constructor<?> functionConstructor;
+        private final Method iterator;
+        private final Method getClassName;
+        private final Method toStackTraceElement;
+
+        StackWalkerResolver() throws Exception {
+            final Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+            final Class<?> optionClass = Class.forName("java.lang.StackWalker$Option");
+            final Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+            final Class<?> functionClass = Class.forName("java.util.function.Function");
+            // reflection frames are included so that the caller is the same frame a stack trace would report
+            final Object showReflectFrames = optionClass.getField("SHOW_REFLECT_FRAMES").get(null);
+            walker = walkerClass.getMethod("getInstance", optionClass).invoke(null, showReflectFrames);
+            walk = walkerClass.getMethod("walk", functionClass);
+            functionConstructor = Proxy.getProxyClass(CallerResolvers.class.getClassLoader(), functionClass).getConstructor(InvocationHandler.class);
+            iterator = Class.forName("java.util.stream.BaseStream").getMethod("iterator");
+            getClassName = frameClass.getMethod("getClassName");
+            toStackTraceElement = frameClass.getMethod("toStackTraceElement");
+            // make sure it all actually works
+            getCaller(CallerResolvers.class.getName());
+        }
+
+        public StackTraceElement getCaller(final String loggerClassName) {
+            try {
+                return (StackTraceElement) walk.invoke(walker, functionConstructor.newInstance(new Walk(loggerClassName)));
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IllegalStateException(cause);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * The body of the {@code Function} passed to {@code StackWalker.walk}.
+         */
+        private final class Walk implements InvocationHandler {
+            private final String loggerClassName;
+
+            Walk(final String loggerClassName) {
+                this.loggerClassName = loggerClassName;
+            }
+
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                final String name = method.getName();
+                if ("apply".equals(name)) {
+                    try {
+                        return apply(args[0]);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                } else if ("equals".equals(name)) {
+                    return Boolean.valueOf(proxy == args[0]);
+                } else if ("hashCode".equals(name)) {
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                } else if ("toString".equals(name)) {
+                    return "caller walk for " + loggerClassName;
+                }
+                throw new UnsupportedOperationException(name);
+            }
+
+            private Object apply(final Object stream) throws Exception {
+                final String loggerClassName = this.loggerClassName;
+                final Iterator<?> frames = (Iterator<?>) iterator.invoke(stream);
+                boolean found = false;
+                while (frames.hasNext()) {
+                    final Object frame = frames.next();
+                    final String className = (String) getClassName.invoke(frame);
+                    if (found) {
+                        if (! loggerClassName.equals(className)) {
+                            return toStackTraceElement.invoke(frame);
+                        }
+                    } else {
+                        found = loggerClassName.equals(className);
+                    }
+                }
+                return null;
+            }
+        }
+    }
+}
@@ -39,4 +39,16 @@ public abstract class ExtFormatter extends Formatter {
      * @return the formatted message
      */
     public abstract String format(final ExtLogRecord extLogRecord);
+
+    /**
+     * Format a message using an extended log record, appending the result to the given builder.  Formatters which can
+     * render directly into a builder should override this method, so that callers holding a reusable builder avoid
+     * creating an intermediate string; the default implementation appends the result of {@link #format(ExtLogRecord)}.
+     *
+     * @param builder the builder to append to
+     * @param extLogRecord the log record
+     */
+    public void formatTo(final StringBuilder builder, final ExtLogRecord extLogRecord) {
+        builder.append(format(extLogRecord));
+    }
 }
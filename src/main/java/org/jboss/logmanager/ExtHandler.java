@@ -22,6 +22,8 @@ package org.jboss.logmanager;
 import java.io.UnsupportedEncodingException;
 
 import java.security.Permission;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.ErrorManager;
 import java.util.logging.Filter;
@@ -43,12 +45,22 @@ public abstract class ExtHandler extends Handler implements FlushableCloseable,
     private static final Permission CONTROL_PERMISSION = new LoggingPermission("control", null);
     private volatile boolean autoFlush = true;
     private volatile boolean enabled = true;
+    private volatile Level flushLevel;
+    private volatile int flushRecordCount;
+    private volatile long flushInterval;
+    @SuppressWarnings("unused")
+    private volatile int unflushedRecords;
+    private volatile boolean dirty;
+    private volatile Future<?> flushTask;
     private static final ErrorManager DEFAULT_ERROR_MANAGER = new OnlyOnceErrorManager();
 
     private volatile Object protectKey;
     private final ThreadLocal<Boolean> granted = new InheritableThreadLocal<Boolean>();
 
     private static final AtomicReferenceFieldUpdater<ExtHandler, Object> protectKeyUpdater = AtomicReferenceFieldUpdater.newUpdater(ExtHandler.class, Object.class, "protectKey");
+    private static final AtomicIntegerFieldUpdater<ExtHandler> unflushedRecordsUpdater = AtomicIntegerFieldUpdater.newUpdater(ExtHandler.class, "unflushedRecords");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ExtHandler, Future> flushTaskUpdater = AtomicReferenceFieldUpdater.newUpdater(ExtHandler.class, Future.class, "flushTask");
 
     /**
      * The sub-handlers for this handler.  May only be updated using the {@link #handlersUpdater} atomic updater.  The array
@@ -93,15 +105,80 @@ public abstract class ExtHandler extends Handler implements FlushableCloseable,
         }
     }
 
+    /**
+     * Publish a batch of {@code ExtLogRecord}s.  Handlers which can write several records more cheaply than one at a
+     * time, for example by acquiring a lock or flushing only once, should override this method; the default
+     * implementation simply {@linkplain #publish(ExtLogRecord) publishes} each record in turn.  Each record is
+     * filtered individually.
+     *
+     * @param records the array holding the records to publish
+     * @param count the number of records, starting at index 0, to publish
+     */
+    public void publishBatch(final ExtLogRecord[] records, final int count) {
+        for (int i = 0; i < count; i++) {
+            publish(records[i]);
+        }
+    }
+
     /**
      * Do the actual work of publication; the record will have been filtered already.  The default implementation
-     * does nothing except to flush if the {@code autoFlush} property is set to {@code true}; if this behavior is to be
-     * preserved in a subclass then this method should be called after the record is physically written.
+     * does nothing except to flush if the flush policy requires it; if this behavior is to be preserved in a subclass
+     * then this method should be called after the record is physically written.
      *
      * @param record the log record to publish
+     *
+     * @see #shouldFlush(ExtLogRecord)
      */
     protected void doPublish(final ExtLogRecord record) {
-        if (autoFlush) flush();
+        if (shouldFlush(record)) flush();
+    }
+
+    /**
+     * Account for a record which has been physically written, and determine whether the flush policy requires this
+     * handler to be flushed now.  A handler which writes several records before flushing should call this method for
+     * each record, and flush once afterwards if any of the calls returned {@code true}.
+     * <p/>
+     * The handler must be flushed if {@code autoFlush} is set, if the record's level is at or above the {@linkplain
+     * #setFlushLevel(Level) flush level}, or if the {@linkplain #setFlushRecordCount(int) flush record count} has been
+     * reached.  Otherwise the record is left for the {@linkplain #setFlushInterval(long) background flush}, if there
+     * is one.
+     *
+     * @param record the record which was written
+     * @return {@code true} if the handler should be flushed
+     */
+    protected final boolean shouldFlush(final ExtLogRecord record) {
+        if (autoFlush) {
+            return true;
+        }
+        final Level flushLevel = this.flushLevel;
+        final int flushRecordCount = this.flushRecordCount;
+        if (flushLevel != null && record.getLevel().intValue() >= flushLevel.intValue()
+                || flushRecordCount > 0 && unflushedRecordsUpdater.incrementAndGet(this) >= flushRecordCount) {
+            unflushedRecords = 0;
+            dirty = false;
+            return true;
+        }
+        if (flushInterval > 0L) {
+            dirty = true;
+        }
+        return false;
+    }
+
+    /**
+     * Flush this handler if anything has been written since the last flush which the policy required.  Called by the
+     * background flusher.
+     */
+    void flushIfDirty() {
+        if (! dirty) {
+            return;
+        }
+        dirty = false;
+        unflushedRecords = 0;
+        try {
+            flush();
+        } catch (Exception ex) {
+            reportError("Failed to flush handler", ex, ErrorManager.FLUSH_FAILURE);
+        } catch (Throwable ignored) {}
     }
 
     /**
@@ -195,7 +272,9 @@ public abstract class ExtHandler extends Handler implements FlushableCloseable,
     /**
      * Change the autoflush setting for this handler.
      *
-     * @param autoFlush {@code true} to automatically flush after each write; false otherwise
+     * @param autoFlush {@code true} to automatically flush after each write; false otherwise, in which case the
+     *      handler is flushed according to the {@linkplain #setFlushLevel(Level) flush level}, {@linkplain
+     *      #setFlushRecordCount(int) flush record count} and {@linkplain #setFlushInterval(long) flush interval}
      *
      * @throws SecurityException if a security manager exists and if the caller does not have {@code
      *                           LoggingPermission(control)} or the handler is {@link #protect(Object) protected}.
@@ -208,6 +287,90 @@ public abstract class ExtHandler extends Handler implements FlushableCloseable,
         }
     }
 
+    /**
+     * Get the level at or above which every record is flushed as soon as it is written.
+     *
+     * @return the flush level, or {@code null} if records are not flushed according to their level
+     */
+    public Level getFlushLevel() {
+        return flushLevel;
+    }
+
+    /**
+     * Set the level at or above which every record is flushed as soon as it is written, so that important records
+     * are not held in a buffer even when {@code autoFlush} is off.  This setting has no effect while {@code autoFlush}
+     * is on, since every record is then flushed anyway.
+     *
+     * @param flushLevel the flush level, or {@code null} to not flush records according to their level
+     *
+     * @throws SecurityException if a security manager exists and if the caller does not have {@code
+     *                           LoggingPermission(control)} or the handler is {@link #protect(Object) protected}.
+     */
+    public void setFlushLevel(final Level flushLevel) throws SecurityException {
+        checkAccess(this);
+        this.flushLevel = flushLevel;
+    }
+
+    /**
+     * Get the number of records after which the handler is flushed.
+     *
+     * @return the flush record count, or {@code 0} if records are not flushed according to their number
+     */
+    public int getFlushRecordCount() {
+        return flushRecordCount;
+    }
+
+    /**
+     * Set the number of records after which the handler is flushed.  This setting has no effect while {@code
+     * autoFlush} is on.
+     *
+     * @param flushRecordCount the flush record count, or {@code 0} to not flush records according to their number
+     *
+     * @throws SecurityException if a security manager exists and if the caller does not have {@code
+     *                           LoggingPermission(control)} or the handler is {@link #protect(Object) protected}.
+     */
+    public void setFlushRecordCount(final int flushRecordCount) throws SecurityException {
+        checkAccess(this);
+        if (flushRecordCount < 0) {
+            throw new IllegalArgumentException("flushRecordCount is negative");
+        }
+        this.flushRecordCount = flushRecordCount;
+    }
+
+    /**
+     * Get the interval at which records which have not otherwise been flushed are flushed in the background.
+     *
+     * @return the flush interval in milliseconds, or {@code 0} if there is no background flush
+     */
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Set the interval at which records which have not otherwise been flushed are flushed in the background, which
+     * bounds the time a record may stay in a buffer when {@code autoFlush} is off.  All handlers share a single
+     * background thread, and a handler is only flushed if something was written to it since its last flush, so any
+     * number of records written within the interval cost a single flush.  This setting has no effect while {@code
+     * autoFlush} is on.  The background flush stops when the handler is closed.
+     *
+     * @param flushInterval the flush interval in milliseconds, or {@code 0} for no background flush
+     *
+     * @throws SecurityException if a security manager exists and if the caller does not have {@code
+     *                           LoggingPermission(control)} or the handler is {@link #protect(Object) protected}.
+     */
+    public void setFlushInterval(final long flushInterval) throws SecurityException {
+        checkAccess(this);
+        if (flushInterval < 0L) {
+            throw new IllegalArgumentException("flushInterval is negative");
+        }
+        this.flushInterval = flushInterval;
+        final Future<?> newTask = flushInterval == 0L ? null : HandlerFlusher.schedule(this, flushInterval);
+        final Future<?> oldTask = flushTaskUpdater.getAndSet(this, newTask);
+        if (oldTask != null) {
+            oldTask.cancel(false);
+        }
+    }
+
     /**
      * Enables or disables the handler based on the value passed in.
      *
@@ -313,6 +476,10 @@ public abstract class ExtHandler extends Handler implements FlushableCloseable,
     @Override
     public void close() throws SecurityException {
         checkAccess(this);
+        final Future<?> flushTask = flushTaskUpdater.getAndSet(this, null);
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
         for (Handler handler : handlers) try {
             handler.close();
         } catch (Exception ex) {
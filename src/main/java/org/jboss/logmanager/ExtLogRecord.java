@@ -21,7 +21,7 @@ package org.jboss.logmanager;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
-import java.text.MessageFormat;
+import java.security.Permission;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
@@ -36,6 +36,9 @@ public class ExtLogRecord extends LogRecord {
 
     private static final long serialVersionUID = -9174374711278052369L;
 
+    private static final Permission SET_CALLER_RESOLVER_PERMISSION = new RuntimePermission("setCallerResolver", null);
+    private static volatile CallerResolver callerResolver = CallerResolvers.defaultResolver();
+
     /**
      * The format style to use.
      */
@@ -53,6 +56,14 @@ public class ExtLogRecord extends LogRecord {
          * Do not format the message; parameters are ignored.
          */
         NO_FORMAT,
+        /**
+         * Format the message by replacing each {@code {}} placeholder with the next parameter, in order.  A placeholder
+         * preceded by a backslash is not replaced, and the backslash is removed; a placeholder preceded by two
+         * backslashes is replaced, leaving one backslash.  Once every parameter has been used, the rest of the message
+         * is left as it is; parameters beyond the last placeholder are ignored.  Arrays are rendered element by
+         * element.
+         */
+        BRACES,
     }
 
     /**
@@ -106,6 +117,10 @@ public class ExtLogRecord extends LogRecord {
         }
         formatStyle = original.formatStyle;
         mdcCopy = original.mdcCopy;
+        if (mdcCopy != null) {
+            // both records now refer to the same map, which must be copied before either one changes it
+            mdcShared = original.mdcShared = true;
+        }
         ndc = original.ndc;
         loggerClassName = original.loggerClassName;
         threadName = original.threadName;
@@ -136,6 +151,10 @@ public class ExtLogRecord extends LogRecord {
     private String ndc;
     private FormatStyle formatStyle = FormatStyle.MESSAGE_FORMAT;
     private FastCopyHashMap<String, Object> mdcCopy;
+    /**
+     * {@code true} if {@link #mdcCopy} may be referenced elsewhere and must be cloned before it is modified.
+     */
+    private transient boolean mdcShared;
     private int sourceLineNumber = -1;
     private String sourceFileName;
     private String resourceKey;
@@ -169,14 +188,25 @@ public class ExtLogRecord extends LogRecord {
 
     /**
      * Copy the MDC.  Call this method before passing this log record to another thread.  Calling this method
-     * more than once has no additional effect and will not incur extra copies.
+     * more than once has no additional effect and will not incur extra copies.  Records logged while the MDC is
+     * unchanged share one snapshot of it, which is only copied if the record's MDC is later changed.
      */
     public void copyMdc() {
         if (mdcCopy == null) {
-            mdcCopy = MDC.fastCopyObject();
+            mdcCopy = MDC.snapshot();
+            mdcShared = true;
         }
     }
 
+    private FastCopyHashMap<String, Object> getWritableMdc() {
+        copyMdc();
+        if (mdcShared) {
+            mdcCopy = mdcCopy.clone();
+            mdcShared = false;
+        }
+        return mdcCopy;
+    }
+
     /**
      * Get the value of an MDC property.
      *
@@ -198,9 +228,7 @@ public class ExtLogRecord extends LogRecord {
      * @return a copy of the MDC map
      */
     public Map<String, String> getMdcCopy() {
-        if (mdcCopy == null) {
-            mdcCopy = MDC.fastCopyObject();
-        }
+        copyMdc();
         // Create a new map with string values
         final FastCopyHashMap<String, String> newMdc = new FastCopyHashMap<String, String>();
         for (Map.Entry<String, Object> entry : mdcCopy.entrySet()) {
@@ -219,8 +247,7 @@ public class ExtLogRecord extends LogRecord {
      * @return the old value, if any
      */
     public String putMdc(String key, String value) {
-        copyMdc();
-        final Object oldValue = mdcCopy.put(key, value);
+        final Object oldValue = getWritableMdc().put(key, value);
         return oldValue == null ? null : oldValue.toString();
     }
 
@@ -231,8 +258,7 @@ public class ExtLogRecord extends LogRecord {
      * @return the old value, if any
      */
     public String removeMdc(String key) {
-        copyMdc();
-        final Object oldValue = mdcCopy.remove(key);
+        final Object oldValue = getWritableMdc().remove(key);
         return oldValue == null ? null : oldValue.toString();
     }
 
@@ -251,6 +277,7 @@ public class ExtLogRecord extends LogRecord {
             }
         }
         mdcCopy = newMdc;
+        mdcShared = false;
     }
 
     /**
@@ -297,23 +324,42 @@ public class ExtLogRecord extends LogRecord {
             return;
         }
         calculateCaller = false;
-        final StackTraceElement[] stack = new Throwable().getStackTrace();
-        boolean found = false;
-        for (StackTraceElement element : stack) {
-            final String className = element.getClassName();
-            if (found) {
-                if (! loggerClassName.equals(className)) {
-                    setSourceClassName(className);
-                    setSourceMethodName(element.getMethodName());
-                    setSourceLineNumber(element.getLineNumber());
-                    setSourceFileName(element.getFileName());
-                    return;
-                }
-            } else {
-                found = loggerClassName.equals(className);
-            }
+        final StackTraceElement element = callerResolver.getCaller(loggerClassName);
+        if (element == null) {
+            setUnknownCaller();
+        } else {
+            setSourceClassName(element.getClassName());
+            setSourceMethodName(element.getMethodName());
+            setSourceLineNumber(element.getLineNumber());
+            setSourceFileName(element.getFileName());
         }
-        setUnknownCaller();
+    }
+
+    /**
+     * Get the caller resolver used to find the source of records.
+     *
+     * @return the caller resolver
+     */
+    public static CallerResolver getCallerResolver() {
+        return callerResolver;
+    }
+
+    /**
+     * Set the caller resolver used to find the source of records.  If a security manager is installed, the caller
+     * must have the {@code "setCallerResolver"} {@link RuntimePermission RuntimePermission} to invoke this method.
+     *
+     * @param newResolver the new caller resolver
+     * @see CallerResolvers
+     */
+    public static void setCallerResolver(final CallerResolver newResolver) {
+        if (newResolver == null) {
+            throw new NullPointerException("newResolver is null");
+        }
+        final SecurityManager sm = System.getSecurityManager();
+        if (sm != null) {
+            sm.checkPermission(SET_CALLER_RESOLVER_PERMISSION);
+        }
+        callerResolver = newResolver;
     }
 
     private void setUnknownCaller() {
@@ -421,7 +467,28 @@ public class ExtLogRecord extends LogRecord {
         return resourceKey;
     }
 
-    private String formatRecord() {
+    /**
+     * Append the fully formatted log record, with resources resolved and parameters applied, to a builder.  This has
+     * the same result as appending {@link #getFormattedMessage()}, but a record with the {@link FormatStyle#BRACES}
+     * style which has not been formatted yet is rendered straight into the builder, without creating a string.
+     *
+     * @param builder the builder to append to
+     */
+    public void appendFormattedMessage(final StringBuilder builder) {
+        if (formattedMessage == null && formatStyle == FormatStyle.BRACES) {
+            final Object[] parameters = getParameters();
+            if (parameters != null && parameters.length > 0) {
+                final String msg = localizeMessage();
+                if (msg != null) {
+                    MessageTemplate.renderBraces(builder, msg, parameters);
+                    return;
+                }
+            }
+        }
+        builder.append(getFormattedMessage());
+    }
+
+    private String localizeMessage() {
         final ResourceBundle bundle = getResourceBundle();
         String msg = getMessage();
         if (msg == null)
@@ -435,16 +502,31 @@ public class ExtLogRecord extends LogRecord {
                 // ignore
             }
         }
+        return msg;
+    }
+
+    private String formatRecord() {
+        final String msg = localizeMessage();
+        if (msg == null)
+            return null;
         final Object[] parameters = getParameters();
         if (parameters == null || parameters.length == 0) {
             return msg;
         }
         switch (formatStyle) {
             case PRINTF: {
-                return String.format(msg, parameters);
+                return MessageTemplate.formatPrintf(msg, parameters);
             }
             case MESSAGE_FORMAT: {
-                return msg.indexOf('{') >= 0 ? MessageFormat.format(msg, parameters) : msg;
+                return msg.indexOf('{') >= 0 ? MessageTemplate.formatMessageFormat(msg, parameters) : msg;
+            }
+            case BRACES: {
+                if (msg.indexOf('{') < 0) {
+                    return msg;
+                }
+                final StringBuilder builder = new StringBuilder(msg.length() + (parameters.length << 4));
+                MessageTemplate.renderBraces(builder, msg, parameters);
+                return builder.toString();
             }
         }
         // should be unreachable
@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The background thread which flushes handlers at a fixed interval.  A single thread is shared by all handlers; it
+ * holds only weak references to them, so a handler which is discarded without being closed is not kept alive.
+ */
+final class HandlerFlusher {
+
+    private HandlerFlusher() {
+    }
+
+    /**
+     * Schedule a handler to be flushed periodically.
+     *
+     * @param handler the handler
+     * @param interval the interval between flushes, in milliseconds
+     * @return the future to cancel in order to stop flushing
+     */
+    static Future<?> schedule(final ExtHandler handler, final long interval) {
+        final Task task = new Task(handler);
+        final Future<?> future = Holder.EXECUTOR.scheduleWithFixedDelay(task, interval, interval, TimeUnit.MILLISECONDS);
+        task.future = future;
+        return future;
+    }
+
+    private static final class Task implements Runnable {
+        private final WeakReference<ExtHandler> handlerRef;
+        volatile Future<?> future;
+
+        Task(final ExtHandler handler) {
+            handlerRef = new WeakReference<ExtHandler>(handler);
+        }
+
+        public void run() {
+            final ExtHandler handler = handlerRef.get();
+            if (handler == null) {
+                final Future<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            handler.flushIfDirty();
+        }
+    }
+
+    private static final class Holder {
+        static final ScheduledThreadPoolExecutor EXECUTOR;
+
+        static {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "Log handler flusher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            EXECUTOR = executor;
+        }
+    }
+}
@@ -104,6 +104,12 @@ public final class LogContext implements Protectable {
      */
     final Object treeLock = new Object();
 
+    /**
+     * Incremented after any change to the handlers of a logger, or to whether a logger uses its parent's handlers.
+     * Logger nodes use this to tell whether state derived from the handlers of their ancestors is still current.
+     */
+    private final AtomicInteger handlerGeneration = new AtomicInteger();
+
     LogContext(final boolean strong) {
         this.strong = strong;
         levelMapReference = new AtomicReference<Map<String, LevelRef>>(LazyHolder.INITIAL_LEVEL_MAP);
@@ -111,6 +117,14 @@ public final class LogContext implements Protectable {
         loggerNames = new ConcurrentSkipListMap<String, AtomicInteger>();
     }
 
+    int getHandlerGeneration() {
+        return handlerGeneration.get();
+    }
+
+    void handlersChanged() {
+        handlerGeneration.incrementAndGet();
+    }
+
     /**
      * Create a new log context.  If a security manager is installed, the caller must have the {@code "createLogContext"}
      * {@link RuntimePermission RuntimePermission} to invoke this method.
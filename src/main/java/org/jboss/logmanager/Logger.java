@@ -359,7 +359,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void log(LogRecord record) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (record.getLevel().intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (record.getLevel().intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(record);
@@ -367,7 +367,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void entering(final String sourceClass, final String sourceMethod) {
-        if (FINER_INT < loggerNode.getEffectiveLevel()) {
+        if (FINER_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(Level.FINER, "ENTRY", LOGGER_CLASS_NAME);
@@ -378,7 +378,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void entering(final String sourceClass, final String sourceMethod, final Object param1) {
-        if (FINER_INT < loggerNode.getEffectiveLevel()) {
+        if (FINER_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(Level.FINER, "ENTRY {0}", LOGGER_CLASS_NAME);
@@ -390,7 +390,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void entering(final String sourceClass, final String sourceMethod, final Object[] params) {
-        if (FINER_INT < loggerNode.getEffectiveLevel()) {
+        if (FINER_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         final StringBuilder builder = new StringBuilder("ENTRY");
@@ -406,7 +406,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void exiting(final String sourceClass, final String sourceMethod) {
-        if (FINER_INT < loggerNode.getEffectiveLevel()) {
+        if (FINER_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(Level.FINER, "RETURN", LOGGER_CLASS_NAME);
@@ -417,7 +417,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void exiting(final String sourceClass, final String sourceMethod, final Object result) {
-        if (FINER_INT < loggerNode.getEffectiveLevel()) {
+        if (FINER_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(Level.FINER, "RETURN {0}", LOGGER_CLASS_NAME);
@@ -429,7 +429,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void throwing(final String sourceClass, final String sourceMethod, final Throwable thrown) {
-        if (FINER_INT < loggerNode.getEffectiveLevel()) {
+        if (FINER_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(Level.FINER, "THROW", LOGGER_CLASS_NAME);
@@ -441,7 +441,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void severe(final String msg) {
-        if (SEVERE_INT < loggerNode.getEffectiveLevel()) {
+        if (SEVERE_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(new ExtLogRecord(Level.SEVERE, msg, LOGGER_CLASS_NAME));
@@ -449,7 +449,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void warning(final String msg) {
-        if (WARNING_INT < loggerNode.getEffectiveLevel()) {
+        if (WARNING_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(new ExtLogRecord(Level.WARNING, msg, LOGGER_CLASS_NAME));
@@ -457,7 +457,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void info(final String msg) {
-        if (INFO_INT < loggerNode.getEffectiveLevel()) {
+        if (INFO_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(new ExtLogRecord(Level.INFO, msg, LOGGER_CLASS_NAME));
@@ -465,7 +465,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void config(final String msg) {
-        if (CONFIG_INT < loggerNode.getEffectiveLevel()) {
+        if (CONFIG_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(new ExtLogRecord(Level.CONFIG, msg, LOGGER_CLASS_NAME));
@@ -473,7 +473,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void fine(final String msg) {
-        if (FINE_INT < loggerNode.getEffectiveLevel()) {
+        if (FINE_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(new ExtLogRecord(Level.FINE, msg, LOGGER_CLASS_NAME));
@@ -481,7 +481,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void finer(final String msg) {
-        if (FINER_INT < loggerNode.getEffectiveLevel()) {
+        if (FINER_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(new ExtLogRecord(Level.FINER, msg, LOGGER_CLASS_NAME));
@@ -489,7 +489,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
 
     /** {@inheritDoc} */
     public void finest(final String msg) {
-        if (FINEST_INT < loggerNode.getEffectiveLevel()) {
+        if (FINEST_INT < loggerNode.getEffectiveLevel() || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(new ExtLogRecord(Level.FINEST, msg, LOGGER_CLASS_NAME));
@@ -498,7 +498,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void log(final Level level, final String msg) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         logRaw(new ExtLogRecord(level, msg, LOGGER_CLASS_NAME));
@@ -507,7 +507,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void log(final Level level, final String msg, final Object param1) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
@@ -515,10 +515,67 @@ public final class Logger extends java.util.logging.Logger implements Serializab
         logRaw(rec);
     }
 
+    /**
+     * Log a message with two parameters.  The parameter array is only created if the message is loggable.
+     *
+     * @param level the level to log at
+     * @param msg the message
+     * @param param1 the first parameter
+     * @param param2 the second parameter
+     */
+    public void log(final Level level, final String msg, final Object param1, final Object param2) {
+        final int effectiveLevel = loggerNode.getEffectiveLevel();
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
+            return;
+        }
+        final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
+        rec.setParameters(new Object[] { param1, param2 });
+        logRaw(rec);
+    }
+
+    /**
+     * Log a message with three parameters.  The parameter array is only created if the message is loggable.
+     *
+     * @param level the level to log at
+     * @param msg the message
+     * @param param1 the first parameter
+     * @param param2 the second parameter
+     * @param param3 the third parameter
+     */
+    public void log(final Level level, final String msg, final Object param1, final Object param2, final Object param3) {
+        final int effectiveLevel = loggerNode.getEffectiveLevel();
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
+            return;
+        }
+        final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
+        rec.setParameters(new Object[] { param1, param2, param3 });
+        logRaw(rec);
+    }
+
+    /**
+     * Log a message with four parameters.  The parameter array is only created if the message is loggable.
+     *
+     * @param level the level to log at
+     * @param msg the message
+     * @param param1 the first parameter
+     * @param param2 the second parameter
+     * @param param3 the third parameter
+     * @param param4 the fourth parameter
+     */
+    public void log(final Level level, final String msg, final Object param1, final Object param2, final Object param3, final Object param4) {
+        final int effectiveLevel = loggerNode.getEffectiveLevel();
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
+            return;
+        }
+        final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
+        rec.setParameters(new Object[] { param1, param2, param3, param4 });
+        logRaw(rec);
+    }
+
     /** {@inheritDoc} */
     public void log(final Level level, final String msg, final Object[] params) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
@@ -529,7 +586,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void log(final Level level, final String msg, final Throwable thrown) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
@@ -540,7 +597,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void logp(final Level level, final String sourceClass, final String sourceMethod, final String msg) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
@@ -552,7 +609,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void logp(final Level level, final String sourceClass, final String sourceMethod, final String msg, final Object param1) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
@@ -565,7 +622,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void logp(final Level level, final String sourceClass, final String sourceMethod, final String msg, final Object[] params) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
@@ -578,7 +635,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void logp(final Level level, final String sourceClass, final String sourceMethod, final String msg, final Throwable thrown) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, msg, LOGGER_CLASS_NAME);
@@ -591,7 +648,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void logrb(final Level level, final String sourceClass, final String sourceMethod, final String bundleName, final String msg) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         super.logrb(level, sourceClass, sourceMethod, bundleName, msg);
@@ -600,7 +657,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void logrb(final Level level, final String sourceClass, final String sourceMethod, final String bundleName, final String msg, final Object param1) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         super.logrb(level, sourceClass, sourceMethod, bundleName, msg, param1);
@@ -609,7 +666,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void logrb(final Level level, final String sourceClass, final String sourceMethod, final String bundleName, final String msg, final Object[] params) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         super.logrb(level, sourceClass, sourceMethod, bundleName, msg, params);
@@ -618,7 +675,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     /** {@inheritDoc} */
     public void logrb(final Level level, final String sourceClass, final String sourceMethod, final String bundleName, final String msg, final Throwable thrown) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         super.logrb(level, sourceClass, sourceMethod, bundleName, msg, thrown);
@@ -639,7 +696,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
      */
     public void log(final String fqcn, final Level level, final String message, final String bundleName, final ExtLogRecord.FormatStyle style, final Object[] params, final Throwable t) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level == null || fqcn == null || message == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level == null || fqcn == null || message == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, message, style, fqcn);
@@ -661,7 +718,7 @@ public final class Logger extends java.util.logging.Logger implements Serializab
      */
     public void log(final String fqcn, final Level level, final String message, final ExtLogRecord.FormatStyle style, final Object[] params, final Throwable t) {
         final int effectiveLevel = loggerNode.getEffectiveLevel();
-        if (level == null || fqcn == null || message == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT) {
+        if (level == null || fqcn == null || message == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
             return;
         }
         final ExtLogRecord rec = new ExtLogRecord(level, message, style, fqcn);
@@ -683,11 +740,134 @@ public final class Logger extends java.util.logging.Logger implements Serializab
     }
 
     /**
-     * Do the logging with no level checks (they've already been done).
+     * SPI interface method to log a message with one parameter at a given level.  The parameter array is only created
+     * if the message is loggable.
+     *
+     * @param fqcn the fully qualified class name of the first logger class
+     * @param level the level to log at
+     * @param message the message
+     * @param style the message format style
+     * @param param1 the first parameter
+     * @param t the throwable, if any
+     */
+    public void log(final String fqcn, final Level level, final String message, final ExtLogRecord.FormatStyle style, final Object param1, final Throwable t) {
+        final int effectiveLevel = loggerNode.getEffectiveLevel();
+        if (level == null || fqcn == null || message == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
+            return;
+        }
+        final ExtLogRecord rec = new ExtLogRecord(level, message, style, fqcn);
+        rec.setParameters(new Object[] { param1 });
+        rec.setThrown(t);
+        logRaw(rec);
+    }
+
+    /**
+     * SPI interface method to log a message with two parameters at a given level.  The parameter array is only created
+     * if the message is loggable.
+     *
+     * @param fqcn the fully qualified class name of the first logger class
+     * @param level the level to log at
+     * @param message the message
+     * @param style the message format style
+     * @param param1 the first parameter
+     * @param param2 the second parameter
+     * @param t the throwable, if any
+     */
+    public void log(final String fqcn, final Level level, final String message, final ExtLogRecord.FormatStyle style, final Object param1, final Object param2, final Throwable t) {
+        final int effectiveLevel = loggerNode.getEffectiveLevel();
+        if (level == null || fqcn == null || message == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
+            return;
+        }
+        final ExtLogRecord rec = new ExtLogRecord(level, message, style, fqcn);
+        rec.setParameters(new Object[] { param1, param2 });
+        rec.setThrown(t);
+        logRaw(rec);
+    }
+
+    /**
+     * SPI interface method to log a message with three parameters at a given level.  The parameter array is only
+     * created if the message is loggable.
+     *
+     * @param fqcn the fully qualified class name of the first logger class
+     * @param level the level to log at
+     * @param message the message
+     * @param style the message format style
+     * @param param1 the first parameter
+     * @param param2 the second parameter
+     * @param param3 the third parameter
+     * @param t the throwable, if any
+     */
+    public void log(final String fqcn, final Level level, final String message, final ExtLogRecord.FormatStyle style, final Object param1, final Object param2, final Object param3, final Throwable t) {
+        final int effectiveLevel = loggerNode.getEffectiveLevel();
+        if (level == null || fqcn == null || message == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
+            return;
+        }
+        final ExtLogRecord rec = new ExtLogRecord(level, message, style, fqcn);
+        rec.setParameters(new Object[] { param1, param2, param3 });
+        rec.setThrown(t);
+        logRaw(rec);
+    }
+
+    /**
+     * SPI interface method to log a message with four parameters at a given level.  The parameter array is only
+     * created if the message is loggable.
+     *
+     * @param fqcn the fully qualified class name of the first logger class
+     * @param level the level to log at
+     * @param message the message
+     * @param style the message format style
+     * @param param1 the first parameter
+     * @param param2 the second parameter
+     * @param param3 the third parameter
+     * @param param4 the fourth parameter
+     * @param t the throwable, if any
+     */
+    public void log(final String fqcn, final Level level, final String message, final ExtLogRecord.FormatStyle style, final Object param1, final Object param2, final Object param3, final Object param4, final Throwable t) {
+        final int effectiveLevel = loggerNode.getEffectiveLevel();
+        if (level == null || fqcn == null || message == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
+            return;
+        }
+        final ExtLogRecord rec = new ExtLogRecord(level, message, style, fqcn);
+        rec.setParameters(new Object[] { param1, param2, param3, param4 });
+        rec.setThrown(t);
+        logRaw(rec);
+    }
+
+    /**
+     * SPI interface method to log a supplied message at a given level.  The supplier is only called if the message is
+     * loggable, and the message is logged as is, without any formatting.  As with the other methods, nothing is logged
+     * if the message is {@code null}.
+     *
+     * @param fqcn the fully qualified class name of the first logger class
+     * @param level the level to log at
+     * @param t the throwable, if any
+     * @param messageSupplier the supplier of the message
+     */
+    public void log(final String fqcn, final Level level, final Throwable t, final MessageSupplier<?> messageSupplier) {
+        final int effectiveLevel = loggerNode.getEffectiveLevel();
+        if (level == null || fqcn == null || messageSupplier == null || level.intValue() < effectiveLevel || effectiveLevel == OFF_INT || ! loggerNode.hasHandlers()) {
+            return;
+        }
+        final Object message = messageSupplier.get();
+        if (message == null) {
+            return;
+        }
+        final ExtLogRecord rec = new ExtLogRecord(level, message.toString(), ExtLogRecord.FormatStyle.NO_FORMAT, fqcn);
+        rec.setThrown(t);
+        logRaw(rec);
+    }
+
+    /**
+     * Do the logging with no level checks (they've already been done).  If no handler can be reached from this logger,
+     * the record is discarded without being filtered.
      *
      * @param record the extended log record
      */
     public void logRaw(final ExtLogRecord record) {
+        if (! loggerNode.hasHandlers()) {
+            // there is nowhere for the record to go
+            return;
+        }
         record.setLoggerName(getName());
         String bundleName = null;
         ResourceBundle bundle = null;
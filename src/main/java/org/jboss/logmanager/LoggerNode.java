@@ -19,6 +19,7 @@
 
 package org.jboss.logmanager;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -68,6 +69,12 @@ final class LoggerNode {
      */
     private volatile boolean useParentHandlers = true;
 
+    /**
+     * The handlers of this node followed by those of every ancestor whose handlers are used, cached for a given
+     * handler generation of the context.
+     */
+    private volatile HandlerState handlerState;
+
     /**
      * The filter for this logger instance.
      */
@@ -81,6 +88,8 @@ final class LoggerNode {
     /**
      * The atomic updater for the {@link #handlers} field.
      */
+    private static final Handler[] NO_HANDLERS = new Handler[0];
+
     private static final AtomicArray<LoggerNode, Handler> handlersUpdater = AtomicArray.create(AtomicReferenceFieldUpdater.newUpdater(LoggerNode.class, Handler[].class, "handlers"), Handler.class);
 
     /**
@@ -270,23 +279,87 @@ final class LoggerNode {
     Handler[] clearHandlers() {
         final Handler[] handlers = this.handlers;
         handlersUpdater.clear(this);
+        context.handlersChanged();
         return handlers.length > 0 ? handlers.clone() : handlers;
     }
 
     void removeHandler(final Handler handler) {
         handlersUpdater.remove(this, handler, true);
+        context.handlersChanged();
     }
 
     void addHandler(final Handler handler) {
         handlersUpdater.add(this, handler);
+        context.handlersChanged();
     }
 
     Handler[] setHandlers(final Handler[] handlers) {
-        return handlersUpdater.getAndSet(this, handlers);
+        try {
+            return handlersUpdater.getAndSet(this, handlers);
+        } finally {
+            context.handlersChanged();
+        }
     }
 
     boolean compareAndSetHandlers(final Handler[] oldHandlers, final Handler[] newHandlers) {
-        return handlersUpdater.compareAndSet(this, oldHandlers, newHandlers);
+        if (handlersUpdater.compareAndSet(this, oldHandlers, newHandlers)) {
+            context.handlersChanged();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determine whether a record published to this node would reach any handler, either of this node or of an
+     * ancestor whose handlers are used.
+     *
+     * @return {@code true} if there is at least one handler to publish to
+     */
+    boolean hasHandlers() {
+        return getEffectiveHandlers().length > 0;
+    }
+
+    /**
+     * Get the handlers of this node followed by the handlers of each ancestor whose handlers are used, in the order in
+     * which records are published to them.  The array is cached until the handlers of any logger in the context change,
+     * and must not be modified.
+     *
+     * @return the effective handlers
+     */
+    Handler[] getEffectiveHandlers() {
+        // read the generation first, so that a change made while we compute invalidates the result
+        final int generation = context.getHandlerGeneration();
+        HandlerState state = handlerState;
+        if (state == null || state.generation != generation) {
+            handlerState = state = new HandlerState(generation, collectHandlers());
+        }
+        return state.handlers;
+    }
+
+    private Handler[] collectHandlers() {
+        int count = 0;
+        LoggerNode node = this;
+        for (;;) {
+            count += node.handlers.length;
+            if (! node.useParentHandlers || node.parent == null) break;
+            node = node.parent;
+        }
+        if (count == 0) {
+            return NO_HANDLERS;
+        }
+        final Handler[] result = new Handler[count];
+        int idx = 0;
+        node = this;
+        for (;;) {
+            final Handler[] handlers = node.handlers;
+            // the array may have been replaced since it was counted; the generation will have changed if so
+            final int length = Math.min(handlers.length, count - idx);
+            System.arraycopy(handlers, 0, result, idx, length);
+            idx += length;
+            if (idx == count || ! node.useParentHandlers || node.parent == null) break;
+            node = node.parent;
+        }
+        return idx == count ? result : Arrays.copyOf(result, idx);
     }
 
     boolean getUseParentHandlers() {
@@ -295,20 +368,17 @@ final class LoggerNode {
 
     void setUseParentHandlers(final boolean useParentHandlers) {
         this.useParentHandlers = useParentHandlers;
+        context.handlersChanged();
     }
 
     void publish(final ExtLogRecord record) {
-        for (Handler handler : handlers) try {
+        for (Handler handler : getEffectiveHandlers()) try {
             handler.publish(record);
         } catch (VirtualMachineError e) {
             throw e;
         } catch (Throwable t) {
             // todo - error handler
         }
-        if (useParentHandlers) {
-            final LoggerNode parent = this.parent;
-            if (parent != null) parent.publish(record);
-        }
     }
 
     void setLevel(final Level newLevel) {
@@ -447,6 +517,16 @@ final class LoggerNode {
         return parent;
     }
 
+    static final class HandlerState {
+        final int generation;
+        final Handler[] handlers;
+
+        HandlerState(final int generation, final Handler[] handlers) {
+            this.generation = generation;
+            this.handlers = handlers;
+        }
+    }
+
     // GC
 
     /**
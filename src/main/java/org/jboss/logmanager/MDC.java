@@ -48,7 +48,7 @@ public final class MDC {
      * @return the value
      */
     public static Object getObject(String key) {
-        return mdc.get().get(key);
+        return mdc.get().map.get(key);
     }
 
     /**
@@ -77,7 +77,9 @@ public final class MDC {
         if (value == null) {
             throw new NullPointerException("value is null");
         }
-        return mdc.get().put(key, value);
+        final Context context = mdc.get();
+        context.snapshot = null;
+        return context.map.put(key, value);
     }
 
     /**
@@ -98,7 +100,12 @@ public final class MDC {
      * @return the old value or {@code null} if there was none
      */
     public static Object removeObject(String key) {
-        return mdc.get().remove(key);
+        final Context context = mdc.get();
+        final Object oldValue = context.map.remove(key);
+        if (oldValue != null) {
+            context.snapshot = null;
+        }
+        return oldValue;
     }
 
     /**
@@ -112,7 +119,7 @@ public final class MDC {
 
     static FastCopyHashMap<String, String> fastCopy() {
         final FastCopyHashMap<String, String> result = new FastCopyHashMap<String, String>();
-        for (Map.Entry<String, Object> entry : mdc.get().entrySet()) {
+        for (Map.Entry<String, Object> entry : mdc.get().map.entrySet()) {
             result.put(entry.getKey(), entry.getValue().toString());
         }
         return result;
@@ -128,26 +135,61 @@ public final class MDC {
     }
 
     static FastCopyHashMap<String, Object> fastCopyObject() {
-        return mdc.get().clone();
+        return mdc.get().map.clone();
+    }
+
+    /**
+     * Get a snapshot of the MDC map.  The snapshot is shared by every caller until the MDC is next changed, so
+     * consecutive snapshots of an unchanged MDC cost nothing.  The snapshot must not be modified; callers which need
+     * to change it must clone it first.
+     *
+     * @return the snapshot
+     */
+    static FastCopyHashMap<String, Object> snapshot() {
+        final Context context = mdc.get();
+        FastCopyHashMap<String, Object> snapshot = context.snapshot;
+        if (snapshot == null) {
+            context.snapshot = snapshot = context.map.clone();
+        }
+        return snapshot;
     }
 
     /**
      * Clear the current MDC map.
      */
     public static void clear() {
-        mdc.get().clear();
+        final Context context = mdc.get();
+        if (! context.map.isEmpty()) {
+            context.map.clear();
+            context.snapshot = null;
+        }
     }
 
-    private static final class Holder extends InheritableThreadLocal<FastCopyHashMap<String, Object>> {
+    private static final class Holder extends InheritableThreadLocal<Context> {
 
         @Override
-        protected FastCopyHashMap<String, Object> childValue(final FastCopyHashMap<String, Object> parentValue) {
-            return new FastCopyHashMap<String, Object>(parentValue);
+        protected Context childValue(final Context parentValue) {
+            final Context context = new Context(new FastCopyHashMap<String, Object>(parentValue.map));
+            // the parent's snapshot, if any, is an exact copy of the child's initial map
+            context.snapshot = parentValue.snapshot;
+            return context;
         }
 
         @Override
-        protected FastCopyHashMap<String, Object> initialValue() {
-            return new FastCopyHashMap<String, Object>();
+        protected Context initialValue() {
+            return new Context(new FastCopyHashMap<String, Object>());
+        }
+    }
+
+    /**
+     * The MDC of a thread, along with the last snapshot taken of it, if it has not changed since.
+     */
+    private static final class Context {
+        final FastCopyHashMap<String, Object> map;
+        FastCopyHashMap<String, Object> snapshot;
+
+        Context(final FastCopyHashMap<String, Object> map) {
+            this.map = map;
         }
     }
 }
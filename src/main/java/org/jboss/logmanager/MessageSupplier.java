@@ -0,0 +1,37 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+/**
+ * A supplier of a log message which is only called once the logger has determined that the message will be logged.
+ * The message is the string value of the supplied object.  This interface has a single method, so on Java 8 and later
+ * a lambda expression or method reference can be given wherever a message supplier is expected.
+ *
+ * @param <T> the supplied message type
+ */
+public interface MessageSupplier<T> {
+
+    /**
+     * Get the message.
+     *
+     * @return the message, or {@code null} if nothing should be logged
+     */
+    T get();
+}
@@ -0,0 +1,496 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.text.DateFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Formattable;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A log message pattern which has been parsed once so that it can be applied to many sets of parameters.  Patterns are
+ * cached, so the hot log statements of an application, which log the same pattern many times over, are only parsed
+ * once.
+ * <p/>
+ * Patterns which only use plain {@code {0}} placeholders, or plain {@code %s} and {@code %d} conversions, are rendered
+ * directly, without creating a {@link MessageFormat} or {@link java.util.Formatter}.  Other patterns are rendered by a
+ * {@code MessageFormat} parsed once and copied for each use, or by {@link String#format(String, Object...)}.  Either
+ * way the result is the same as formatting the message with the JDK classes.
+ */
+abstract class MessageTemplate {
+
+    /**
+     * The most patterns of each style which are cached.  When the cache is full it is emptied, so that patterns which
+     * are built at run time and never repeat cannot crowd out the patterns which do.
+     */
+    private static final int MAX_CACHED = 1024;
+
+    private static final ConcurrentMap<String, MessageTemplate> messageFormatCache = new ConcurrentHashMap<String, MessageTemplate>();
+    private static final ConcurrentMap<String, MessageTemplate> printfCache = new ConcurrentHashMap<String, MessageTemplate>();
+
+    private static final ThreadLocal<LocaleFormats> localeFormats = new ThreadLocal<LocaleFormats>();
+    private static volatile LocaleDigits localeDigits = new LocaleDigits(Locale.ROOT);
+
+    final String pattern;
+
+    MessageTemplate(final String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Apply the parameters to this template.
+     *
+     * @param builder the builder to append the message to
+     * @param parameters the parameters, which may not be empty
+     */
+    abstract void render(StringBuilder builder, Object[] parameters);
+
+    /**
+     * Format a message in the {@link MessageFormat} style.
+     *
+     * @param pattern the message pattern
+     * @param parameters the parameters
+     * @return the formatted message
+     */
+    static String formatMessageFormat(final String pattern, final Object[] parameters) {
+        MessageTemplate template = messageFormatCache.get(pattern);
+        if (template == null) {
+            template = compileMessageFormat(pattern);
+            if (template == null) {
+                // the pattern is invalid; let MessageFormat report it
+                return MessageFormat.format(pattern, parameters);
+            }
+            cache(messageFormatCache, pattern, template);
+        }
+        return render(template, parameters);
+    }
+
+    /**
+     * Format a message in the {@link java.util.Formatter} style.
+     *
+     * @param pattern the message pattern
+     * @param parameters the parameters
+     * @return the formatted message
+     */
+    static String formatPrintf(final String pattern, final Object[] parameters) {
+        MessageTemplate template = printfCache.get(pattern);
+        if (template == null) {
+            template = compilePrintf(pattern);
+            cache(printfCache, pattern, template);
+        }
+        return render(template, parameters);
+    }
+
+    private static String render(final MessageTemplate template, final Object[] parameters) {
+        final StringBuilder builder = new StringBuilder(template.pattern.length() + (parameters.length << 4));
+        template.render(builder, parameters);
+        return builder.toString();
+    }
+
+    private static void cache(final ConcurrentMap<String, MessageTemplate> cache, final String pattern, final MessageTemplate template) {
+        if (cache.size() >= MAX_CACHED) {
+            cache.clear();
+        }
+        cache.putIfAbsent(pattern, template);
+    }
+
+    // MessageFormat style
+
+    /**
+     * Parse a {@link MessageFormat} pattern.
+     *
+     * @param pattern the pattern
+     * @return the template, or {@code null} if the pattern is invalid
+     */
+    static MessageTemplate compileMessageFormat(final String pattern) {
+        final List<String> literals = new ArrayList<String>();
+        final List<Integer> indexes = new ArrayList<Integer>();
+        final StringBuilder literal = new StringBuilder();
+        boolean quoted = false;
+        final int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            final char c = pattern.charAt(i++);
+            if (c == '\'') {
+                if (i < length && pattern.charAt(i) == '\'') {
+                    literal.append('\'');
+                    i++;
+                } else {
+                    quoted = ! quoted;
+                }
+            } else if (c == '{' && ! quoted) {
+                int index = 0;
+                int digits = 0;
+                while (i < length && digits < 5) {
+                    final char d = pattern.charAt(i);
+                    if (d < '0' || d > '9') break;
+                    index = index * 10 + d - '0';
+                    digits++;
+                    i++;
+                }
+                if (digits == 0 || i == length || pattern.charAt(i) != '}' || index >= 10000) {
+                    // a format type, style or anything unusual
+                    return compileFullMessageFormat(pattern);
+                }
+                i++;
+                literals.add(literal.toString());
+                literal.setLength(0);
+                indexes.add(Integer.valueOf(index));
+            } else {
+                literal.append(c);
+            }
+        }
+        literals.add(literal.toString());
+        final int[] indexArray = new int[indexes.size()];
+        for (int j = 0; j < indexArray.length; j++) {
+            indexArray[j] = indexes.get(j).intValue();
+        }
+        return new SimpleMessageFormatTemplate(pattern, literals.toArray(new String[literals.size()]), indexArray);
+    }
+
+    private static MessageTemplate compileFullMessageFormat(final String pattern) {
+        final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        final MessageFormat format;
+        try {
+            format = new MessageFormat(pattern, locale);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return new FullMessageFormatTemplate(pattern, format, locale);
+    }
+
+    /**
+     * A pattern with only plain {@code {n}} placeholders.  Each placeholder is rendered the way {@link MessageFormat}
+     * renders an argument without a format type.
+     */
+    static final class SimpleMessageFormatTemplate extends MessageTemplate {
+        private final String[] literals;
+        private final int[] indexes;
+
+        SimpleMessageFormatTemplate(final String pattern, final String[] literals, final int[] indexes) {
+            super(pattern);
+            this.literals = literals;
+            this.indexes = indexes;
+        }
+
+        void render(final StringBuilder builder, final Object[] parameters) {
+            final String[] literals = this.literals;
+            final int[] indexes = this.indexes;
+            LocaleFormats formats = null;
+            for (int i = 0; i < indexes.length; i++) {
+                builder.append(literals[i]);
+                final int index = indexes[i];
+                if (index >= parameters.length) {
+                    builder.append('{').append(index).append('}');
+                    continue;
+                }
+                final Object parameter = parameters[index];
+                if (parameter == null || parameter instanceof String) {
+                    builder.append((String) parameter);
+                } else if (parameter instanceof Number) {
+                    if (formats == null) formats = getLocaleFormats();
+                    builder.append(formats.getNumberFormat().format(parameter));
+                } else if (parameter instanceof Date) {
+                    if (formats == null) formats = getLocaleFormats();
+                    builder.append(formats.getDateFormat().format(parameter));
+                } else {
+                    builder.append(parameter.toString());
+                }
+            }
+            builder.append(literals[indexes.length]);
+        }
+    }
+
+    /**
+     * A pattern with format types or styles, which is rendered by a copy of a {@link MessageFormat} parsed once.
+     */
+    static final class FullMessageFormatTemplate extends MessageTemplate {
+        private final MessageFormat format;
+        private final Locale locale;
+
+        FullMessageFormatTemplate(final String pattern, final MessageFormat format, final Locale locale) {
+            super(pattern);
+            this.format = format;
+            this.locale = locale;
+        }
+
+        void render(final StringBuilder builder, final Object[] parameters) {
+            if (! locale.equals(Locale.getDefault(Locale.Category.FORMAT))) {
+                builder.append(MessageFormat.format(pattern, parameters));
+                return;
+            }
+            // MessageFormat instances are not thread safe, but copying one is cheaper than parsing the pattern
+            final MessageFormat format = (MessageFormat) this.format.clone();
+            builder.append(format.format(parameters, new StringBuffer(), new FieldPosition(0)));
+        }
+    }
+
+    private static LocaleFormats getLocaleFormats() {
+        final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        LocaleFormats formats = localeFormats.get();
+        if (formats == null || ! formats.locale.equals(locale)) {
+            formats = new LocaleFormats(locale);
+            localeFormats.set(formats);
+        }
+        return formats;
+    }
+
+    /**
+     * The formats {@link MessageFormat} uses for numbers and dates, kept for each thread since they are not thread
+     * safe.
+     */
+    static final class LocaleFormats {
+        final Locale locale;
+        private NumberFormat numberFormat;
+        private DateFormat dateFormat;
+
+        LocaleFormats(final Locale locale) {
+            this.locale = locale;
+        }
+
+        NumberFormat getNumberFormat() {
+            if (numberFormat == null) {
+                numberFormat = NumberFormat.getInstance(locale);
+            }
+            return numberFormat;
+        }
+
+        DateFormat getDateFormat() {
+            if (dateFormat == null) {
+                dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
+            }
+            return dateFormat;
+        }
+    }
+
+    // braces style
+
+    /**
+     * Render a message in the {@link ExtLogRecord.FormatStyle#BRACES} style.  The pattern is scanned once and written
+     * straight into the builder; common parameter types are appended without creating strings.  There is nothing to
+     * cache, since there is nothing in the pattern besides the placeholders.
+     *
+     * @param builder the builder to append to
+     * @param pattern the message pattern
+     * @param parameters the parameters
+     */
+    static void renderBraces(final StringBuilder builder, final String pattern, final Object[] parameters) {
+        int start = 0;
+        int next = 0;
+        int i;
+        while (next < parameters.length && (i = pattern.indexOf("{}", start)) >= 0) {
+            if (i > start && pattern.charAt(i - 1) == '\\') {
+                if (i - 1 > start && pattern.charAt(i - 2) == '\\') {
+                    // an escaped backslash, followed by a placeholder
+                    builder.append(pattern, start, i - 1);
+                    appendParameter(builder, parameters[next++]);
+                } else {
+                    // an escaped placeholder
+                    builder.append(pattern, start, i - 1).append("{}");
+                }
+            } else {
+                builder.append(pattern, start, i);
+                appendParameter(builder, parameters[next++]);
+            }
+            start = i + 2;
+        }
+        builder.append(pattern, start, pattern.length());
+    }
+
+    private static void appendParameter(final StringBuilder builder, final Object parameter) {
+        if (parameter == null || parameter instanceof String) {
+            builder.append((String) parameter);
+        } else if (parameter instanceof Integer) {
+            builder.append(((Integer) parameter).intValue());
+        } else if (parameter instanceof Long) {
+            builder.append(((Long) parameter).longValue());
+        } else if (parameter instanceof Boolean) {
+            builder.append(((Boolean) parameter).booleanValue());
+        } else if (parameter instanceof Character) {
+            builder.append(((Character) parameter).charValue());
+        } else if (parameter instanceof Double) {
+            builder.append(((Double) parameter).doubleValue());
+        } else if (parameter instanceof Float) {
+            builder.append(((Float) parameter).floatValue());
+        } else if (parameter instanceof Short || parameter instanceof Byte) {
+            builder.append(((Number) parameter).intValue());
+        } else if (parameter instanceof CharSequence) {
+            builder.append((CharSequence) parameter);
+        } else if (parameter instanceof Object[]) {
+            builder.append(Arrays.deepToString((Object[]) parameter));
+        } else if (parameter.getClass().isArray()) {
+            appendPrimitiveArray(builder, parameter);
+        } else {
+            builder.append(parameter.toString());
+        }
+    }
+
+    private static void appendPrimitiveArray(final StringBuilder builder, final Object array) {
+        builder.append('[');
+        final int length = Array.getLength(array);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            appendParameter(builder, Array.get(array, i));
+        }
+        builder.append(']');
+    }
+
+    // printf style
+
+    /**
+     * Parse a {@link java.util.Formatter} pattern.
+     *
+     * @param pattern the pattern
+     * @return the template
+     */
+    static MessageTemplate compilePrintf(final String pattern) {
+        final List<String> literals = new ArrayList<String>();
+        final StringBuilder conversions = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        final int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            final char c = pattern.charAt(i++);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            final char conversion = i < length ? pattern.charAt(i++) : 0;
+            if (conversion == '%') {
+                literal.append('%');
+            } else if (conversion == 'n') {
+                literal.append(System.lineSeparator());
+            } else if (conversion == 's' || conversion == 'd') {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                conversions.append(conversion);
+            } else {
+                // flags, widths, explicit indexes and other conversions
+                return new FullPrintfTemplate(pattern);
+            }
+        }
+        literals.add(literal.toString());
+        return new SimplePrintfTemplate(pattern, literals.toArray(new String[literals.size()]), conversions.toString().toCharArray());
+    }
+
+    /**
+     * A pattern with only plain {@code %s} and {@code %d} conversions, and {@code %%} and {@code %n}.
+     */
+    static final class SimplePrintfTemplate extends MessageTemplate {
+        private final String[] literals;
+        private final char[] conversions;
+
+        SimplePrintfTemplate(final String pattern, final String[] literals, final char[] conversions) {
+            super(pattern);
+            this.literals = literals;
+            this.conversions = conversions;
+        }
+
+        void render(final StringBuilder builder, final Object[] parameters) {
+            final char[] conversions = this.conversions;
+            if (! isSimple(parameters)) {
+                // let the formatter deal with anything unusual, including reporting errors
+                builder.append(String.format(pattern, parameters));
+                return;
+            }
+            final String[] literals = this.literals;
+            for (int i = 0; i < conversions.length; i++) {
+                builder.append(literals[i]);
+                final Object parameter = parameters[i];
+                if (conversions[i] == 'd') {
+                    builder.append(parameter.toString());
+                } else {
+                    builder.append(String.valueOf(parameter));
+                }
+            }
+            builder.append(literals[conversions.length]);
+        }
+
+        private boolean isSimple(final Object[] parameters) {
+            final char[] conversions = this.conversions;
+            if (parameters.length < conversions.length) {
+                return false;
+            }
+            boolean integers = false;
+            for (int i = 0; i < conversions.length; i++) {
+                final Object parameter = parameters[i];
+                if (conversions[i] == 'd') {
+                    if (! (parameter instanceof Integer || parameter instanceof Long || parameter instanceof Short
+                            || parameter instanceof Byte || parameter instanceof BigInteger)) {
+                        return false;
+                    }
+                    integers = true;
+                } else if (parameter instanceof Formattable) {
+                    return false;
+                }
+            }
+            return ! integers || hasAsciiDigits(Locale.getDefault(Locale.Category.FORMAT));
+        }
+    }
+
+    /**
+     * A pattern which is rendered by {@link String#format(String, Object...)}.
+     */
+    static final class FullPrintfTemplate extends MessageTemplate {
+
+        FullPrintfTemplate(final String pattern) {
+            super(pattern);
+        }
+
+        void render(final StringBuilder builder, final Object[] parameters) {
+            builder.append(String.format(pattern, parameters));
+        }
+    }
+
+    /**
+     * Determine whether integers are written with ASCII digits in the given locale, in which case {@code %d} renders
+     * an integer the same way as {@code toString()}.
+     */
+    private static boolean hasAsciiDigits(final Locale locale) {
+        LocaleDigits localeDigits = MessageTemplate.localeDigits;
+        if (! localeDigits.locale.equals(locale)) {
+            MessageTemplate.localeDigits = localeDigits = new LocaleDigits(locale);
+        }
+        return localeDigits.ascii;
+    }
+
+    static final class LocaleDigits {
+        final Locale locale;
+        final boolean ascii;
+
+        LocaleDigits(final Locale locale) {
+            this.locale = locale;
+            ascii = DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+        }
+    }
+}
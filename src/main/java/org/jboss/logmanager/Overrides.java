@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.logmanager;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.PrivilegedAction;
+
+import static java.security.AccessController.doPrivileged;
+
+/**
+ * Utility methods for detecting whether a subclass overrides a method, which lets a base class use a faster path
+ * when the method it would otherwise call has its default behavior.
+ */
+public final class Overrides {
+
+    private Overrides() {
+    }
+
+    /**
+     * Find the class which overrides a method of a base class.  Only a method with exactly the given name and
+     * parameter types which is neither private nor static is considered to be an override, so an unrelated overload
+     * of the same name is ignored.
+     *
+     * @param type the class to check
+     * @param base the class which declares the method, which is not itself checked
+     * @param name the method name
+     * @param parameterTypes the method parameter types
+     *
+     * @return the class nearest to {@code type} which overrides the method, or {@code null} if it is not overridden
+     */
+    public static Class<?> findOverride(final Class<?> type, final Class<?> base, final String name, final Class<?>... parameterTypes) {
+        if (type == base) {
+            return null;
+        }
+        return doPrivileged(new PrivilegedAction<Class<?>>() {
+            public Class<?> run() {
+                for (Class<?> c = type; c != null && c != base; c = c.getSuperclass()) {
+                    final Method method;
+                    try {
+                        method = c.getDeclaredMethod(name, parameterTypes);
+                    } catch (NoSuchMethodException ignored) {
+                        continue;
+                    }
+                    if ((method.getModifiers() & (Modifier.PRIVATE | Modifier.STATIC)) == 0) {
+                        return c;
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Determine whether a method of a base class is overridden.
+     *
+     * @param type the class to check
+     * @param base the class which declares the method, which is not itself checked
+     * @param name the method name
+     * @param parameterTypes the method parameter types
+     *
+     * @return {@code true} if the method is overridden, otherwise {@code false}
+     *
+     * @see #findOverride(Class, Class, String, Class[])
+     */
+    public static boolean isOverridden(final Class<?> type, final Class<?> base, final String name, final Class<?>... parameterTypes) {
+        return findOverride(type, base, name, parameterTypes) != null;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.formatters;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * A thread safe cache of rendered {@link SimpleDateFormat} output.  Everything in a date pattern except the
+ * milliseconds ({@code S}) field changes at most once per second, so the text before and after the milliseconds is
+ * rendered once per second and shared by every thread; each record then only appends its own millisecond digits.
+ * <p/>
+ * The cache holds a single immutable entry for the most recent second seen and is replaced without locking.  Only a
+ * cache miss formats the date, holding the lock of the underlying {@code SimpleDateFormat}.  Patterns with more than
+ * one milliseconds field, and time zones with offsets which are not whole seconds, are cached per millisecond
+ * instead.
+ */
+final class DateFormatCache {
+
+    private final SimpleDateFormat prefixFormat;
+    private final SimpleDateFormat suffixFormat;
+    /**
+     * The minimum number of milliseconds digits, or 0 if the milliseconds are part of the cached text.
+     */
+    private final int millisDigits;
+    private final long granularity;
+    private volatile Entry entry;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param pattern the {@link SimpleDateFormat} pattern
+     * @param timeZone the time zone to format to
+     */
+    DateFormatCache(final String pattern, final TimeZone timeZone) {
+        final int[] run = findMillisField(pattern);
+        final boolean wholeSeconds = timeZone.getRawOffset() % 1000 == 0 && timeZone.getDSTSavings() % 1000 == 0;
+        if (run != null && wholeSeconds) {
+            prefixFormat = create(pattern.substring(0, run[0]), timeZone);
+            suffixFormat = create(pattern.substring(run[0] + run[1]), timeZone);
+            millisDigits = run[1];
+            granularity = 1000L;
+        } else {
+            prefixFormat = create(pattern, timeZone);
+            suffixFormat = null;
+            millisDigits = 0;
+            granularity = run == null && wholeSeconds && ! containsMillisField(pattern) ? 1000L : 1L;
+        }
+    }
+
+    private static SimpleDateFormat create(final String pattern, final TimeZone timeZone) {
+        final SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(timeZone);
+        return format;
+    }
+
+    /**
+     * Render the given instant.
+     *
+     * @param builder the builder to append to
+     * @param millis the instant, in milliseconds since the epoch
+     */
+    void render(final StringBuilder builder, final long millis) {
+        final long granularity = this.granularity;
+        long key = millis / granularity;
+        if (millis < 0L && millis % granularity != 0L) key--;
+        Entry entry = this.entry;
+        if (entry == null || entry.key != key) {
+            entry = createEntry(key);
+            final Entry current = this.entry;
+            // don't let a late record from an earlier second evict the current one
+            if (current == null || current.key < key) {
+                this.entry = entry;
+            }
+        }
+        builder.append(entry.prefix);
+        final int millisDigits = this.millisDigits;
+        if (millisDigits > 0) {
+            final int ms = (int) (millis - key * granularity);
+            final int digits = ms < 10 ? 1 : ms < 100 ? 2 : 3;
+            for (int i = digits; i < millisDigits; i++) {
+                builder.append('0');
+            }
+            builder.append(ms);
+            builder.append(entry.suffix);
+        }
+    }
+
+    private Entry createEntry(final long key) {
+        final Date date = new Date(key * granularity);
+        final String prefix;
+        synchronized (prefixFormat) {
+            prefix = prefixFormat.format(date);
+        }
+        String suffix = null;
+        if (suffixFormat != null) {
+            synchronized (suffixFormat) {
+                suffix = suffixFormat.format(date);
+            }
+        }
+        return new Entry(key, prefix, suffix);
+    }
+
+    /**
+     * Find the single unquoted milliseconds field of a pattern.
+     *
+     * @param pattern the pattern
+     * @return the start index and length of the field, or {@code null} if there is not exactly one such field
+     */
+    private static int[] findMillisField(final String pattern) {
+        int[] found = null;
+        boolean quoted = false;
+        final int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            final char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = ! quoted;
+                i++;
+            } else if (! quoted && c == 'S') {
+                final int start = i;
+                while (i < length && pattern.charAt(i) == 'S') i++;
+                if (found != null) {
+                    return null;
+                }
+                found = new int[] { start, i - start };
+            } else {
+                i++;
+            }
+        }
+        return found;
+    }
+
+    private static boolean containsMillisField(final String pattern) {
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = ! quoted;
+            } else if (! quoted && c == 'S') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static final class Entry {
+        final long key;
+        final String prefix;
+        final String suffix;
+
+        Entry(final long key, final String prefix, final String suffix) {
+            this.key = key;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+    }
+}
@@ -39,8 +39,6 @@ import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
 import java.security.PrivilegedAction;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.TimeZone;
 import static java.lang.Math.min;
 import static java.lang.Math.max;
@@ -61,6 +59,7 @@ public final class Formatters {
     private static final boolean DEFAULT_TRUNCATE_BEGINNING = false;
     private static final String NEW_LINE = String.format("%n");
     private static final Pattern PRECISION_INT_PATTERN = Pattern.compile("\\d+");
+    private static final char[] SPACES = "                                ".toCharArray();
 
 
     private Formatters() {
@@ -219,24 +218,22 @@ public final class Formatters {
                     }
                 }
             } else {
-                // only copy the data if we're right justified
-                final StringBuilder subBuilder = new StringBuilder();
-                renderRaw(subBuilder, record);
-                final int len = subBuilder.length();
+                // render in place, then pad or truncate the rendered region
+                final int oldLen = builder.length();
+                renderRaw(builder, record);
+                final int len = builder.length() - oldLen;
                 if (len > maximumWidth) {
                     if (truncateBeginning) {
                         final int overflow = len - maximumWidth;
-                        subBuilder.delete(0, overflow);
+                        builder.delete(oldLen, oldLen + overflow);
                     }
-                    subBuilder.setLength(maximumWidth);
+                    builder.setLength(oldLen + maximumWidth);
                 } else if (len < minimumWidth) {
                     // right justify
-                    int spaces = minimumWidth - len;
-                    for (int i = 0; i < spaces; i ++) {
-                        builder.append(' ');
+                    for (int spaces = minimumWidth - len; spaces > 0; spaces -= SPACES.length) {
+                        builder.insert(oldLen, SPACES, 0, min(spaces, SPACES.length));
                     }
                 }
-                builder.append(subBuilder);
             }
         }
 
@@ -376,17 +373,10 @@ public final class Formatters {
      */
     public static FormatStep dateFormatStep(final TimeZone timeZone, final String formatString, final boolean leftJustify, final int minimumWidth,
                                             final boolean truncateBeginning, final int maximumWidth) {
+        final DateFormatCache cache = new DateFormatCache(formatString == null ? "yyyy-MM-dd HH:mm:ss,SSS" : formatString, timeZone);
         return new JustifyingFormatStep(leftJustify, minimumWidth, truncateBeginning, maximumWidth) {
-            private final ThreadLocal<SimpleDateFormat> holder = new ThreadLocal<SimpleDateFormat>() {
-                protected SimpleDateFormat initialValue() {
-                    final SimpleDateFormat dateFormat = new SimpleDateFormat(formatString == null ? "yyyy-MM-dd HH:mm:ss,SSS" : formatString);
-                    dateFormat.setTimeZone(timeZone);
-                    return dateFormat;
-                }
-            };
-
             public void renderRaw(final StringBuilder builder, final ExtLogRecord record) {
-                builder.append(holder.get().format(new Date(record.getMillis())));
+                cache.render(builder, record.getMillis());
             }
         };
     }
@@ -568,7 +558,7 @@ public final class Formatters {
     public static FormatStep messageFormatStep(final boolean leftJustify, final int minimumWidth, final boolean truncateBeginning, final int maximumWidth) {
         return new JustifyingFormatStep(leftJustify, minimumWidth, truncateBeginning, maximumWidth) {
             public void renderRaw(final StringBuilder builder, final ExtLogRecord record) {
-                builder.append(record.getFormattedMessage());
+                record.appendFormattedMessage(builder);
                 final Throwable t = record.getThrown();
                 if (t != null) {
                     builder.append(": ");
@@ -602,7 +592,7 @@ public final class Formatters {
     public static FormatStep simpleMessageFormatStep(final boolean leftJustify, final int minimumWidth, final boolean truncateBeginning, final int maximumWidth) {
         return new JustifyingFormatStep(leftJustify, minimumWidth, truncateBeginning, maximumWidth) {
             public void renderRaw(final StringBuilder builder, final ExtLogRecord record) {
-                builder.append(record.getFormattedMessage());
+                record.appendFormattedMessage(builder);
             }
         };
     }
@@ -0,0 +1,605 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.formatters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.jboss.logmanager.ExtLogRecord;
+
+/**
+ * A formatter which renders each record as a single JSON object, optionally followed by a new line so that the output
+ * is in the <a href="http://jsonlines.org/">JSON Lines</a> format.
+ * <p/>
+ * Each selected {@link Field field} is a {@link FormatStep} which appends its key, encoded once when the formatter is
+ * configured, followed by its value escaped as it is appended.  The formatted message is appended directly to the
+ * output and is only copied if it contains a character which must be escaped.  Fields without a value, such as an
+ * empty NDC or a record without an exception, are left out.
+ * <p/>
+ * The {@link Field#MDC MDC} is rendered as an object and the {@link Field#NDC NDC} as a single string, as it is
+ * rendered by {@code %x} in a {@link PatternFormatter}.  An exception is rendered as an object with its type, message
+ * and an array of stack frames, followed by any suppressed exceptions and the cause, which are rendered the same way.
+ */
+public class JsonFormatter extends MultistepFormatter {
+
+    /**
+     * The fields which may be selected, with their key in the JSON object.
+     */
+    public enum Field {
+        /**
+         * The time of the record, rendered with the {@link #setDateFormat(String) date format}.
+         */
+        TIMESTAMP("timestamp"),
+        /**
+         * The sequence number of the record.
+         */
+        SEQUENCE("sequence"),
+        /**
+         * The name of the level of the record.
+         */
+        LEVEL("level"),
+        /**
+         * The name of the logger.
+         */
+        LOGGER_NAME("loggerName"),
+        /**
+         * The class name of the logger used to log the record.
+         */
+        LOGGER_CLASS_NAME("loggerClassName"),
+        /**
+         * The name of the thread which logged the record.
+         */
+        THREAD_NAME("threadName"),
+        /**
+         * The id of the thread which logged the record.
+         */
+        THREAD_ID("threadId"),
+        /**
+         * The formatted message.
+         */
+        MESSAGE("message"),
+        /**
+         * The name of the class which logged the record (NOTE: call stack introspection introduces a significant
+         * performance penalty).
+         */
+        SOURCE_CLASS_NAME("sourceClassName"),
+        /**
+         * The name of the method which logged the record (NOTE: call stack introspection introduces a significant
+         * performance penalty).
+         */
+        SOURCE_METHOD_NAME("sourceMethodName"),
+        /**
+         * The name of the file which logged the record (NOTE: call stack introspection introduces a significant
+         * performance penalty).
+         */
+        SOURCE_FILE_NAME("sourceFileName"),
+        /**
+         * The line number which logged the record (NOTE: call stack introspection introduces a significant
+         * performance penalty).
+         */
+        SOURCE_LINE_NUMBER("sourceLineNumber"),
+        /**
+         * The nested diagnostic context, as a single string as it is rendered by {@code %x}.
+         */
+        NDC("ndc"),
+        /**
+         * The mapped diagnostic context, as an object.
+         */
+        MDC("mdc"),
+        /**
+         * The exception, as an object.
+         */
+        EXCEPTION("exception"),
+        ;
+
+        private final String key;
+
+        Field(final String key) {
+            this.key = key;
+        }
+
+        /**
+         * Returns the key of the field in the JSON object.
+         *
+         * @return the key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the field with the given key.
+         *
+         * @param key the key of the field
+         *
+         * @return the field
+         *
+         * @throws IllegalArgumentException if there is no field with the given key
+         */
+        public static Field forKey(final String key) {
+            for (Field field : values()) {
+                if (field.key.equals(key)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown JSON field '%s'", key));
+        }
+    }
+
+    /**
+     * The default {@link java.text.SimpleDateFormat date format}, which is ISO 8601 with milliseconds and the time
+     * zone offset.
+     */
+    public static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+    private static final Field[] DEFAULT_FIELDS = {
+            Field.TIMESTAMP, Field.SEQUENCE, Field.LEVEL, Field.LOGGER_NAME, Field.THREAD_NAME, Field.THREAD_ID,
+            Field.MESSAGE, Field.NDC, Field.MDC, Field.EXCEPTION,
+    };
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    /**
+     * The escaped form of each character below {@code 0x20}, and of {@code "} and {@code \}.
+     */
+    private static final String[] ESCAPES = new String['\\' + 1];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = "\\u00" + HEX[i >> 4] + HEX[i & 0xf];
+        }
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+    }
+
+    private volatile Field[] fields;
+    private volatile String dateFormat;
+    private volatile TimeZone timeZone;
+    private volatile boolean jsonLines;
+
+    /**
+     * Construct a new instance which renders the default fields as JSON Lines.
+     */
+    public JsonFormatter() {
+        this(null);
+    }
+
+    /**
+     * Construct a new instance which renders the given fields as JSON Lines.
+     *
+     * @param fields the comma separated keys of the fields to render, or {@code null} for the default fields
+     */
+    public JsonFormatter(final String fields) {
+        this.fields = parseFields(fields);
+        dateFormat = DEFAULT_DATE_FORMAT;
+        timeZone = TimeZone.getDefault();
+        jsonLines = true;
+        updateSteps();
+    }
+
+    /**
+     * Get the comma separated keys of the rendered fields.
+     *
+     * @return the keys of the rendered fields
+     */
+    public String getFields() {
+        final StringBuilder builder = new StringBuilder();
+        for (Field field : fields) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(field.key);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Set the fields to render, in the order they are rendered.
+     *
+     * @param fields the comma separated keys of the fields, for example {@code timestamp,level,message}, or
+     *               {@code null} for the default fields
+     *
+     * @throws IllegalArgumentException if a key is not the key of a {@link Field field}
+     */
+    public void setFields(final String fields) {
+        this.fields = parseFields(fields);
+        updateSteps();
+    }
+
+    /**
+     * Get the {@link java.text.SimpleDateFormat date format} of the timestamp.
+     *
+     * @return the date format
+     */
+    public String getDateFormat() {
+        return dateFormat;
+    }
+
+    /**
+     * Set the {@link java.text.SimpleDateFormat date format} of the timestamp.
+     *
+     * @param dateFormat the date format, or {@code null} for the {@link #DEFAULT_DATE_FORMAT default}
+     */
+    public void setDateFormat(final String dateFormat) {
+        this.dateFormat = dateFormat == null ? DEFAULT_DATE_FORMAT : dateFormat;
+        updateSteps();
+    }
+
+    /**
+     * Get the ID of the time zone of the timestamp.
+     *
+     * @return the time zone ID
+     */
+    public String getTimeZone() {
+        return timeZone.getID();
+    }
+
+    /**
+     * Set the ID of the time zone of the timestamp.
+     *
+     * @param timeZone the time zone ID, or {@code null} for the default time zone
+     */
+    public void setTimeZone(final String timeZone) {
+        this.timeZone = timeZone == null ? TimeZone.getDefault() : TimeZone.getTimeZone(timeZone);
+        updateSteps();
+    }
+
+    /**
+     * Indicates whether each record is followed by a new line.
+     *
+     * @return {@code true} if each record is followed by a new line, otherwise {@code false}
+     */
+    public boolean isJsonLines() {
+        return jsonLines;
+    }
+
+    /**
+     * Set to {@code true} to follow each record with a new line, so the output is in the JSON Lines format.  Set to
+     * {@code false} when each formatted record is framed by the handler, for example by a syslog handler.
+     *
+     * @param jsonLines {@code true} to follow each record with a new line, otherwise {@code false}
+     */
+    public void setJsonLines(final boolean jsonLines) {
+        this.jsonLines = jsonLines;
+        updateSteps();
+    }
+
+    private static Field[] parseFields(final String fields) {
+        if (fields == null) {
+            return DEFAULT_FIELDS;
+        }
+        final List<Field> result = new ArrayList<Field>();
+        for (String key : fields.split(",")) {
+            key = key.trim();
+            if (! key.isEmpty()) {
+                result.add(Field.forKey(key));
+            }
+        }
+        return result.toArray(new Field[result.size()]);
+    }
+
+    private synchronized void updateSteps() {
+        final Field[] fields = this.fields;
+        final List<FormatStep> steps = new ArrayList<FormatStep>(fields.length + 2);
+        steps.add(Formatters.textFormatStep("{"));
+        for (Field field : fields) {
+            steps.add(createStep(field));
+        }
+        steps.add(Formatters.textFormatStep(jsonLines ? "}\n" : "}"));
+        setSteps(steps.toArray(new FormatStep[steps.size()]));
+    }
+
+    private FormatStep createStep(final Field field) {
+        switch (field) {
+            case TIMESTAMP: {
+                final DateFormatCache cache = new DateFormatCache(dateFormat, timeZone);
+                // Dates only contain characters which need escaping if the pattern itself does
+                final boolean escape = needsEscape(dateFormat);
+                return new FieldStep(field, 30) {
+                    public void render(final StringBuilder builder, final ExtLogRecord record) {
+                        appendKey(builder).append('"');
+                        final int start = builder.length();
+                        cache.render(builder, record.getMillis());
+                        if (escape) {
+                            escapeFrom(builder, start);
+                        }
+                        builder.append('"');
+                    }
+                };
+            }
+            case SEQUENCE: return new FieldStep(field, 8) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendKey(builder).append(record.getSequenceNumber());
+                }
+            };
+            case LEVEL: return new FieldStep(field, 7) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendString(builder, record.getLevel().getName());
+                }
+            };
+            case LOGGER_NAME: return new FieldStep(field, 40) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendString(builder, record.getLoggerName());
+                }
+            };
+            case LOGGER_CLASS_NAME: return new FieldStep(field, 40) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendString(builder, record.getLoggerClassName());
+                }
+            };
+            case THREAD_NAME: return new FieldStep(field, 20) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendString(builder, record.getThreadName());
+                }
+            };
+            case THREAD_ID: return new FieldStep(field, 4) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendKey(builder).append(record.getThreadID());
+                }
+            };
+            case MESSAGE: return new FieldStep(field, 60) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendKey(builder).append('"');
+                    final int start = builder.length();
+                    record.appendFormattedMessage(builder);
+                    escapeFrom(builder, start);
+                    builder.append('"');
+                }
+            };
+            case SOURCE_CLASS_NAME: return new FieldStep(field, 40) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendString(builder, record.getSourceClassName());
+                }
+            };
+            case SOURCE_METHOD_NAME: return new FieldStep(field, 20) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendString(builder, record.getSourceMethodName());
+                }
+            };
+            case SOURCE_FILE_NAME: return new FieldStep(field, 20) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    appendString(builder, record.getSourceFileName());
+                }
+            };
+            case SOURCE_LINE_NUMBER: return new FieldStep(field, 4) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    final int line = record.getSourceLineNumber();
+                    if (line >= 0) {
+                        appendKey(builder).append(line);
+                    }
+                }
+            };
+            case NDC: return new FieldStep(field, 0) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    final String ndc = record.getNdc();
+                    if (ndc == null || ndc.isEmpty()) {
+                        return;
+                    }
+                    // The record holds the entries already joined, and an entry may itself contain a dot
+                    appendKey(builder).append('"');
+                    escape(builder, ndc, 0, ndc.length());
+                    builder.append('"');
+                }
+            };
+            case MDC: return new FieldStep(field, 0) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    final Map<String, String> mdc = record.getMdcCopy();
+                    if (mdc.isEmpty()) {
+                        return;
+                    }
+                    appendKey(builder).append('{');
+                    boolean first = true;
+                    for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                        if (! first) {
+                            builder.append(',');
+                        }
+                        first = false;
+                        appendValue(builder, entry.getKey());
+                        builder.append(':');
+                        appendValue(builder, entry.getValue());
+                    }
+                    builder.append('}');
+                }
+            };
+            case EXCEPTION: return new FieldStep(field, 0) {
+                public void render(final StringBuilder builder, final ExtLogRecord record) {
+                    final Throwable thrown = record.getThrown();
+                    if (thrown != null) {
+                        appendKey(builder);
+                        final Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+                        seen.add(thrown);
+                        renderThrowable(builder, thrown, null, seen);
+                    }
+                }
+            };
+            default: throw new IllegalArgumentException(String.format("Unknown JSON field '%s'", field));
+        }
+    }
+
+    /**
+     * Renders an exception, leaving out the frames it has in common with the exception which encloses it.
+     */
+    private static void renderThrowable(final StringBuilder builder, final Throwable t, final StackTraceElement[] enclosingTrace, final Set<Throwable> seen) {
+        builder.append("{\"type\":");
+        appendValue(builder, t.getClass().getName());
+        builder.append(",\"message\":");
+        appendValue(builder, t.getMessage());
+        final StackTraceElement[] trace = t.getStackTrace();
+        int m = trace.length - 1;
+        if (enclosingTrace != null) {
+            int n = enclosingTrace.length - 1;
+            while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+                m--; n--;
+            }
+        }
+        builder.append(",\"frames\":[");
+        for (int i = 0; i <= m; i++) {
+            final StackTraceElement element = trace[i];
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"class\":");
+            appendValue(builder, element.getClassName());
+            builder.append(",\"method\":");
+            appendValue(builder, element.getMethodName());
+            if (element.getFileName() != null) {
+                builder.append(",\"file\":");
+                appendValue(builder, element.getFileName());
+            }
+            if (element.getLineNumber() >= 0) {
+                builder.append(",\"line\":").append(element.getLineNumber());
+            }
+            builder.append('}');
+        }
+        builder.append(']');
+        final int framesInCommon = trace.length - 1 - m;
+        if (framesInCommon > 0) {
+            builder.append(",\"framesInCommon\":").append(framesInCommon);
+        }
+        boolean first = true;
+        for (Throwable suppressed : t.getSuppressed()) {
+            if (seen.add(suppressed)) {
+                builder.append(first ? ",\"suppressed\":[" : ",");
+                first = false;
+                renderThrowable(builder, suppressed, trace, seen);
+            }
+        }
+        if (! first) {
+            builder.append(']');
+        }
+        final Throwable cause = t.getCause();
+        if (cause != null && seen.add(cause)) {
+            builder.append(",\"cause\":");
+            renderThrowable(builder, cause, trace, seen);
+        }
+        builder.append('}');
+    }
+
+    /**
+     * Appends a string value in quotes, or {@code null}.
+     */
+    private static void appendValue(final StringBuilder builder, final String value) {
+        if (value == null) {
+            builder.append("null");
+        } else {
+            builder.append('"');
+            escape(builder, value, 0, value.length());
+            builder.append('"');
+        }
+    }
+
+    /**
+     * Appends the escaped characters of the given range.  Each run of characters which need no escaping is appended
+     * at once, so a value without such characters is copied in bulk.
+     */
+    static void escape(final StringBuilder builder, final String value, final int start, final int end) {
+        int run = start;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c <= '\\' && ESCAPES[c] != null) {
+                appendRange(builder, value, run, i).append(ESCAPES[c]);
+                run = i + 1;
+            }
+        }
+        appendRange(builder, value, run, end);
+    }
+
+    private static StringBuilder appendRange(final StringBuilder builder, final String value, final int start, final int end) {
+        // Appending a whole string is a single array copy, while a range is appended a character at a time
+        return start == 0 && end == value.length() ? builder.append(value) : builder.append(value, start, end);
+    }
+
+    private static boolean needsEscape(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c <= '\\' && ESCAPES[c] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Escapes the characters appended to the builder from the given index.  Nothing is copied unless a character
+     * needs escaping.
+     */
+    static void escapeFrom(final StringBuilder builder, final int start) {
+        final int end = builder.length();
+        for (int i = start; i < end; i++) {
+            final char c = builder.charAt(i);
+            if (c <= '\\' && ESCAPES[c] != null) {
+                final String rest = builder.substring(i);
+                builder.setLength(i);
+                escape(builder, rest, 0, rest.length());
+                return;
+            }
+        }
+    }
+
+    /**
+     * A step which renders one field, preceded by a comma unless it is the first field of the object.
+     */
+    private abstract static class FieldStep implements FormatStep {
+        private final char[] key;
+        private final int estimate;
+
+        FieldStep(final Field field, final int valueEstimate) {
+            final StringBuilder builder = new StringBuilder();
+            appendValue(builder, field.key);
+            key = builder.append(':').toString().toCharArray();
+            estimate = key.length + 1 + valueEstimate;
+        }
+
+        /**
+         * Appends the key, and the comma which separates it from a previous field.
+         */
+        final StringBuilder appendKey(final StringBuilder builder) {
+            // Values never end with an opening brace, so this is only true for the first field
+            if (builder.charAt(builder.length() - 1) != '{') {
+                builder.append(',');
+            }
+            return builder.append(key);
+        }
+
+        /**
+         * Appends the key and a string value, unless the value is {@code null}.
+         */
+        final void appendString(final StringBuilder builder, final String value) {
+            if (value != null) {
+                appendKey(builder).append('"');
+                escape(builder, value, 0, value.length());
+                builder.append('"');
+            }
+        }
+
+        public int estimateLength() {
+            return estimate;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.jboss.logmanager.formatters;
 
 import org.jboss.logmanager.ExtLogRecord;
 import org.jboss.logmanager.ExtFormatter;
+import org.jboss.logmanager.Overrides;
 import static java.lang.Math.max;
 
 /**
@@ -29,6 +30,7 @@ import static java.lang.Math.max;
 public class MultistepFormatter extends ExtFormatter {
     private volatile FormatStep[] steps;
     private volatile int builderLength;
+    private final boolean formatOverridden = overridesFormat(getClass());
 
     private static final FormatStep[] EMPTY_STEPS = new FormatStep[0];
 
@@ -79,9 +81,29 @@ public class MultistepFormatter extends ExtFormatter {
     /** {@inheritDoc} */
     public String format(final ExtLogRecord record) {
         final StringBuilder builder = new StringBuilder(builderLength);
+        render(builder, record);
+        return builder.toString();
+    }
+
+    /**
+     * {@inheritDoc}  Each step renders directly into the given builder, unless a subclass overrides
+     * {@link #format(ExtLogRecord)}, in which case the result of that method is appended.
+     */
+    public void formatTo(final StringBuilder builder, final ExtLogRecord record) {
+        if (formatOverridden) {
+            builder.append(format(record));
+        } else {
+            render(builder, record);
+        }
+    }
+
+    private void render(final StringBuilder builder, final ExtLogRecord record) {
         for (FormatStep step : steps) {
             step.render(builder, record);
         }
-        return builder.toString();
+    }
+
+    private static boolean overridesFormat(final Class<?> type) {
+        return Overrides.isOverridden(type, MultistepFormatter.class, "format", ExtLogRecord.class);
     }
 }
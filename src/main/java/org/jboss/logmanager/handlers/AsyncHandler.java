@@ -19,6 +19,9 @@
 
 package org.jboss.logmanager.handlers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -33,13 +36,21 @@ import java.util.logging.ErrorManager;
 /**
  * An asynchronous log handler which is used to write to a handler or group of handlers which are "slow" or introduce
  * some degree of latency.
+ * <p/>
+ * By default a single handler thread publishes every record.  A handler constructed with more than one worker runs a
+ * thread and queue per worker instead, and routes each record to a worker by its {@linkplain #setShardKey(ShardKey)
+ * shard key}, so that records which share a key keep their relative order while records with different keys are
+ * formatted and written in parallel.  The child handlers must then be safe for concurrent use.
  */
 public class AsyncHandler extends ExtHandler {
 
-    private final BlockingQueue<ExtLogRecord> recordQueue;
+    private final Worker[] workers;
     private final int queueLength;
-    private final Thread thread;
+    private final WaitStrategy waitStrategy;
     private volatile OverflowAction overflowAction = OverflowAction.BLOCK;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile ShardKey shardKey = ShardKey.THREAD_ID;
+    private volatile String shardMdcKey;
 
     @SuppressWarnings("unused")
     private volatile int state;
@@ -47,6 +58,7 @@ public class AsyncHandler extends ExtHandler {
     private static final AtomicIntegerFieldUpdater<AsyncHandler> stateUpdater = AtomicIntegerFieldUpdater.newUpdater(AsyncHandler.class, "state");
 
     private static final int DEFAULT_QUEUE_LENGTH = 512;
+    private static final int DEFAULT_BATCH_SIZE = 64;
 
     /**
      * Construct a new instance.
@@ -55,13 +67,83 @@ public class AsyncHandler extends ExtHandler {
      * @param threadFactory the thread factory to use to construct the handler thread
      */
     public AsyncHandler(final int queueLength, final ThreadFactory threadFactory) {
-        recordQueue = new ArrayBlockingQueue<ExtLogRecord>(queueLength);
-        thread = threadFactory.newThread(new AsyncTask());
-        if (thread == null) {
-            throw new IllegalArgumentException("Thread factory did not create a thread");
+        this(queueLength, null, threadFactory);
+    }
+
+    /**
+     * Construct a new instance.  If a wait strategy is given, records are passed to the handler thread through a
+     * pre-allocated lock-free ring buffer rather than a lock-based queue; the given strategy determines how the
+     * handler thread waits for records and how producers wait for space when the overflow action is
+     * {@link OverflowAction#BLOCK BLOCK}.
+     *
+     * @param queueLength the queue length
+     * @param waitStrategy the ring buffer wait strategy, or {@code null} to use a lock-based queue
+     * @param threadFactory the thread factory to use to construct the handler thread
+     */
+    public AsyncHandler(final int queueLength, final WaitStrategy waitStrategy, final ThreadFactory threadFactory) {
+        this(queueLength, 1, waitStrategy, threadFactory);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param queueLength the queue length of each worker
+     * @param workerCount the number of worker threads
+     * @param waitStrategy the ring buffer wait strategy, or {@code null} to use a lock-based queue
+     * @param threadFactory the thread factory to use to construct the handler threads
+     */
+    public AsyncHandler(final int queueLength, final int workerCount, final WaitStrategy waitStrategy, final ThreadFactory threadFactory) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1");
+        }
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(waitStrategy == null ? new ArrayBlockingQueue<ExtLogRecord>(queueLength) : new RingBufferQueue<ExtLogRecord>(queueLength, waitStrategy), threadFactory);
         }
-        thread.setDaemon(true);
         this.queueLength = queueLength;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param queueLength the queue length of each worker
+     * @param workerCount the number of worker threads
+     * @param waitStrategy the ring buffer wait strategy, or {@code null} to use a lock-based queue
+     */
+    public AsyncHandler(final int queueLength, final int workerCount, final WaitStrategy waitStrategy) {
+        this(queueLength, workerCount, waitStrategy, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Construct a new instance which passes records to each worker through a lock-based queue.
+     *
+     * @param queueLength the queue length of each worker
+     * @param workerCount the number of worker threads
+     * @param threadFactory the thread factory to use to construct the handler threads
+     */
+    public AsyncHandler(final int queueLength, final int workerCount, final ThreadFactory threadFactory) {
+        this(queueLength, workerCount, null, threadFactory);
+    }
+
+    /**
+     * Construct a new instance which passes records to each worker through a lock-based queue.
+     *
+     * @param queueLength the queue length of each worker
+     * @param workerCount the number of worker threads
+     */
+    public AsyncHandler(final int queueLength, final int workerCount) {
+        this(queueLength, workerCount, null, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param queueLength the queue length
+     * @param waitStrategy the ring buffer wait strategy, or {@code null} to use a lock-based queue
+     */
+    public AsyncHandler(final int queueLength, final WaitStrategy waitStrategy) {
+        this(queueLength, waitStrategy, Executors.defaultThreadFactory());
     }
 
     /**
@@ -90,7 +172,7 @@ public class AsyncHandler extends ExtHandler {
     }
 
     /**
-     * The full size of the queue.
+     * The full size of the queue.  If there is more than one worker, this is the size of each worker's queue.
      *
      * @return the full size of the queue.
      */
@@ -98,6 +180,68 @@ public class AsyncHandler extends ExtHandler {
         return queueLength;
     }
 
+    /**
+     * Get the number of worker threads.
+     *
+     * @return the number of worker threads
+     */
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * Get the key used to route records to workers.
+     *
+     * @return the shard key
+     */
+    public ShardKey getShardKey() {
+        return shardKey;
+    }
+
+    /**
+     * Set the key used to route records to workers.  Records with the same key are always published by the same
+     * worker, in the order in which they were received.  Changing the key while records are in flight may reorder
+     * those records.  The key has no effect if there is only one worker.
+     *
+     * @param shardKey the shard key
+     */
+    public void setShardKey(final ShardKey shardKey) {
+        if (shardKey == null) {
+            throw new NullPointerException("shardKey is null");
+        }
+        checkAccess(this);
+        this.shardKey = shardKey;
+    }
+
+    /**
+     * Get the MDC key used to route records when the shard key is {@link ShardKey#MDC MDC}.
+     *
+     * @return the MDC key, or {@code null} if none is set
+     */
+    public String getShardMdcKey() {
+        return shardMdcKey;
+    }
+
+    /**
+     * Set the MDC key used to route records when the shard key is {@link ShardKey#MDC MDC}.  Records which have no
+     * value for the key are all published by the same worker.
+     *
+     * @param shardMdcKey the MDC key
+     */
+    public void setShardMdcKey(final String shardMdcKey) {
+        checkAccess(this);
+        this.shardMdcKey = shardMdcKey;
+    }
+
+    /**
+     * Get the ring buffer wait strategy.
+     *
+     * @return the wait strategy, or {@code null} if a lock-based queue is used
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
     /**
      * Get the overflow action.
      *
@@ -120,12 +264,38 @@ public class AsyncHandler extends ExtHandler {
         this.overflowAction = overflowAction;
     }
 
+    /**
+     * Get the maximum number of records the handler thread passes to its child handlers at once.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the maximum number of records the handler thread passes to its child handlers at once.  Child handlers which
+     * are {@link ExtHandler}s receive each batch through {@link ExtHandler#publishBatch(ExtLogRecord[], int)}.  A
+     * batch size of 1 publishes every record individually.
+     *
+     * @param batchSize the batch size
+     */
+    public void setBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        checkAccess(this);
+        this.batchSize = batchSize;
+    }
+
     /** {@inheritDoc} */
     protected void doPublish(final ExtLogRecord record) {
         switch (state) {
             case 0: {
                 if (stateUpdater.compareAndSet(this, 0, 1)) {
-                    thread.start();
+                    for (Worker worker : workers) {
+                        worker.thread.start();
+                    }
                 }
             }
             case 1: {
@@ -135,9 +305,10 @@ public class AsyncHandler extends ExtHandler {
                 return;
             }
         }
-        final BlockingQueue<ExtLogRecord> recordQueue = this.recordQueue;
         // prepare record to move to another thread
         record.copyAll();
+        final Worker[] workers = this.workers;
+        final BlockingQueue<ExtLogRecord> recordQueue = workers.length == 1 ? workers[0].recordQueue : workers[shardOf(record, workers.length)].recordQueue;
         if (overflowAction == OverflowAction.DISCARD) {
             recordQueue.offer(record);
         } else {
@@ -154,15 +325,55 @@ public class AsyncHandler extends ExtHandler {
     public void close() throws SecurityException {
         checkAccess(this);
         if (stateUpdater.getAndSet(this, 2) != 2) {
-            thread.interrupt();
+            for (Worker worker : workers) {
+                worker.thread.interrupt();
+            }
             super.close();
         }
     }
 
-    private final class AsyncTask implements Runnable {
+    private int shardOf(final ExtLogRecord record, final int count) {
+        final int hash;
+        switch (shardKey) {
+            case LOGGER_NAME: {
+                final String loggerName = record.getLoggerName();
+                hash = loggerName == null ? 0 : loggerName.hashCode();
+                break;
+            }
+            case MDC: {
+                final String key = shardMdcKey;
+                final String value = key == null ? null : record.getMdc(key);
+                hash = value == null ? 0 : value.hashCode();
+                break;
+            }
+            default: {
+                hash = record.getThreadID();
+                break;
+            }
+        }
+        // spread the bits so that sequential ids and similar strings don't all land on a few workers
+        final int h = hash ^ (hash >>> 16) ^ (hash >>> 7);
+        return (h & Integer.MAX_VALUE) % count;
+    }
+
+    private final class Worker implements Runnable {
+        private final BlockingQueue<ExtLogRecord> recordQueue;
+        private final Thread thread;
+
+        Worker(final BlockingQueue<ExtLogRecord> recordQueue, final ThreadFactory threadFactory) {
+            this.recordQueue = recordQueue;
+            thread = threadFactory.newThread(this);
+            if (thread == null) {
+                throw new IllegalArgumentException("Thread factory did not create a thread");
+            }
+            thread.setDaemon(true);
+        }
+
         public void run() {
-            final BlockingQueue<ExtLogRecord> recordQueue = AsyncHandler.this.recordQueue;
+            final BlockingQueue<ExtLogRecord> recordQueue = this.recordQueue;
             final Handler[] handlers = AsyncHandler.this.handlers;
+            final List<ExtLogRecord> drained = new ArrayList<ExtLogRecord>();
+            ExtLogRecord[] batch = new ExtLogRecord[batchSize];
 
             boolean intr = false;
             try {
@@ -191,9 +402,25 @@ public class AsyncHandler extends ExtHandler {
                         intr = true;
                         continue;
                     }
+                    // grab whatever else is waiting, up to the batch size
+                    drained.add(rec);
+                    final int batchSize = AsyncHandler.this.batchSize;
+                    if (batchSize > 1) {
+                        recordQueue.drainTo(drained, batchSize - 1);
+                    }
+                    final int count = drained.size();
+                    if (batch.length < count) {
+                        batch = new ExtLogRecord[count];
+                    }
+                    drained.toArray(batch);
+                    drained.clear();
                     for (Handler handler : handlers) try {
-                        if (handler != null) {
-                            handler.publish(rec);
+                        if (handler instanceof ExtHandler) {
+                            ((ExtHandler) handler).publishBatch(batch, count);
+                        } else if (handler != null) {
+                            for (int i = 0; i < count; i++) {
+                                handler.publish(batch[i]);
+                            }
                         }
                     } catch (Exception e) {
                         final ErrorManager errorManager = getErrorManager();
@@ -206,6 +433,8 @@ public class AsyncHandler extends ExtHandler {
                     } catch (Throwable t) {
                         // ignore :-/
                     }
+                    // don't hold on to published records while waiting for more
+                    Arrays.fill(batch, 0, count, null);
                 }
             } finally {
                 if (intr) {
@@ -220,4 +449,43 @@ public class AsyncHandler extends ExtHandler {
         BLOCK,
         DISCARD,
     }
+
+    /**
+     * The record properties by which records may be routed to workers.
+     */
+    public enum ShardKey {
+
+        /**
+         * Route by the name of the logger.
+         */
+        LOGGER_NAME,
+        /**
+         * Route by the ID of the thread which logged the record.
+         */
+        THREAD_ID,
+        /**
+         * Route by the value of the MDC entry named by the {@linkplain AsyncHandler#setShardMdcKey(String) shard MDC key}.
+         */
+        MDC,
+    }
+
+    /**
+     * The ways in which a thread may wait on the ring buffer.
+     */
+    public enum WaitStrategy {
+
+        /**
+         * Spin continuously, yielding only very occasionally.  Gives the lowest latency, but the handler thread occupies
+         * a whole core even when idle, so this should only be used when a core can be dedicated to it.
+         */
+        BUSY_SPIN,
+        /**
+         * Yield the processor between attempts.
+         */
+        YIELD,
+        /**
+         * Spin briefly, then park until signalled.  Gives the lowest CPU usage when idle.
+         */
+        PARK,
+    }
 }
@@ -0,0 +1,278 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.ErrorManager;
+
+import org.jboss.logmanager.ExtHandler;
+import org.jboss.logmanager.ExtLogRecord;
+
+/**
+ * A file handler which writes records in a compact binary form instead of formatting them.  The level, time, logger
+ * and thread names, message template and raw parameters, MDC, NDC and exceptions of each record are stored, and
+ * names which repeat from record to record are only stored once per file.  Since no formatter is run, logging costs
+ * little more than copying the fields of the record; the files are rendered later, with any formatter, by {@link
+ * BinaryRecordReader}.  Any formatter set on this handler is ignored.
+ * <p/>
+ * Parameters of types other than strings, numbers, booleans, characters and dates are stored as their string value at
+ * the time they are logged.
+ */
+public class BinaryFileHandler extends ExtHandler {
+
+    private final Object outputLock = new Object();
+    private final BinaryRecordEncoder encoder = new BinaryRecordEncoder();
+    private OutputStream outputStream;
+    private File file;
+    private boolean append;
+    private boolean needHeader;
+    private volatile boolean includeCaller;
+
+    /**
+     * Construct a new instance with no output file.
+     */
+    public BinaryFileHandler() {
+    }
+
+    /**
+     * Construct a new instance with the given output file.
+     *
+     * @param file the file
+     * @throws FileNotFoundException if the file could not be found on open
+     */
+    public BinaryFileHandler(final File file) throws FileNotFoundException {
+        setFile(file);
+    }
+
+    /**
+     * Construct a new instance with the given output file and append setting.
+     *
+     * @param file the file
+     * @param append {@code true} to append, {@code false} to overwrite
+     * @throws FileNotFoundException if the file could not be found on open
+     */
+    public BinaryFileHandler(final File file, final boolean append) throws FileNotFoundException {
+        this.append = append;
+        setFile(file);
+    }
+
+    /**
+     * Construct a new instance with the given output file.
+     *
+     * @param fileName the file name
+     * @throws FileNotFoundException if the file could not be found on open
+     */
+    public BinaryFileHandler(final String fileName) throws FileNotFoundException {
+        setFileName(fileName);
+    }
+
+    /**
+     * Construct a new instance with the given output file and append setting.
+     *
+     * @param fileName the file name
+     * @param append {@code true} to append, {@code false} to overwrite
+     * @throws FileNotFoundException if the file could not be found on open
+     */
+    public BinaryFileHandler(final String fileName, final boolean append) throws FileNotFoundException {
+        this.append = append;
+        setFileName(fileName);
+    }
+
+    /**
+     * Determine whether the source location of each record is stored.
+     *
+     * @return {@code true} if the source location is stored
+     */
+    public boolean isIncludeCaller() {
+        return includeCaller;
+    }
+
+    /**
+     * Specify whether the source class, method, file and line of each record should be stored.  Finding them requires
+     * walking the stack of the logging thread, so they are not stored by default, and records read back report an
+     * unknown caller.
+     *
+     * @param includeCaller {@code true} to store the source location
+     */
+    public void setIncludeCaller(final boolean includeCaller) {
+        checkAccess(this);
+        this.includeCaller = includeCaller;
+    }
+
+    /** {@inheritDoc} */
+    protected void doPublish(final ExtLogRecord record) {
+        final boolean includeCaller = this.includeCaller;
+        if (includeCaller) {
+            // find the caller before taking the lock
+            record.getSourceClassName();
+        }
+        try {
+            synchronized (outputLock) {
+                final OutputStream outputStream = this.outputStream;
+                if (outputStream == null) {
+                    return;
+                }
+                try {
+                    if (needHeader) {
+                        encoder.writeHeader(outputStream);
+                        needHeader = false;
+                    }
+                    encoder.writeRecord(record, includeCaller, outputStream);
+                } catch (IOException e) {
+                    // names defined by the failed record may not have been written; start over with a new segment
+                    needHeader = true;
+                    throw e;
+                }
+                super.doPublish(record);
+            }
+        } catch (Exception ex) {
+            reportError("Error writing log message", ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Specify whether to append to the target file.
+     *
+     * @param append {@code true} to append, {@code false} to overwrite
+     */
+    public void setAppend(final boolean append) {
+        synchronized (outputLock) {
+            this.append = append;
+        }
+    }
+
+    /**
+     * Set the output stream to write to.  The stream will then belong to this handler; when the handler is closed or a
+     * new stream is set, this stream will be closed.
+     *
+     * @param outputStream the new output stream or {@code null} for none
+     */
+    public void setOutputStream(final OutputStream outputStream) {
+        checkAccess(this);
+        OutputStream oldStream = null;
+        synchronized (outputLock) {
+            oldStream = this.outputStream;
+            if (oldStream != null) {
+                safeFlush(oldStream);
+            }
+            this.outputStream = outputStream;
+            // each stream starts a new segment, so that appended files remain readable
+            needHeader = true;
+        }
+        safeClose(oldStream);
+    }
+
+    /**
+     * Set the output file.
+     *
+     * @param file the file
+     * @throws FileNotFoundException if an error occurs opening the file
+     */
+    public void setFile(final File file) throws FileNotFoundException {
+        synchronized (outputLock) {
+            if (file == null) {
+                this.file = null;
+                setOutputStream(null);
+                return;
+            }
+            final File parentFile = file.getParentFile();
+            if (parentFile != null) {
+                parentFile.mkdirs();
+            }
+            final FileOutputStream fos = new FileOutputStream(file, append);
+            boolean ok = false;
+            try {
+                setOutputStream(new BufferedOutputStream(fos));
+                this.file = file;
+                ok = true;
+            } finally {
+                if (! ok) {
+                    safeClose(fos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the current output file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        synchronized (outputLock) {
+            return file;
+        }
+    }
+
+    /**
+     * Set the output file by name.
+     *
+     * @param fileName the file name
+     * @throws FileNotFoundException if an error occurs opening the file
+     */
+    public void setFileName(final String fileName) throws FileNotFoundException {
+        setFile(fileName == null ? null : new File(fileName));
+    }
+
+    /**
+     * Flush this handler.
+     */
+    public void flush() {
+        synchronized (outputLock) {
+            final OutputStream outputStream = this.outputStream;
+            if (outputStream != null) {
+                safeFlush(outputStream);
+            }
+        }
+        super.flush();
+    }
+
+    /**
+     * Close this handler and its output file.
+     *
+     * @throws SecurityException if you do not have sufficient permission to invoke this operation
+     */
+    public void close() throws SecurityException {
+        checkAccess(this);
+        setOutputStream(null);
+        super.close();
+    }
+
+    private void safeClose(final OutputStream outputStream) {
+        if (outputStream != null) try {
+            outputStream.close();
+        } catch (Exception e) {
+            reportError("Error closing resource", e, ErrorManager.CLOSE_FAILURE);
+        } catch (Throwable ignored) {}
+    }
+
+    private void safeFlush(final OutputStream outputStream) {
+        try {
+            outputStream.flush();
+        } catch (Exception e) {
+            reportError("Error on flush", e, ErrorManager.FLUSH_FAILURE);
+        } catch (Throwable ignored) {}
+    }
+}
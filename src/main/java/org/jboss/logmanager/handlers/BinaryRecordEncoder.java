@@ -0,0 +1,379 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.logmanager.ExtLogRecord;
+
+/**
+ * Encodes log records into the binary log format read by {@link BinaryRecordReader}.
+ * <p/>
+ * A binary log is a sequence of segments.  Each segment starts with the {@linkplain #MAGIC magic number} and the
+ * format version, and is followed by any number of records, each of which is an int length followed by that many
+ * bytes.  Names which repeat from record to record, such as logger and thread names, levels, message templates and
+ * stack frame elements, are written in full the first time they appear in a segment and by number afterwards.  A new
+ * segment, with an empty dictionary, is started each time a file is opened, so files which are appended to remain
+ * readable, and after a record fails to be written.  The reader skips a record which was cut short by a failed write
+ * by searching it for the header of the segment which follows.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class BinaryRecordEncoder {
+
+    /**
+     * The first four bytes of every segment.  The value is negative so that it can never be mistaken for a record
+     * length.
+     */
+    static final int MAGIC = 0xB1A710C5;
+    static final int VERSION = 1;
+
+    /**
+     * The largest number of names kept in the dictionary of a segment.  Once it is full, new names are written in full
+     * every time, so a stream of names which never repeat cannot use unbounded memory.
+     */
+    static final int MAX_DICTIONARY_SIZE = 4096;
+
+    // name references
+    static final int NAME_NULL = 0;
+    static final int NAME_INLINE = 1;
+    static final int NAME_DEFINE = 2;
+    static final int NAME_FIRST_ID = 3;
+
+    // parameter types
+    static final int PARAM_NULL = 0;
+    static final int PARAM_STRING = 1;
+    static final int PARAM_INTEGER = 2;
+    static final int PARAM_LONG = 3;
+    static final int PARAM_DOUBLE = 4;
+    static final int PARAM_FLOAT = 5;
+    static final int PARAM_SHORT = 6;
+    static final int PARAM_BYTE = 7;
+    static final int PARAM_BOOLEAN = 8;
+    static final int PARAM_CHARACTER = 9;
+    static final int PARAM_BIG_DECIMAL = 10;
+    static final int PARAM_BIG_INTEGER = 11;
+    static final int PARAM_DATE = 12;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAX_CAUSE_DEPTH = 64;
+
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private byte[] buf = new byte[512];
+    private int pos;
+
+    /**
+     * Start a new segment, forgetting every name written so far.
+     *
+     * @param out the stream to write the segment header to
+     * @throws IOException if the header could not be written
+     */
+    void writeHeader(final OutputStream out) throws IOException {
+        dictionary.clear();
+        pos = 0;
+        writeInt(MAGIC);
+        writeByte(VERSION);
+        out.write(buf, 0, pos);
+    }
+
+    /**
+     * Encode a record and write it to the stream.  If the record cannot be encoded, for example because a parameter
+     * fails to convert to a string, the names it added to the dictionary are forgotten again.  If it cannot be written,
+     * the caller must start a new segment.
+     *
+     * @param record the record
+     * @param includeCaller {@code true} to include the source location of the record
+     * @param out the stream to write to
+     * @throws IOException if the record could not be written
+     */
+    void writeRecord(final ExtLogRecord record, final boolean includeCaller, final OutputStream out) throws IOException {
+        final int dictionarySize = dictionary.size();
+        boolean ok = false;
+        try {
+            encodeRecord(record, includeCaller);
+            ok = true;
+        } finally {
+            if (! ok) {
+                forgetNames(dictionarySize);
+            }
+        }
+        out.write(buf, 0, pos);
+    }
+
+    private void encodeRecord(final ExtLogRecord record, final boolean includeCaller) {
+        // leave room for the length
+        pos = 4;
+        final java.util.logging.Level level = record.getLevel();
+        writeName(level.getName());
+        writeInt(level.intValue());
+        writeLong(record.getMillis());
+        writeLong(record.getSequenceNumber());
+        writeInt(record.getThreadID());
+        writeName(record.getThreadName());
+        writeName(record.getLoggerName());
+        writeName(record.getLoggerClassName());
+        writeByte(record.getFormatStyle().ordinal());
+        final Object[] parameters = record.getParameters();
+        final boolean hasParameters = parameters != null && parameters.length > 0;
+        // messages without parameters are often built at run time, and would only fill the dictionary
+        if (hasParameters) {
+            writeName(record.getMessage());
+        } else {
+            writeInlineName(record.getMessage());
+        }
+        writeName(record.getResourceBundleName());
+        if (includeCaller) {
+            writeByte(1);
+            writeName(record.getSourceClassName());
+            writeName(record.getSourceMethodName());
+            writeName(record.getSourceFileName());
+            writeInt(record.getSourceLineNumber());
+        } else {
+            writeByte(0);
+        }
+        if (parameters == null) {
+            writeVarInt(0);
+        } else {
+            writeVarInt(parameters.length + 1);
+            for (Object parameter : parameters) {
+                writeParameter(parameter);
+            }
+        }
+        final Map<String, String> mdc = record.getMdcCopy();
+        writeVarInt(mdc.size());
+        for (Map.Entry<String, String> entry : mdc.entrySet()) {
+            writeName(entry.getKey());
+            writeString(entry.getValue());
+        }
+        writeString(record.getNdc());
+        final Throwable thrown = record.getThrown();
+        if (thrown == null) {
+            writeByte(0);
+        } else {
+            writeThrowable(thrown, Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>()), 0);
+        }
+        final int length = pos - 4;
+        buf[0] = (byte) (length >>> 24);
+        buf[1] = (byte) (length >>> 16);
+        buf[2] = (byte) (length >>> 8);
+        buf[3] = (byte) length;
+    }
+
+    private void forgetNames(final int size) {
+        if (dictionary.size() > size) {
+            final Iterator<Integer> iterator = dictionary.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().intValue() >= size) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void writeParameter(final Object parameter) {
+        if (parameter == null) {
+            writeByte(PARAM_NULL);
+        } else if (parameter instanceof String) {
+            writeByte(PARAM_STRING);
+            writeString((String) parameter);
+        } else if (parameter instanceof Integer) {
+            writeByte(PARAM_INTEGER);
+            writeInt(((Integer) parameter).intValue());
+        } else if (parameter instanceof Long) {
+            writeByte(PARAM_LONG);
+            writeLong(((Long) parameter).longValue());
+        } else if (parameter instanceof Double) {
+            writeByte(PARAM_DOUBLE);
+            writeLong(Double.doubleToRawLongBits(((Double) parameter).doubleValue()));
+        } else if (parameter instanceof Float) {
+            writeByte(PARAM_FLOAT);
+            writeInt(Float.floatToRawIntBits(((Float) parameter).floatValue()));
+        } else if (parameter instanceof Short) {
+            writeByte(PARAM_SHORT);
+            writeInt(((Short) parameter).shortValue());
+        } else if (parameter instanceof Byte) {
+            writeByte(PARAM_BYTE);
+            writeByte(((Byte) parameter).byteValue());
+        } else if (parameter instanceof Boolean) {
+            writeByte(PARAM_BOOLEAN);
+            writeByte(((Boolean) parameter).booleanValue() ? 1 : 0);
+        } else if (parameter instanceof Character) {
+            writeByte(PARAM_CHARACTER);
+            writeInt(((Character) parameter).charValue());
+        } else if (parameter instanceof BigDecimal) {
+            writeByte(PARAM_BIG_DECIMAL);
+            writeString(parameter.toString());
+        } else if (parameter instanceof BigInteger) {
+            writeByte(PARAM_BIG_INTEGER);
+            writeString(parameter.toString());
+        } else if (parameter instanceof Date) {
+            writeByte(PARAM_DATE);
+            writeLong(((Date) parameter).getTime());
+        } else {
+            // the object may change or be unavailable later, so keep what it looks like now
+            writeByte(PARAM_STRING);
+            writeString(String.valueOf(parameter));
+        }
+    }
+
+    private void writeThrowable(final Throwable thrown, final Set<Throwable> seen, final int depth) {
+        if (! seen.add(thrown) || depth > MAX_CAUSE_DEPTH) {
+            writeByte(0);
+            return;
+        }
+        writeByte(1);
+        writeName(thrown.getClass().getName());
+        writeString(thrown.getMessage());
+        final StackTraceElement[] stackTrace = thrown.getStackTrace();
+        writeVarInt(stackTrace.length);
+        for (StackTraceElement element : stackTrace) {
+            writeName(element.getClassName());
+            writeName(element.getMethodName());
+            writeName(element.getFileName());
+            writeInt(element.getLineNumber());
+        }
+        final Throwable[] suppressed = thrown.getSuppressed();
+        writeVarInt(suppressed.length);
+        for (Throwable t : suppressed) {
+            writeThrowable(t, seen, depth + 1);
+        }
+        final Throwable cause = thrown.getCause();
+        if (cause == null) {
+            writeByte(0);
+        } else {
+            writeThrowable(cause, seen, depth + 1);
+        }
+    }
+
+    private void writeName(final String name) {
+        if (name == null) {
+            writeVarInt(NAME_NULL);
+            return;
+        }
+        final Integer id = dictionary.get(name);
+        if (id != null) {
+            writeVarInt(NAME_FIRST_ID + id.intValue());
+        } else if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+            dictionary.put(name, Integer.valueOf(dictionary.size()));
+            writeVarInt(NAME_DEFINE);
+            writeStringBytes(name);
+        } else {
+            writeVarInt(NAME_INLINE);
+            writeStringBytes(name);
+        }
+    }
+
+    private void writeInlineName(final String name) {
+        if (name == null) {
+            writeVarInt(NAME_NULL);
+            return;
+        }
+        final Integer id = dictionary.get(name);
+        if (id != null) {
+            writeVarInt(NAME_FIRST_ID + id.intValue());
+        } else {
+            writeVarInt(NAME_INLINE);
+            writeStringBytes(name);
+        }
+    }
+
+    private void writeString(final String s) {
+        if (s == null) {
+            writeVarInt(0);
+        } else {
+            writeStringBytes(s, 1);
+        }
+    }
+
+    private void writeStringBytes(final String s) {
+        writeStringBytes(s, 0);
+    }
+
+    private void writeStringBytes(final String s, final int lengthBias) {
+        final int length = s.length();
+        // US-ASCII strings, by far the most common, are copied without creating an intermediate array
+        ensureCapacity(5 + length);
+        int p = pos + 5;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c >= 0x80) {
+                final byte[] bytes = s.getBytes(UTF_8);
+                writeVarInt(bytes.length + lengthBias);
+                ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, buf, pos, bytes.length);
+                pos += bytes.length;
+                return;
+            }
+            buf[p++] = (byte) c;
+        }
+        final int start = pos;
+        writeVarInt(length + lengthBias);
+        final int lengthSize = pos - start;
+        System.arraycopy(buf, start + 5, buf, pos, length);
+        pos = start + lengthSize + length;
+    }
+
+    private void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buf[pos++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+    }
+
+    private void writeByte(final int value) {
+        ensureCapacity(1);
+        buf[pos++] = (byte) value;
+    }
+
+    private void writeInt(final int value) {
+        ensureCapacity(4);
+        final byte[] buf = this.buf;
+        buf[pos++] = (byte) (value >>> 24);
+        buf[pos++] = (byte) (value >>> 16);
+        buf[pos++] = (byte) (value >>> 8);
+        buf[pos++] = (byte) value;
+    }
+
+    private void writeLong(final long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (pos + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + extra));
+        }
+    }
+}
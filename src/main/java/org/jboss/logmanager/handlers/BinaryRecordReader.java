@@ -0,0 +1,475 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import static org.jboss.logmanager.handlers.BinaryRecordEncoder.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.StreamCorruptedException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.logging.Formatter;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.formatters.PatternFormatter;
+
+/**
+ * A reader for the binary log files written by {@link BinaryFileHandler}.  Each record is decoded into an {@link
+ * ExtLogRecord} which carries the same level, message template, parameters, MDC, NDC and exceptions as the original,
+ * so that it can be rendered by any formatter.  Exceptions are decoded as {@link RecordedThrowable} instances, which
+ * print like the original exceptions, except that stack frames do not name the module of their class.
+ * <p/>
+ * This class can also be run from the command line to render binary log files as text:
+ * <pre>
+ *     java org.jboss.logmanager.handlers.BinaryRecordReader [-p pattern] file...
+ * </pre>
+ * <p/>
+ * This class is not thread-safe.
+ */
+public final class BinaryRecordReader implements Closeable {
+
+    /**
+     * The pattern used by the command line tool if none is given.
+     */
+    public static final String DEFAULT_PATTERN = "%d{yyyy-MM-dd HH:mm:ss,SSS} %-5p [%c] (%t) %s%e%n";
+
+    private static final Map<String, java.util.logging.Level> KNOWN_LEVELS;
+
+    static {
+        final Map<String, java.util.logging.Level> map = new HashMap<String, java.util.logging.Level>();
+        for (java.util.logging.Level level : new java.util.logging.Level[] {
+                java.util.logging.Level.OFF, java.util.logging.Level.SEVERE, java.util.logging.Level.WARNING,
+                java.util.logging.Level.CONFIG, java.util.logging.Level.FINE, java.util.logging.Level.FINER,
+                java.util.logging.Level.FINEST, java.util.logging.Level.ALL,
+                Level.FATAL, Level.ERROR, Level.WARN, Level.INFO, Level.DEBUG, Level.TRACE,
+        }) {
+            map.put(level.getName(), level);
+        }
+        KNOWN_LEVELS = map;
+    }
+
+    private DataInputStream input;
+    private final List<String> dictionary = new ArrayList<String>();
+    private final Map<String, java.util.logging.Level> levels = new HashMap<String, java.util.logging.Level>(KNOWN_LEVELS);
+    private final Map<String, ResourceBundle> bundles = new HashMap<String, ResourceBundle>();
+    private boolean inSegment;
+    private byte[] buf = new byte[512];
+    private int pos;
+    private int limit;
+
+    /**
+     * Construct a new instance.  The stream is buffered by the reader.
+     *
+     * @param inputStream the stream to read
+     */
+    public BinaryRecordReader(final InputStream inputStream) {
+        input = new DataInputStream(new BufferedInputStream(inputStream));
+    }
+
+    /**
+     * Read the next record.  A record which was only partly written, for example because the process writing it
+     * stopped, is treated as the end of the stream.  If the handler carried on writing after the failed write, the
+     * segment it started is found by searching forward from the damaged record for a segment header, and reading
+     * continues from there.
+     *
+     * @return the record, or {@code null} if there are no more records
+     * @throws IOException if the stream could not be read or does not hold a binary log
+     */
+    public ExtLogRecord readRecord() throws IOException {
+        for (;;) {
+            final int length;
+            try {
+                length = input.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (length == MAGIC) {
+                final int version = input.read();
+                if (version != VERSION) {
+                    throw new StreamCorruptedException("Unsupported binary log version " + version);
+                }
+                dictionary.clear();
+                inSegment = true;
+                continue;
+            }
+            if (! inSegment || length < 0) {
+                throw new StreamCorruptedException("Not a binary log");
+            }
+            if (length > buf.length) {
+                buf = new byte[Math.max(buf.length << 1, length)];
+            }
+            final int read = readBody(length);
+            if (read < length) {
+                if (resync(read)) {
+                    continue;
+                }
+                return null;
+            }
+            pos = 0;
+            limit = length;
+            try {
+                final ExtLogRecord record = decodeRecord();
+                if (pos != limit) {
+                    throw new StreamCorruptedException("Record has trailing bytes");
+                }
+                return record;
+            } catch (StreamCorruptedException | RuntimeException e) {
+                // the bytes of a damaged record may decode into anything
+                if (resync(length)) {
+                    continue;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private int readBody(final int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int n = input.read(buf, read, length - read);
+            if (n == -1) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    /**
+     * Search the bytes of a damaged record for a segment header, and if there is one, read on from it.
+     */
+    private boolean resync(final int length) {
+        final byte[] buf = this.buf;
+        for (int i = 0; i + 5 <= length; i++) {
+            if ((buf[i] & 0xFF) == MAGIC >>> 24 && (buf[i + 1] & 0xFF) == (MAGIC >>> 16 & 0xFF)
+                    && (buf[i + 2] & 0xFF) == (MAGIC >>> 8 & 0xFF) && (buf[i + 3] & 0xFF) == (MAGIC & 0xFF) && buf[i + 4] == VERSION) {
+                final InputStream rest = new ByteArrayInputStream(Arrays.copyOfRange(buf, i, length));
+                input = new DataInputStream(new SequenceInputStream(rest, input));
+                inSegment = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Close the underlying stream.
+     *
+     * @throws IOException if the stream could not be closed
+     */
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private ExtLogRecord decodeRecord() throws IOException {
+        final String levelName = readName();
+        final java.util.logging.Level level = getLevel(levelName, readInt());
+        final long millis = readLong();
+        final long sequenceNumber = readLong();
+        final int threadId = readInt();
+        final String threadName = readName();
+        final String loggerName = readName();
+        final String loggerClassName = readName();
+        final ExtLogRecord.FormatStyle[] styles = ExtLogRecord.FormatStyle.values();
+        final int style = readByte();
+        if (style >= styles.length) {
+            throw new StreamCorruptedException("Unknown format style " + style);
+        }
+        final String message = readName();
+        final ExtLogRecord record = new ExtLogRecord(level, message, styles[style], loggerClassName);
+        record.setMillis(millis);
+        record.setSequenceNumber(sequenceNumber);
+        record.setThreadID(threadId);
+        record.setThreadName(threadName);
+        record.setLoggerName(loggerName);
+        final String bundleName = readName();
+        if (bundleName != null) {
+            record.setResourceBundleName(bundleName);
+            record.setResourceBundle(getBundle(bundleName));
+        }
+        if (readByte() != 0) {
+            record.setSourceClassName(readName());
+            record.setSourceMethodName(readName());
+            record.setSourceFileName(readName());
+            record.setSourceLineNumber(readInt());
+        } else {
+            record.disableCallerCalculation();
+        }
+        final int parameterCount = readVarInt();
+        if (parameterCount > 0) {
+            final Object[] parameters = new Object[parameterCount - 1];
+            for (int i = 0; i < parameters.length; i++) {
+                parameters[i] = readParameter();
+            }
+            record.setParameters(parameters);
+        }
+        final int mdcSize = readVarInt();
+        final Map<String, String> mdc = new HashMap<String, String>();
+        for (int i = 0; i < mdcSize; i++) {
+            final String key = readName();
+            mdc.put(key, readString());
+        }
+        // replaces the MDC of the reading thread, which the record would otherwise pick up
+        record.setMdc(mdc);
+        record.setNdc(readString());
+        record.setThrown(readThrowable());
+        return record;
+    }
+
+    private java.util.logging.Level getLevel(final String name, final int value) {
+        java.util.logging.Level level = levels.get(name);
+        if (level == null || level.intValue() != value) {
+            level = new RecordedLevel(name, value);
+            levels.put(name, level);
+        }
+        return level;
+    }
+
+    private ResourceBundle getBundle(final String name) {
+        if (bundles.containsKey(name)) {
+            return bundles.get(name);
+        }
+        ResourceBundle bundle;
+        try {
+            bundle = ResourceBundle.getBundle(name);
+        } catch (MissingResourceException e) {
+            // the message key is rendered as it is
+            bundle = null;
+        }
+        bundles.put(name, bundle);
+        return bundle;
+    }
+
+    private Object readParameter() throws IOException {
+        final int type = readByte();
+        switch (type) {
+            case PARAM_NULL: return null;
+            case PARAM_STRING: return readString();
+            case PARAM_INTEGER: return Integer.valueOf(readInt());
+            case PARAM_LONG: return Long.valueOf(readLong());
+            case PARAM_DOUBLE: return Double.valueOf(Double.longBitsToDouble(readLong()));
+            case PARAM_FLOAT: return Float.valueOf(Float.intBitsToFloat(readInt()));
+            case PARAM_SHORT: return Short.valueOf((short) readInt());
+            case PARAM_BYTE: return Byte.valueOf((byte) readByte());
+            case PARAM_BOOLEAN: return Boolean.valueOf(readByte() != 0);
+            case PARAM_CHARACTER: return Character.valueOf((char) readInt());
+            case PARAM_BIG_DECIMAL: return new BigDecimal(readString());
+            case PARAM_BIG_INTEGER: return new BigInteger(readString());
+            case PARAM_DATE: return new Date(readLong());
+            default: throw new StreamCorruptedException("Unknown parameter type " + type);
+        }
+    }
+
+    private RecordedThrowable readThrowable() throws IOException {
+        if (readByte() == 0) {
+            return null;
+        }
+        final String className = readName();
+        final String message = readString();
+        final StackTraceElement[] stackTrace = new StackTraceElement[readVarInt()];
+        for (int i = 0; i < stackTrace.length; i++) {
+            final String declaringClass = readName();
+            final String methodName = readName();
+            final String fileName = readName();
+            stackTrace[i] = new StackTraceElement(declaringClass, methodName, fileName, readInt());
+        }
+        final RecordedThrowable[] suppressed = new RecordedThrowable[readVarInt()];
+        for (int i = 0; i < suppressed.length; i++) {
+            suppressed[i] = readThrowable();
+        }
+        final RecordedThrowable thrown = new RecordedThrowable(className, message, readThrowable());
+        thrown.setStackTrace(stackTrace);
+        for (RecordedThrowable t : suppressed) {
+            if (t != null) {
+                thrown.addSuppressed(t);
+            }
+        }
+        return thrown;
+    }
+
+    private String readName() throws IOException {
+        final int ref = readVarInt();
+        switch (ref) {
+            case NAME_NULL: return null;
+            case NAME_INLINE: return readStringBytes(readVarInt());
+            case NAME_DEFINE: {
+                final String name = readStringBytes(readVarInt());
+                dictionary.add(name);
+                return name;
+            }
+            default: {
+                final int id = ref - NAME_FIRST_ID;
+                if (id >= dictionary.size()) {
+                    throw new StreamCorruptedException("Undefined name " + id);
+                }
+                return dictionary.get(id);
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        final int length = readVarInt();
+        return length == 0 ? null : readStringBytes(length - 1);
+    }
+
+    private String readStringBytes(final int length) throws IOException {
+        require(length);
+        final String s = new String(buf, pos, length, UTF_8);
+        pos += length;
+        return s;
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed length");
+    }
+
+    private int readByte() throws IOException {
+        require(1);
+        return buf[pos++] & 0xFF;
+    }
+
+    private int readInt() throws IOException {
+        require(4);
+        final byte[] buf = this.buf;
+        return (buf[pos++] & 0xFF) << 24 | (buf[pos++] & 0xFF) << 16 | (buf[pos++] & 0xFF) << 8 | buf[pos++] & 0xFF;
+    }
+
+    private long readLong() throws IOException {
+        return (long) readInt() << 32 | readInt() & 0xFFFFFFFFL;
+    }
+
+    private void require(final int length) throws IOException {
+        if (length < 0 || pos + length > limit) {
+            throw new StreamCorruptedException("Record is truncated");
+        }
+    }
+
+    /**
+     * Render binary log files as text on the standard output.
+     *
+     * @param args the command line arguments: an optional {@code -p} followed by a {@link PatternFormatter} pattern,
+     *             then the files to render
+     * @throws IOException if a file could not be read
+     */
+    public static void main(final String[] args) throws IOException {
+        String pattern = DEFAULT_PATTERN;
+        int first = 0;
+        if (args.length >= 2 && "-p".equals(args[0])) {
+            pattern = args[1];
+            first = 2;
+        }
+        if (first == args.length) {
+            System.err.println("Usage: java " + BinaryRecordReader.class.getName() + " [-p pattern] file...");
+            System.exit(1);
+            return;
+        }
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+        try {
+            final Formatter formatter = new PatternFormatter(pattern);
+            for (String fileName : Arrays.asList(args).subList(first, args.length)) {
+                final BinaryRecordReader reader = new BinaryRecordReader(new FileInputStream(fileName));
+                try {
+                    ExtLogRecord record;
+                    while ((record = reader.readRecord()) != null) {
+                        writer.write(formatter.format(record));
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+        } finally {
+            writer.flush();
+        }
+    }
+
+    /**
+     * An exception read from a binary log.  It holds the class name, message and stack trace of the original
+     * exception, and prints the same way.
+     */
+    public static final class RecordedThrowable extends Throwable {
+
+        private static final long serialVersionUID = -4171226384451253390L;
+
+        private final String className;
+
+        RecordedThrowable(final String className, final String message, final Throwable cause) {
+            super(message, cause);
+            this.className = className;
+        }
+
+        /**
+         * Get the class name of the original exception.
+         *
+         * @return the class name
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /** {@inheritDoc} */
+        public Throwable fillInStackTrace() {
+            // the stack trace is the one which was recorded
+            return this;
+        }
+
+        /** {@inheritDoc} */
+        public String toString() {
+            final String message = getLocalizedMessage();
+            return message == null ? className : className + ": " + message;
+        }
+    }
+
+    private static final class RecordedLevel extends java.util.logging.Level {
+
+        private static final long serialVersionUID = 6593458240853306637L;
+
+        RecordedLevel(final String name, final int value) {
+            super(name, value);
+        }
+    }
+}
@@ -19,6 +19,8 @@
 
 package org.jboss.logmanager.handlers;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 /**
@@ -146,36 +148,73 @@ final class ByteStringBuilder {
         return this;
     }
 
-    public int write(final String s, final int limit) {
-        int result = 0;
-        int c;
+    /**
+     * Appends the UTF-8 encoding of the characters of the sequence, starting at {@code offs}, for as long as the
+     * encoded characters fit before {@code limit}. A surrogate pair is never split, and an unpaired surrogate is
+     * written as the replacement character.
+     *
+     * @param s     the characters to append
+     * @param offs  the index of the first character to append
+     * @param limit the length this builder may not exceed
+     *
+     * @return the index of the first character which was not appended
+     */
+    public int appendUtf8(final CharSequence s, final int offs, final int limit) {
         final int len = s.length();
-        for (int i = 0; i < len; i++) {
+        reserve(Math.min(len - offs, limit - length), false);
+        final byte[] content = this.content;
+        int length = this.length;
+        int i = offs;
+        // ASCII characters need neither surrogate handling nor a bounds check beyond the limit
+        final int asciiEnd = Math.min(len, offs + limit - length);
+        char c;
+        while (i < asciiEnd && (c = s.charAt(i)) < 0x80) {
+            content[length++] = (byte) c;
+            i++;
+        }
+        this.length = length;
+        while (i < len) {
             c = s.charAt(i);
-            if (Character.isHighSurrogate((char) c)) {
-                if (i < len) {
-                    char t = s.charAt(++i);
-                    if (!Character.isLowSurrogate(t)) {
-                        c = INVALID_UTF_8_CODE_POINT;
-                    } else {
-                        c = Character.toCodePoint((char) c, t);
-                    }
+            int cp = c;
+            int chars = 1;
+            if (Character.isHighSurrogate(c)) {
+                if (i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    cp = Character.toCodePoint(c, s.charAt(i + 1));
+                    chars = 2;
                 } else {
-                    c = INVALID_UTF_8_CODE_POINT;
+                    cp = INVALID_UTF_8_CODE_POINT;
                 }
+            } else if (Character.isLowSurrogate(c)) {
+                cp = INVALID_UTF_8_CODE_POINT;
             }
-            final int byteLen = getUtf8LengthOf(c);
-            if (length + byteLen > limit) {
+            if (this.length + getUtf8LengthOf(cp) > limit) {
                 break;
             }
-            result = i;
-            appendUtf8Raw(c);
+            appendUtf8Raw(cp);
+            i += chars;
         }
-        return result;
+        return i;
     }
 
     public ByteStringBuilder append(final int i) {
-        appendLatin1(Integer.toString(i));
+        if (i < 0) {
+            if (i == Integer.MIN_VALUE) {
+                return appendLatin1(Integer.toString(i));
+            }
+            doAppend((byte) '-');
+            return append(-i);
+        }
+        int digits = 1;
+        for (int n = i; n >= 10; n /= 10) {
+            digits++;
+        }
+        reserve(digits, false);
+        int n = i;
+        for (int pos = length + digits - 1; pos >= length; pos--) {
+            content[pos] = (byte) ('0' + n % 10);
+            n /= 10;
+        }
+        length += digits;
         return this;
     }
 
@@ -193,6 +232,23 @@ final class ByteStringBuilder {
         return Arrays.copyOf(content, length);
     }
 
+    /**
+     * Writes the content from {@code offs} to the end of this builder to the output stream, without copying it.
+     *
+     * @param out  the output stream to write to
+     * @param offs the offset of the first byte to write
+     *
+     * @throws IOException if an error occurs writing to the stream
+     */
+    public void writeTo(final OutputStream out, final int offs) throws IOException {
+        out.write(content, offs, length - offs);
+    }
+
+    public void setByteAt(final int index, final byte b) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException();
+        content[index] = b;
+    }
+
     public byte byteAt(final int index) {
         if (index < 0 || index > length) throw new IndexOutOfBoundsException();
         return content[index];
@@ -0,0 +1,220 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A writer which encodes characters straight into a reusable byte buffer, which is written to the target stream
+ * when it fills up or when the writer is flushed.  This replaces the {@code BufferedWriter} and
+ * {@code OutputStreamWriter} pair, so characters are copied once instead of three times.  Characters in the
+ * US-ASCII range are copied directly into the buffer when the charset is ASCII-compatible; everything else goes
+ * through the charset encoder, and characters which cannot be encoded are replaced.
+ * <p/>
+ * This class is not thread safe; the owning handler serializes access through its output lock.
+ */
+final class EncodingWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream outputStream;
+    private final CharsetEncoder encoder;
+    private final boolean asciiCompatible;
+    private final ByteBuffer buffer;
+    private final byte[] bytes;
+    private final char[] single = new char[2];
+    /**
+     * A high surrogate from the end of the previous write whose low surrogate has not yet arrived, or 0 for none.
+     */
+    private char pendingHigh;
+    private boolean closed;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param outputStream the stream to write to
+     * @param charset the charset to encode with
+     */
+    EncodingWriter(final OutputStream outputStream, final Charset charset) {
+        this.outputStream = outputStream;
+        encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final String name = charset.name();
+        asciiCompatible = "US-ASCII".equals(name) || "UTF-8".equals(name) || "ISO-8859-1".equals(name);
+        bytes = new byte[BUFFER_SIZE];
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    public void write(final int c) throws IOException {
+        single[0] = (char) c;
+        write(single, 0, 1);
+    }
+
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || off + len > cbuf.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int i = off;
+        final int end = off + len;
+        while (i < end) {
+            if (asciiCompatible && pendingHigh == 0) {
+                // fast path: copy as many ASCII characters as fit
+                final byte[] bytes = this.bytes;
+                int pos = buffer.position();
+                final int lim = Math.min(end, i + bytes.length - pos);
+                char c;
+                while (i < lim && (c = cbuf[i]) < 0x80) {
+                    bytes[pos++] = (byte) c;
+                    i++;
+                }
+                buffer.position(pos);
+                if (i == end) {
+                    return;
+                }
+                if (! buffer.hasRemaining()) {
+                    flushBuffer();
+                    continue;
+                }
+            }
+            // slow path: encode up to the next ASCII character (or the rest, if the charset is not ASCII-compatible)
+            int j = i + 1;
+            if (asciiCompatible) {
+                while (j < end && cbuf[j] >= 0x80) j++;
+            } else {
+                j = end;
+            }
+            encode(cbuf, i, j - i);
+            i = j;
+        }
+    }
+
+    public void write(final String str, final int off, final int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || off + len > str.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        int i = off;
+        final int end = off + len;
+        if (asciiCompatible && pendingHigh == 0) {
+            final byte[] bytes = this.bytes;
+            while (i < end) {
+                int pos = buffer.position();
+                final int lim = Math.min(end, i + bytes.length - pos);
+                char c;
+                while (i < lim && (c = str.charAt(i)) < 0x80) {
+                    bytes[pos++] = (byte) c;
+                    i++;
+                }
+                buffer.position(pos);
+                if (i == end) {
+                    return;
+                }
+                if (buffer.hasRemaining()) {
+                    // a non-ASCII character; encode the rest the general way
+                    break;
+                }
+                flushBuffer();
+            }
+        }
+        final char[] chars = new char[end - i];
+        str.getChars(i, end, chars, 0);
+        write(chars, 0, chars.length);
+    }
+
+    private void encode(final char[] cbuf, final int off, final int len) throws IOException {
+        final CharBuffer in;
+        if (pendingHigh != 0) {
+            // join the dangling high surrogate with the start of this write
+            final char[] joined = new char[len + 1];
+            joined[0] = pendingHigh;
+            System.arraycopy(cbuf, off, joined, 1, len);
+            pendingHigh = 0;
+            in = CharBuffer.wrap(joined);
+        } else {
+            in = CharBuffer.wrap(cbuf, off, len);
+        }
+        for (;;) {
+            final CoderResult result = encoder.encode(in, buffer, false);
+            if (result.isOverflow()) {
+                flushBuffer();
+            } else {
+                break;
+            }
+        }
+        if (in.hasRemaining()) {
+            // the encoder is waiting for the rest of a surrogate pair
+            pendingHigh = in.get();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        final int pos = buffer.position();
+        if (pos > 0) {
+            outputStream.write(bytes, 0, pos);
+            buffer.clear();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
+        }
+    }
+
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            final CharBuffer in;
+            if (pendingHigh != 0) {
+                in = CharBuffer.wrap(new char[] { pendingHigh });
+                pendingHigh = 0;
+            } else {
+                in = CharBuffer.allocate(0);
+            }
+            while (encoder.encode(in, buffer, true).isOverflow()) {
+                flushBuffer();
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                flushBuffer();
+            }
+            flushBuffer();
+            outputStream.flush();
+        } finally {
+            closed = true;
+            outputStream.close();
+        }
+    }
+}
@@ -23,9 +23,14 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
+import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 
+import org.jboss.logmanager.ExtLogRecord;
+
 /**
  * A simple file handler.
  */
@@ -33,6 +38,16 @@ public class FileHandler extends OutputStreamHandler {
 
     private File file;
     private boolean append;
+    private boolean memoryMapped;
+    private MappedFileOutputStream mappedStream;
+    private boolean durable;
+    private volatile boolean awaitDurable;
+    private volatile Syncable syncTarget;
+    private final GroupCommit groupCommit = new GroupCommit(new Runnable() {
+        public void run() {
+            syncFile();
+        }
+    });
 
     /**
      * Construct a new instance with no formatter and no output file.
@@ -130,6 +145,158 @@ public class FileHandler extends OutputStreamHandler {
         }
     }
 
+    /**
+     * Determine whether the output file is written through a memory mapping.
+     *
+     * @return {@code true} if the output file is memory mapped
+     */
+    public boolean isMemoryMapped() {
+        synchronized (outputLock) {
+            return memoryMapped;
+        }
+    }
+
+    /**
+     * Specify whether the output file should be written through a memory mapping rather than with a system call per
+     * flush.  The file is mapped in windows of several megabytes and grows one window at a time, and is truncated to
+     * the length actually written when it is closed.  The setting takes effect the next time the file is set.  It is
+     * ignored on platforms where a mapped file cannot be released for rotation, which is Windows on JVMs older than 9.
+     *
+     * @param memoryMapped {@code true} to write through a memory mapping, {@code false} to write through a stream
+     */
+    public void setMemoryMapped(final boolean memoryMapped) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            this.memoryMapped = memoryMapped;
+        }
+    }
+
+    /**
+     * Determine whether records are forced to the storage device after they are written.
+     *
+     * @return {@code true} if records are made durable
+     */
+    public boolean isDurable() {
+        synchronized (outputLock) {
+            return durable;
+        }
+    }
+
+    /**
+     * Specify whether records should be forced to the storage device after they are written, so that they survive a
+     * crash of the operating system or a loss of power.  The records of all of the threads which write while a sync is
+     * in progress are made durable together by the next sync, so the cost of each sync is shared by more records as
+     * more threads are logging.  Files are also synced before they are closed or rotated.  The setting takes effect
+     * the next time the file is set.
+     *
+     * @param durable {@code true} to make records durable
+     * @see #setAwaitDurable(boolean)
+     */
+    public void setDurable(final boolean durable) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            this.durable = durable;
+        }
+    }
+
+    /**
+     * Determine whether publishing a record waits for the record to be durable.
+     *
+     * @return {@code true} if publishing a record waits for it to be durable
+     */
+    public boolean isAwaitDurable() {
+        return awaitDurable;
+    }
+
+    /**
+     * Specify whether publishing a record should wait until the record is durable.  Otherwise, records are synced by
+     * a background thread shortly after they are written.  This setting only applies if the handler is {@linkplain
+     * #setDurable(boolean) durable}.
+     *
+     * @param awaitDurable {@code true} to wait for each record to be durable
+     */
+    public void setAwaitDurable(final boolean awaitDurable) {
+        checkAccess(this);
+        this.awaitDurable = awaitDurable;
+    }
+
+    /** {@inheritDoc} */
+    protected void doPublish(final ExtLogRecord record) {
+        super.doPublish(record);
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void publishBatch(final ExtLogRecord[] records, final int count) {
+        super.publishBatch(records, count);
+        commit();
+    }
+
+    private void commit() {
+        if (syncTarget != null) {
+            if (awaitDurable) {
+                groupCommit.commit();
+            } else {
+                groupCommit.commitLater();
+            }
+        }
+    }
+
+    /**
+     * Push any buffered records to the operating system, and then force the file to the storage device without holding
+     * the output lock, so that other threads may keep writing in the meantime.
+     */
+    private void syncFile() {
+        final Syncable syncTarget;
+        synchronized (outputLock) {
+            flush();
+            syncTarget = this.syncTarget;
+        }
+        if (syncTarget != null) try {
+            syncTarget.sync();
+        } catch (IOException e) {
+            reportError("Unable to sync log file", e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Get the number of times the file has been synced.
+     *
+     * @return the number of syncs
+     */
+    long getSyncCount() {
+        return groupCommit.getSyncCount();
+    }
+
+    /** {@inheritDoc} */
+    public void setOutputStream(final OutputStream outputStream) {
+        synchronized (outputLock) {
+            mappedStream = outputStream instanceof MappedFileOutputStream ? (MappedFileOutputStream) outputStream : null;
+            syncTarget = null;
+            super.setOutputStream(outputStream);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void setWriter(final Writer writer) {
+        synchronized (outputLock) {
+            super.setWriter(writer);
+            mappedStream = null;
+            syncTarget = null;
+        }
+    }
+
+    /**
+     * Get the number of bytes written to the current file, if it is memory mapped.  The length of a mapped file on
+     * disk includes the unwritten remainder of the mapped window, so it does not reflect the amount of data.
+     *
+     * @return the size of the mapped file, or -1 if the current file is not memory mapped
+     */
+    long getMappedFileSize() {
+        final MappedFileOutputStream mappedStream = this.mappedStream;
+        return mappedStream == null ? -1L : mappedStream.getSize();
+    }
+
     /**
      * Set the output file.
      *
@@ -148,12 +315,33 @@ public class FileHandler extends OutputStreamHandler {
                 parentFile.mkdirs();
             }
             boolean ok = false;
-            final FileOutputStream fos = new FileOutputStream(file, append);
+            if (memoryMapped && MappedFileOutputStream.isSupported()) {
+                final MappedFileOutputStream mos = new MappedFileOutputStream(file, append);
+                try {
+                    mos.setSyncOnClose(durable);
+                    setOutputStream(mos);
+                    this.file = file;
+                    if (durable) {
+                        syncTarget = mos;
+                    }
+                    ok = true;
+                } finally {
+                    if (! ok) {
+                        safeClose(mos);
+                    }
+                }
+                return;
+            }
+            final FileOutputStream fos = durable ? new SyncFileOutputStream(file, append) : new FileOutputStream(file, append);
             try {
-                final OutputStream bos = new BufferedOutputStream(fos);
+                // the direct encoding writer buffers bytes itself
+                final OutputStream bos = isDirectEncoding() ? fos : new BufferedOutputStream(fos);
                 try {
                     setOutputStream(bos);
                     this.file = file;
+                    if (durable) {
+                        syncTarget = (SyncFileOutputStream) fos;
+                    }
                     ok = true;
                 } finally {
                     if (! ok) {
@@ -0,0 +1,400 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Carries out the file operations of a log rotation for a rotating file handler, either on the calling thread or on a
+ * shared background thread.
+ * <p/>
+ * In the background mode, the rotating handler only moves the active file out of the way to a temporary name and opens
+ * a new one; the renames of older backups, the deletion of backups beyond the limit and the compression of the rotated
+ * file are then carried out on a single background thread shared by all handlers, in the order in which the rotations
+ * happened.  If the JVM stops before a background rotation completes, the rotated file is left under its temporary
+ * name, which ends with {@value #PENDING_SUFFIX} followed by the time of the rotation and a number.  Such files are
+ * {@linkplain #findPending(File) found} again when a handler next opens the same file, and are rotated before
+ * anything else.
+ * <p/>
+ * Backups are normally numbered from {@code 1}, the most recent, up to the maximum backup index, so every rotation
+ * renames each existing backup.  In the sequential mode, each backup is instead given the next number of an ever
+ * increasing sequence and is never renamed again; the oldest backups, those with the lowest numbers, are deleted once
+ * there are more than the maximum.  The existing backups are found by scanning the directory once and are tracked in
+ * memory from then on, so a rotation costs a single rename and usually a single delete.  Backups which are added to the
+ * directory by anything other than this rotator are not noticed until the base name changes.
+ */
+final class FileRotator {
+
+    static final String PENDING_SUFFIX = ".rotating.";
+    static final String COMPRESSED_SUFFIX = ".gz";
+
+    private static final AtomicLong pendingSequence = new AtomicLong();
+    // the temporary files of the rotations which have not completed yet in this JVM
+    private static final Set<String> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private static final File[] NO_FILES = new File[0];
+
+    private boolean background;
+    private boolean compress;
+    private boolean sequential;
+    private Future<?> lastTask;
+    private String recoveredPath;
+
+    // the sequence numbers of the backups of sequenceBase, oldest first
+    private final ArrayDeque<Long> sequence = new ArrayDeque<Long>();
+    private String sequenceBase;
+    private long lastSequence;
+
+    boolean isBackground() {
+        return background;
+    }
+
+    void setBackground(final boolean background) {
+        this.background = background;
+    }
+
+    boolean isCompress() {
+        return compress;
+    }
+
+    void setCompress(final boolean compress) {
+        this.compress = compress;
+    }
+
+    boolean isSequential() {
+        return sequential;
+    }
+
+    void setSequential(final boolean sequential) {
+        this.sequential = sequential;
+    }
+
+    /**
+     * Get a unique temporary name to move the active file to before it is rotated in the background.  The name holds
+     * the current time, so that it does not collide with the names left behind by an earlier run, and sorts in the
+     * order of the rotations.
+     *
+     * @param file the active file
+     * @return the temporary file
+     */
+    static File pendingFile(final File file) {
+        final String prefix = file.getAbsolutePath() + PENDING_SUFFIX + System.currentTimeMillis() + "-";
+        File pending;
+        do {
+            pending = new File(prefix + pendingSequence.incrementAndGet());
+        } while (pending.exists());
+        inFlight.add(pending.getPath());
+        return pending;
+    }
+
+    /**
+     * Find the temporary files of background rotations of the given file which never completed, for example because
+     * the JVM stopped, oldest first.  The directory is only searched the first time a file is given, so that a
+     * handler reopening its file after each rotation does not search it again.
+     *
+     * @param file the active file
+     * @return the temporary files which should be rotated
+     */
+    synchronized File[] findPending(final File file) {
+        final File absolute = file.getAbsoluteFile();
+        if (absolute.getPath().equals(recoveredPath)) {
+            return NO_FILES;
+        }
+        recoveredPath = absolute.getPath();
+        final File dir = absolute.getParentFile();
+        final String[] names = dir == null ? null : dir.list();
+        if (names == null) {
+            return NO_FILES;
+        }
+        final int start = absolute.getName().length() + PENDING_SUFFIX.length();
+        final List<File> found = new ArrayList<File>();
+        for (String name : names) {
+            if (name.startsWith(absolute.getName() + PENDING_SUFFIX) && pendingOrder(name, start) != null) {
+                final File pending = new File(dir, name);
+                if (! inFlight.contains(pending.getPath())) {
+                    found.add(pending);
+                }
+            }
+        }
+        Collections.sort(found, new Comparator<File>() {
+            public int compare(final File o1, final File o2) {
+                final long[] k1 = pendingOrder(o1.getName(), start);
+                final long[] k2 = pendingOrder(o2.getName(), start);
+                final int c = Long.valueOf(k1[0]).compareTo(Long.valueOf(k2[0]));
+                return c != 0 ? c : Long.valueOf(k1[1]).compareTo(Long.valueOf(k2[1]));
+            }
+        });
+        return found.toArray(new File[found.size()]);
+    }
+
+    /**
+     * Parse the time and number of a temporary name, or just the number of a name without a time.
+     */
+    private static long[] pendingOrder(final String name, final int start) {
+        final int dash = name.indexOf('-', start);
+        if (dash == -1) {
+            final long number = parseSequence(name, start, name.length());
+            return number < 0L ? null : new long[] { 0L, number };
+        }
+        final long time = parseSequence(name, start, dash);
+        final long number = parseSequence(name, dash + 1, name.length());
+        return time < 0L || number < 0L ? null : new long[] { time, number };
+    }
+
+    /**
+     * Run a rotation task, either now or in the background.
+     *
+     * @param task the task
+     */
+    void execute(final Runnable task) {
+        if (background) {
+            lastTask = Holder.EXECUTOR.submit(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Wait for any rotation tasks which are running in the background to complete.
+     */
+    void awaitCompletion() {
+        final Future<?> lastTask = this.lastTask;
+        if (lastTask == null) {
+            return;
+        }
+        boolean intr = false;
+        try {
+            for (;;) try {
+                // tasks run in order, so the last one completes after all of the others
+                lastTask.get();
+                break;
+            } catch (InterruptedException e) {
+                intr = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        } finally {
+            if (intr) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (this.lastTask == lastTask) {
+            this.lastTask = null;
+        }
+    }
+
+    /**
+     * Move a file into a set of numbered backups, and compress it if requested.
+     *
+     * @param base the name of the backups, without the index
+     * @param maxBackupIndex the number of backups to keep
+     * @param source the file to add to the backups
+     * @param sequential {@code true} to give the file the next sequence number, {@code false} to move it into the
+     *      first slot
+     * @param compress {@code true} to compress the file once it has been moved
+     * @throws IOException if the file could not be compressed
+     */
+    void rotate(final String base, final int maxBackupIndex, final File source, final boolean sequential, final boolean compress) throws IOException {
+        final File rotated = sequential ? append(base, maxBackupIndex, source) : shift(base, maxBackupIndex, source);
+        inFlight.remove(source.getPath());
+        if (compress) {
+            compress(rotated);
+        }
+    }
+
+    /**
+     * Move a file to the next number in the sequence of backups, deleting the oldest backups beyond the number to keep.
+     *
+     * @param base the name of the backups, without the sequence number
+     * @param maxBackupIndex the number of backups to keep
+     * @param source the file to add to the backups
+     * @return the backup file
+     */
+    synchronized File append(final String base, final int maxBackupIndex, final File source) {
+        if (! base.equals(sequenceBase)) {
+            scan(base);
+        }
+        final ArrayDeque<Long> sequence = this.sequence;
+        final long next = ++lastSequence;
+        final File target = new File(base + "." + next);
+        if (source.renameTo(target)) {
+            sequence.addLast(Long.valueOf(next));
+        }
+        while (sequence.size() > maxBackupIndex) {
+            final long oldest = sequence.removeFirst().longValue();
+            if (! new File(base + "." + oldest).delete()) {
+                new File(base + "." + oldest + COMPRESSED_SUFFIX).delete();
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Find the existing sequential backups for a base name.
+     */
+    private void scan(final String base) {
+        sequence.clear();
+        sequenceBase = base;
+        lastSequence = 0L;
+        final File baseFile = new File(base);
+        final File dir = baseFile.getParentFile();
+        final String[] names = dir == null ? null : dir.list();
+        if (names == null) {
+            return;
+        }
+        final String prefix = baseFile.getName() + ".";
+        long[] found = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (! name.startsWith(prefix)) {
+                continue;
+            }
+            int end = name.length();
+            if (name.endsWith(COMPRESSED_SUFFIX)) {
+                end -= COMPRESSED_SUFFIX.length();
+            }
+            final long number = parseSequence(name, prefix.length(), end);
+            if (number > 0L) {
+                found[count++] = number;
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        for (int i = 0; i < count; i++) {
+            // a backup may be present in both its plain and compressed forms
+            if (i == 0 || found[i] != found[i - 1]) {
+                sequence.addLast(Long.valueOf(found[i]));
+            }
+        }
+        if (count > 0) {
+            lastSequence = found[count - 1];
+        }
+    }
+
+    private static long parseSequence(final String name, final int start, final int end) {
+        // up to 18 digits cannot overflow
+        if (start >= end || end - start > 18) {
+            return -1L;
+        }
+        long number = 0L;
+        for (int i = start; i < end; i++) {
+            final char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1L;
+            }
+            number = number * 10L + (c - '0');
+        }
+        return number;
+    }
+
+    /**
+     * Shift numbered backups up by one slot, dropping the one in the last slot, and move a file into the first slot.
+     * Backups in either the plain or the compressed form are moved.
+     *
+     * @param base the name of the backups, without the index
+     * @param maxBackupIndex the number of backups to keep
+     * @param source the file to move into the first slot
+     * @return the file in the first slot
+     */
+    static File shift(final String base, final int maxBackupIndex, final File source) {
+        new File(base + "." + maxBackupIndex).delete();
+        new File(base + "." + maxBackupIndex + COMPRESSED_SUFFIX).delete();
+        for (int i = maxBackupIndex - 1; i >= 1; i--) {
+            new File(base + "." + i).renameTo(new File(base + "." + (i + 1)));
+            new File(base + "." + i + COMPRESSED_SUFFIX).renameTo(new File(base + "." + (i + 1) + COMPRESSED_SUFFIX));
+        }
+        final File first = new File(base + ".1");
+        source.renameTo(first);
+        return first;
+    }
+
+    /**
+     * Compress a file with gzip, replacing it with a file of the same name with {@value #COMPRESSED_SUFFIX} appended.
+     * If compression fails, the original file is kept.
+     *
+     * @param file the file to compress
+     * @throws IOException if the file could not be compressed
+     */
+    static void compress(final File file) throws IOException {
+        if (! file.exists()) {
+            return;
+        }
+        final File target = new File(file.getPath() + COMPRESSED_SUFFIX);
+        boolean ok = false;
+        try {
+            final FileInputStream in = new FileInputStream(file);
+            try {
+                final GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(target), 8192);
+                try {
+                    final byte[] buffer = new byte[8192];
+                    int r;
+                    while ((r = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, r);
+                    }
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+            ok = true;
+        } finally {
+            if (! ok) {
+                target.delete();
+            }
+        }
+        file.delete();
+    }
+
+    private static final class Holder {
+        static final ThreadPoolExecutor EXECUTOR;
+
+        static {
+            // a single thread keeps rotations in order; it exits when idle
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "Log file rotation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+    }
+}
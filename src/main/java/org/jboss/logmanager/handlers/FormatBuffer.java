@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+/**
+ * A per-thread reusable buffer into which handlers format records.  One buffer is shared by every handler on a
+ * thread; if a handler is re-entered while the buffer is in use (for example because a {@code toString()} method
+ * logs), a throwaway buffer is handed out instead.
+ */
+final class FormatBuffer {
+
+    private static final int INITIAL_LENGTH = 256;
+    /**
+     * Buffers which grew beyond this many characters to hold an unusually large record are shrunk again on release.
+     */
+    private static final int MAX_RETAINED_LENGTH = 0x4000;
+
+    private static final ThreadLocal<FormatBuffer> current = new ThreadLocal<FormatBuffer>();
+
+    private final StringBuilder builder = new StringBuilder(INITIAL_LENGTH);
+    private char[] chars = new char[INITIAL_LENGTH];
+    private int[] ends = new int[0];
+    private boolean inUse;
+
+    private FormatBuffer() {
+    }
+
+    /**
+     * Acquire the current thread's buffer.  The buffer must be {@linkplain #release() released} after use.
+     *
+     * @return the buffer, which is empty
+     */
+    static FormatBuffer acquire() {
+        FormatBuffer buffer = current.get();
+        if (buffer == null) {
+            buffer = new FormatBuffer();
+            current.set(buffer);
+        } else if (buffer.inUse) {
+            return new FormatBuffer();
+        }
+        buffer.inUse = true;
+        return buffer;
+    }
+
+    /**
+     * Get the builder to format into.
+     *
+     * @return the builder
+     */
+    StringBuilder getBuilder() {
+        return builder;
+    }
+
+    /**
+     * Get the formatted characters.  The array is owned by this buffer and only the first
+     * {@code getBuilder().length()} characters are valid.
+     *
+     * @return the character array
+     */
+    char[] getChars() {
+        final int length = builder.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length << 1)];
+        }
+        builder.getChars(0, length, chars, 0);
+        return chars;
+    }
+
+    /**
+     * Get an array in which to record where each of several records formatted into the builder ends.  The array is
+     * owned by this buffer and its contents are undefined.
+     *
+     * @param count the number of records
+     * @return an array of at least {@code count} elements
+     */
+    int[] getEnds(final int count) {
+        if (ends.length < count) {
+            ends = new int[count];
+        }
+        return ends;
+    }
+
+    /**
+     * Release this buffer for reuse by the next record.
+     */
+    void release() {
+        builder.setLength(0);
+        if (builder.capacity() > MAX_RETAINED_LENGTH) {
+            builder.trimToSize();
+            builder.ensureCapacity(INITIAL_LENGTH);
+        }
+        if (chars.length > MAX_RETAINED_LENGTH) {
+            chars = new char[INITIAL_LENGTH];
+        }
+        inUse = false;
+    }
+}
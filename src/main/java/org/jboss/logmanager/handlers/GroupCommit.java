@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares a single sync of a file between all of the threads which wrote to it while another sync was in progress.
+ * <p/>
+ * A thread which has written a record and wants it to be durable needs a sync which started after its write
+ * completed.  If no sync is in progress, it starts one itself; otherwise it waits for the one in progress, which may
+ * have missed its write, and then for the next one, which is started by whichever waiting thread gets there first.
+ * So however many threads are writing, there is at most one sync in progress and one waiting to start, and every sync
+ * makes all of the records written before it durable.
+ */
+final class GroupCommit {
+
+    private final Object lock = new Object();
+    private final Runnable syncAction;
+    private long started;
+    private long completed;
+    private boolean backgroundPending;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param syncAction the action which syncs the file; it must report its own errors
+     */
+    GroupCommit(final Runnable syncAction) {
+        this.syncAction = syncAction;
+    }
+
+    /**
+     * Wait until everything written before this call is durable, syncing the file if no other thread is doing so.
+     */
+    void commit() {
+        final Object lock = this.lock;
+        boolean intr = false;
+        try {
+            synchronized (lock) {
+                // any sync which starts from now on will include our writes
+                final long target = started + 1;
+                while (started != completed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        intr = true;
+                    }
+                    if (completed >= target) {
+                        return;
+                    }
+                }
+                // no sync is in progress, and none since we arrived has completed; lead the next one
+                started++;
+            }
+            try {
+                syncAction.run();
+            } finally {
+                synchronized (lock) {
+                    completed++;
+                    lock.notifyAll();
+                }
+            }
+        } finally {
+            if (intr) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Make everything written before this call durable in the background, without waiting.  Requests which arrive
+     * before the background thread gets to the previous one are merged into it.
+     */
+    void commitLater() {
+        synchronized (lock) {
+            if (backgroundPending) {
+                return;
+            }
+            backgroundPending = true;
+        }
+        Holder.EXECUTOR.execute(new Runnable() {
+            public void run() {
+                synchronized (lock) {
+                    backgroundPending = false;
+                }
+                commit();
+            }
+        });
+    }
+
+    /**
+     * Get the number of syncs which have completed.
+     *
+     * @return the number of syncs
+     */
+    long getSyncCount() {
+        synchronized (lock) {
+            return completed;
+        }
+    }
+
+    private static final class Holder {
+        static final Executor EXECUTOR;
+
+        static {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "Log file sync");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Locale;
+
+/**
+ * An output stream which appends to a file through a memory-mapped window.  Writes are copied straight into the
+ * mapping, so no system call is made per write or per flush, and data which has been written survives a crash of the
+ * JVM since it already belongs to the operating system's page cache.  When the window is full, the next region of the
+ * file is mapped; the file therefore grows in chunks, and is truncated to the length actually written on close.
+ * <p/>
+ * While the stream is open, the length of the data is also kept in a small mapped file next to the log, named with
+ * {@value #LENGTH_SUFFIX} appended, which is updated by every write and deleted on close.  If the JVM stops before the
+ * stream is closed, the log is left padded up to the end of the last window; when it is opened for append, the length
+ * file tells where the data ends, so that logging resumes at the real end of the data whatever bytes it ends with.
+ * <p/>
+ * Each window is unmapped as soon as it is replaced, and the last one on close, so that the file can be renamed or
+ * deleted by a rotation.  If the JVM offers no way to unmap a window, it is released when it is garbage collected;
+ * since Windows does not allow a mapped file to be renamed, memory mapping is then {@linkplain #isSupported()
+ * unsupported} there.
+ */
+final class MappedFileOutputStream extends OutputStream implements Syncable {
+
+    /**
+     * The size of each mapped window.
+     */
+    static final int CHUNK_SIZE = 0x400000;
+
+    /**
+     * The suffix of the file which holds the length of the data while the stream is open.
+     */
+    static final String LENGTH_SUFFIX = ".length";
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        final Object[] found = AccessController.doPrivileged(new PrivilegedAction<Object[]>() {
+            public Object[] run() {
+                try {
+                    final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                    final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                    final Field field = unsafeClass.getDeclaredField("theUnsafe");
+                    field.setAccessible(true);
+                    return new Object[] { field.get(null), invokeCleaner };
+                } catch (Throwable ignored) {
+                    return null;
+                }
+            }
+        });
+        UNSAFE = found == null ? null : found[0];
+        INVOKE_CLEANER = found == null ? null : (Method) found[1];
+    }
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final File lengthFile;
+    private final int chunkSize;
+    // held while a window is forced or unmapped, since a sync may run on another thread than the writes
+    private final Object mapLock = new Object();
+    private MappedByteBuffer window;
+    private MappedByteBuffer length;
+    private long windowStart;
+    private boolean closed;
+    private boolean syncOnClose;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param file the file to write to
+     * @param append {@code true} to append to the file, {@code false} to overwrite it
+     * @throws FileNotFoundException if the file could not be opened
+     */
+    MappedFileOutputStream(final File file, final boolean append) throws FileNotFoundException {
+        this(file, append, CHUNK_SIZE);
+    }
+
+    MappedFileOutputStream(final File file, final boolean append, final int chunkSize) throws FileNotFoundException {
+        this.file = new RandomAccessFile(file, "rw");
+        channel = this.file.getChannel();
+        lengthFile = new File(file.getPath() + LENGTH_SUFFIX);
+        this.chunkSize = chunkSize;
+        boolean ok = false;
+        try {
+            final long start = append ? findEnd() : 0L;
+            channel.truncate(start);
+            mapLength();
+            map(start);
+            ok = true;
+        } catch (IOException e) {
+            final FileNotFoundException fnfe = new FileNotFoundException("Unable to map " + file + ": " + e);
+            fnfe.initCause(e);
+            throw fnfe;
+        } finally {
+            if (! ok) {
+                unmap(length);
+                try {
+                    this.file.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine whether files can be written through a memory mapping on this platform.
+     *
+     * @return {@code true} if memory mapping can be used
+     */
+    static boolean isSupported() {
+        return INVOKE_CLEANER != null || ! System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+    }
+
+    /**
+     * Find the end of the data in the file.  A file which was closed has been truncated to its data; otherwise the
+     * length file left behind holds the end of the data.
+     */
+    private long findEnd() throws IOException {
+        final long size = channel.size();
+        if (! lengthFile.exists()) {
+            return size;
+        }
+        final RandomAccessFile raf = new RandomAccessFile(lengthFile, "r");
+        try {
+            if (raf.length() < 8L) {
+                return size;
+            }
+            final long end = raf.readLong();
+            return end >= 0L && end <= size ? end : size;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void mapLength() throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(lengthFile, "rw");
+        try {
+            length = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, 8L);
+        } finally {
+            // the mapping stays valid once the file is closed
+            raf.close();
+        }
+    }
+
+    private void map(final long start) throws IOException {
+        // mapping is interruptible, and an interrupt would close the channel; it is not ours to handle
+        final boolean intr = Thread.interrupted();
+        try {
+            window = channel.map(FileChannel.MapMode.READ_WRITE, start, chunkSize);
+            windowStart = start;
+            length.putLong(0, start);
+        } finally {
+            if (intr) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void next() throws IOException {
+        final MappedByteBuffer old = window;
+        if (syncOnClose) {
+            old.force();
+        }
+        synchronized (mapLock) {
+            map(getSize());
+            unmap(old);
+        }
+    }
+
+    /**
+     * Release a mapping now, rather than when it is garbage collected.  The buffer must not be used again.
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+        if (buffer != null && INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (Throwable ignored) {
+                // left to the garbage collector
+            }
+        }
+    }
+
+    /**
+     * Get the number of bytes in the file, which is the position at which the next byte will be written.
+     *
+     * @return the size of the file
+     */
+    long getSize() {
+        final MappedByteBuffer window = this.window;
+        return window == null ? windowStart : windowStart + window.position();
+    }
+
+    public void write(final int b) throws IOException {
+        ensureOpen();
+        if (! window.hasRemaining()) {
+            next();
+        }
+        window.put((byte) b);
+        length.putLong(0, windowStart + window.position());
+    }
+
+    public void write(final byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            MappedByteBuffer window = this.window;
+            if (! window.hasRemaining()) {
+                next();
+                window = this.window;
+            }
+            final int count = Math.min(len, window.remaining());
+            window.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+        length.putLong(0, windowStart + window.position());
+    }
+
+    /**
+     * Does nothing, since written data already belongs to the operating system.
+     */
+    public void flush() throws IOException {
+        ensureOpen();
+    }
+
+    /**
+     * Force the data written to the current window to the storage device.  Earlier windows were forced, if required,
+     * when they were replaced.
+     */
+    public void sync() throws IOException {
+        synchronized (mapLock) {
+            final MappedByteBuffer window = this.window;
+            if (window != null) {
+                window.force();
+            }
+        }
+    }
+
+    /**
+     * Specify whether the data should be forced to the storage device whenever a window is replaced and when the
+     * stream is closed.
+     *
+     * @param syncOnClose {@code true} to force the data
+     */
+    void setSyncOnClose(final boolean syncOnClose) {
+        this.syncOnClose = syncOnClose;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+    }
+
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        final long size = getSize();
+        final boolean intr = Thread.interrupted();
+        try {
+            synchronized (mapLock) {
+                final MappedByteBuffer window = this.window;
+                this.window = null;
+                windowStart = size;
+                if (syncOnClose) {
+                    window.force();
+                }
+                unmap(window);
+            }
+            channel.truncate(size);
+            if (syncOnClose) {
+                channel.force(true);
+            }
+            // the file now ends with its data
+            unmap(length);
+            length = null;
+            lengthFile.delete();
+        } finally {
+            try {
+                file.close();
+            } finally {
+                if (intr) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An output stream that writes data to a {@link java.nio.channels.SocketChannel socket channel} from a dedicated I/O
+ * thread.
+ * <p/>
+ * Each {@link #write(byte[], int, int) write} is copied into an in-memory backlog and written later, so a slow server
+ * does not block the writing thread. The I/O thread writes all of the pending writes together with a single gathering
+ * write. The backlog is bounded by the number of bytes it holds; a write which does not fit is discarded, or if {@link
+ * #setBlockOnReconnect(boolean) block on reconnect} is {@code true}, waits until it fits.
+ * <p/>
+ * If an {@link java.io.IOException IOException} occurs while writing, the I/O thread attempts to reconnect
+ * indefinitely, and then writes the backlog again, starting with any write which was only partly sent. By default
+ * additional writes are added to the backlog while reconnecting, and are only discarded once the backlog is full. If
+ * you set the {@link #setBlockOnReconnect(boolean) block on reconnect} to {@code true}, then writes block until the
+ * stream is reconnected.
+ * <p/>
+ * A {@link #flush() flush} does not wait for the backlog to be written. A {@link #close() close} waits a limited time
+ * for it to be written before closing the channel.
+ * <p/>
+ * You can optionally get a collection of the errors that occurred during a write or reconnect.
+ */
+public class NioTcpOutputStream extends OutputStream implements FlushableCloseable {
+    /**
+     * The default maximum number of bytes held by the backlog.
+     */
+    public static final int DEFAULT_MAX_BACKLOG = 1 << 20;
+
+    private static final long retryTimeout = 5L;
+    private static final long maxRetryTimeout = 40L;
+    private static final int maxErrors = 10;
+    private static final int maxGather = 64;
+    private static final long closeTimeout = 5L;
+
+    private final InetSocketAddress address;
+    private final int maxBacklog;
+    private final Thread ioThread;
+    private final Deque<Exception> errors = new ArrayDeque<Exception>(maxErrors);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition backlogChanged = lock.newCondition();
+    private final Condition connectionChanged = lock.newCondition();
+
+    // Guarded by lock
+    private final Deque<ByteBuffer> backlog = new ArrayDeque<ByteBuffer>();
+    // Guarded by lock
+    private int backlogSize;
+    // Guarded by lock
+    private boolean blockOnReconnect;
+    // Guarded by lock
+    private boolean connected;
+    // Guarded by lock
+    private boolean closed;
+    // Guarded by lock
+    private long discarded;
+
+    // Only used by the I/O thread, except when closing
+    private volatile SocketChannel channel;
+
+    /**
+     * Creates a TCP output stream with the {@link #DEFAULT_MAX_BACKLOG default maximum backlog}.
+     *
+     * @param address the address to connect to
+     * @param port    the port to connect to
+     *
+     * @throws IOException if an I/O error occurs when connecting the channel
+     */
+    public NioTcpOutputStream(final InetAddress address, final int port) throws IOException {
+        this(address, port, false);
+    }
+
+    /**
+     * Creates a TCP output stream with the {@link #DEFAULT_MAX_BACKLOG default maximum backlog}.
+     *
+     * @param address          the address to connect to
+     * @param port             the port to connect to
+     * @param blockOnReconnect {@code true} to block writes while reconnecting or when the backlog is full, or {@code
+     *                         false} to discard writes which do not fit in the backlog
+     *
+     * @throws IOException if an I/O error occurs when connecting the channel
+     */
+    public NioTcpOutputStream(final InetAddress address, final int port, final boolean blockOnReconnect) throws IOException {
+        this(address, port, blockOnReconnect, DEFAULT_MAX_BACKLOG);
+    }
+
+    /**
+     * Creates a TCP output stream.
+     *
+     * @param address          the address to connect to
+     * @param port             the port to connect to
+     * @param blockOnReconnect {@code true} to block writes while reconnecting or when the backlog is full, or {@code
+     *                         false} to discard writes which do not fit in the backlog
+     * @param maxBacklog       the maximum number of bytes held by the backlog
+     *
+     * @throws IOException if an I/O error occurs when connecting the channel
+     */
+    public NioTcpOutputStream(final InetAddress address, final int port, final boolean blockOnReconnect, final int maxBacklog) throws IOException {
+        if (maxBacklog < 1) {
+            throw new IllegalArgumentException("The maximum backlog must be at least one byte");
+        }
+        this.address = new InetSocketAddress(address, port);
+        this.maxBacklog = maxBacklog;
+        this.blockOnReconnect = blockOnReconnect;
+        channel = SocketChannel.open(this.address);
+        connected = true;
+        ioThread = new Thread(new Writer());
+        ioThread.setDaemon(true);
+        ioThread.setName("LogManager Socket Channel Writer Thread");
+        ioThread.start();
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("The stream has been closed");
+            }
+            if (blockOnReconnect) {
+                boolean interrupted = false;
+                while (! closed && (! connected || backlogSize > 0 && backlogSize + len > maxBacklog)) {
+                    try {
+                        (connected ? backlogChanged : connectionChanged).await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                if (closed) {
+                    throw new IOException("The stream has been closed");
+                }
+            } else if (backlogSize > 0 && backlogSize + len > maxBacklog) {
+                discarded++;
+                return;
+            }
+            final byte[] copy = new byte[len];
+            System.arraycopy(b, off, copy, 0, len);
+            backlog.addLast(ByteBuffer.wrap(copy));
+            backlogSize += len;
+            backlogChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Does nothing; the backlog is written by the I/O thread as soon as it can be.
+     */
+    @Override
+    public void flush() throws IOException {
+    }
+
+    /**
+     * Closes the stream, waiting a limited time for the backlog to be written before the channel is closed.
+     *
+     * @throws IOException if an error occurs closing the channel
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            backlogChanged.signalAll();
+            connectionChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        try {
+            ioThread.join(TimeUnit.SECONDS.toMillis(closeTimeout));
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        // Closing the channel stops a write blocked on a server which is not reading
+        final SocketChannel channel = this.channel;
+        if (channel != null) {
+            channel.close();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Indicates whether or not the output stream is set to block when reconnecting or when the backlog is full.
+     *
+     * @return {@code true} if blocking is enabled, otherwise {@code false}
+     */
+    public boolean isBlockOnReconnect() {
+        lock.lock();
+        try {
+            return blockOnReconnect;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Enables or disables blocking when reconnecting or when the backlog is full.
+     * <p/>
+     * If set to {@code true} the {@code write} methods will block until the stream is reconnected and the write fits
+     * in the backlog. If set to {@code false} writes which do not fit in the backlog are discarded.
+     *
+     * @param blockOnReconnect {@code true} to block, or {@code false} to discard writes which do not fit
+     */
+    public void setBlockOnReconnect(final boolean blockOnReconnect) {
+        lock.lock();
+        try {
+            this.blockOnReconnect = blockOnReconnect;
+            // blocked writers may no longer need to wait
+            backlogChanged.signalAll();
+            connectionChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the connected state of the TCP stream.
+     * <p/>
+     * The stream is said to be disconnected when an {@link java.io.IOException} occurs during a write. Otherwise a
+     * stream is considered connected.
+     *
+     * @return {@code true} if the stream is connected, otherwise {@code false}
+     */
+    public boolean isConnected() {
+        lock.lock();
+        try {
+            return connected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes in the backlog waiting to be written.
+     *
+     * @return the size of the backlog in bytes
+     */
+    public int getBacklogSize() {
+        lock.lock();
+        try {
+            return backlogSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of writes which were discarded because they did not fit in the backlog.
+     *
+     * @return the number of discarded writes
+     */
+    public long getDiscardedCount() {
+        lock.lock();
+        try {
+            return discarded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the errors occurred, if any, during a write or reconnect.
+     *
+     * @return a collection of errors or an empty list
+     */
+    public Collection<Exception> getErrors() {
+        synchronized (errors) {
+            if (!errors.isEmpty()) {
+                // drain the errors and return a list
+                final List<Exception> result = new ArrayList<Exception>(errors);
+                errors.clear();
+                return result;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private void addError(final Exception e) {
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                errors.addLast(e);
+            }
+        }
+    }
+
+    private class Writer implements Runnable {
+        private final ByteBuffer[] batch = new ByteBuffer[maxGather];
+
+        @Override
+        public void run() {
+            final ReentrantLock lock = NioTcpOutputStream.this.lock;
+            final ByteBuffer[] batch = this.batch;
+            for (;;) {
+                // Take the pending writes, leaving them in the backlog until they are written
+                int count = 0;
+                lock.lock();
+                try {
+                    while (backlog.isEmpty() && ! closed) {
+                        backlogChanged.awaitUninterruptibly();
+                    }
+                    if (backlog.isEmpty()) {
+                        // closed with nothing left to write
+                        break;
+                    }
+                    for (ByteBuffer buffer : backlog) {
+                        batch[count++] = buffer;
+                        if (count == maxGather) break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                int written = 0;
+                try {
+                    long remaining = 0L;
+                    for (int i = 0; i < count; i++) {
+                        remaining += batch[i].remaining();
+                    }
+                    final SocketChannel channel = NioTcpOutputStream.this.channel;
+                    while (remaining > 0L) {
+                        remaining -= channel.write(batch, 0, count);
+                    }
+                    written = count;
+                } catch (IOException e) {
+                    // Writes which were only partly sent are sent again in full after reconnecting
+                    while (written < count && ! batch[written].hasRemaining()) {
+                        written++;
+                    }
+                    for (int i = written; i < count; i++) {
+                        batch[i].rewind();
+                    }
+                    removeWritten(written);
+                    written = 0;
+                    if (! reconnect(e)) {
+                        break;
+                    }
+                }
+                removeWritten(written);
+                for (int i = 0; i < count; i++) {
+                    batch[i] = null;
+                }
+            }
+            SyslogHandler.safeClose(channel);
+        }
+
+        private void removeWritten(final int written) {
+            if (written == 0) {
+                return;
+            }
+            lock.lock();
+            try {
+                for (int i = 0; i < written; i++) {
+                    backlogSize -= backlog.removeFirst().limit();
+                }
+                backlogChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Reconnects the channel, retrying until it is connected or the stream is closed.
+         *
+         * @param cause the exception which caused the disconnect
+         *
+         * @return {@code true} if reconnected, or {@code false} if the stream was closed
+         */
+        private boolean reconnect(final IOException cause) {
+            final ReentrantLock lock = NioTcpOutputStream.this.lock;
+            lock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                connected = false;
+            } finally {
+                lock.unlock();
+            }
+            addError(cause);
+            SyslogHandler.safeClose(channel);
+            int attempts = 0;
+            for (;;) {
+                try {
+                    final SocketChannel channel = SocketChannel.open(address);
+                    lock.lock();
+                    try {
+                        NioTcpOutputStream.this.channel = channel;
+                        connected = true;
+                        connectionChanged.signalAll();
+                        return true;
+                    } finally {
+                        lock.unlock();
+                    }
+                } catch (IOException e) {
+                    addError(e);
+                    final long timeout;
+                    if (attempts++ > 0) {
+                        timeout = (10 * attempts);
+                    } else {
+                        timeout = retryTimeout;
+                    }
+                    // Wait for a bit, then try to reconnect unless closed in the meantime
+                    lock.lock();
+                    try {
+                        if (! closed) {
+                            connectionChanged.await(Math.min(timeout, maxRetryTimeout), TimeUnit.SECONDS);
+                        }
+                        if (closed) {
+                            return false;
+                        }
+                    } catch (InterruptedException ignore) {
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+}
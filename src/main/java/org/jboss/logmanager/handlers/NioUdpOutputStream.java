@@ -0,0 +1,316 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * An output stream that sends each write as a datagram through a {@link java.nio.channels.DatagramChannel
+ * DatagramChannel} from a dedicated I/O thread.
+ * <p/>
+ * Each {@link #write(byte[], int, int) write} is copied into a direct buffer taken from a fixed pool and queued for
+ * the I/O thread; a write larger than the pooled buffers is copied into a buffer of its own. A write is discarded if no
+ * pooled buffer is free, so writing never blocks. The {@link #getDiscardedCount() discarded} and {@link
+ * #getFailedCount() failed} counts show how many writes were lost and can be used to size the pool.
+ * <p/>
+ * If {@link #setPackMessages(boolean) packing} is enabled, writes which are waiting in the queue are packed together
+ * into a single datagram of up to the maximum packet size. This should only be enabled if the receiver accepts several
+ * messages in one datagram, see {@link SyslogHandler#setPackMessages(boolean)}.
+ */
+public class NioUdpOutputStream extends OutputStream implements FlushableCloseable {
+    /**
+     * The default number of pooled buffers, which is the number of writes which may wait to be sent.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 128;
+
+    /**
+     * The default size of each pooled buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * The default maximum size of a packed datagram, which fits an Ethernet frame after the IPv4 and UDP headers.
+     */
+    public static final int DEFAULT_MAX_PACKET_SIZE = 1472;
+
+    private static final long closeTimeout = 5L;
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+
+    private static final AtomicLongFieldUpdater<NioUdpOutputStream> discardedUpdater = AtomicLongFieldUpdater.newUpdater(NioUdpOutputStream.class, "discarded");
+
+    private final DatagramChannel channel;
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<ByteBuffer> queue;
+    private final ByteBuffer packet;
+    private final Thread ioThread;
+
+    private volatile boolean packMessages;
+    private volatile boolean closed;
+    @SuppressWarnings("unused")
+    private volatile long discarded;
+    // Only written by the I/O thread
+    private volatile long failed;
+    private volatile long sent;
+    private volatile long datagrams;
+
+    /**
+     * Creates a UDP output stream with the default queue, buffer and packet sizes.
+     *
+     * @param address the address to send to
+     * @param port    the port to send to
+     *
+     * @throws IOException if an I/O error occurs when opening the channel
+     */
+    public NioUdpOutputStream(final InetAddress address, final int port) throws IOException {
+        this(address, port, DEFAULT_QUEUE_SIZE, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_PACKET_SIZE);
+    }
+
+    /**
+     * Creates a UDP output stream.
+     *
+     * @param address       the address to send to
+     * @param port          the port to send to
+     * @param queueSize     the number of pooled buffers, which is the number of writes which may wait to be sent
+     * @param bufferSize    the size of each pooled buffer
+     * @param maxPacketSize the maximum size of a datagram when {@link #setPackMessages(boolean) packing} messages
+     *
+     * @throws IOException if an I/O error occurs when opening the channel
+     */
+    public NioUdpOutputStream(final InetAddress address, final int port, final int queueSize, final int bufferSize, final int maxPacketSize) throws IOException {
+        if (queueSize < 1 || bufferSize < 1 || maxPacketSize < 1) {
+            throw new IllegalArgumentException("The queue, buffer and packet sizes must be at least one");
+        }
+        this.bufferSize = bufferSize;
+        free = new ArrayBlockingQueue<ByteBuffer>(queueSize);
+        for (int i = 0; i < queueSize; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        // one more slot than buffers, so that closing can always be queued behind a full queue
+        queue = new ArrayBlockingQueue<ByteBuffer>(queueSize + 1);
+        packet = ByteBuffer.allocateDirect(maxPacketSize);
+        channel = DatagramChannel.open();
+        try {
+            channel.connect(new InetSocketAddress(address, port));
+        } catch (IOException e) {
+            SyslogHandler.safeClose(channel);
+            throw e;
+        }
+        ioThread = new Thread(new Sender());
+        ioThread.setDaemon(true);
+        ioThread.setName("LogManager Datagram Channel Sender Thread");
+        ioThread.start();
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b) throws IOException {
+        if (b != null) {
+            write(b, 0, b.length);
+        }
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (b == null || len == 0) {
+            return;
+        }
+        if (closed) {
+            throw new IOException("The stream has been closed");
+        }
+        final ByteBuffer buffer = len > bufferSize ? ByteBuffer.allocate(len) : free.poll();
+        if (buffer == null) {
+            discardedUpdater.getAndIncrement(this);
+            return;
+        }
+        buffer.clear();
+        buffer.put(b, off, len).flip();
+        if (! queue.offer(buffer)) {
+            release(buffer);
+            discardedUpdater.getAndIncrement(this);
+        }
+    }
+
+    /**
+     * Does nothing; queued writes are sent by the I/O thread as soon as it can.
+     */
+    @Override
+    public void flush() throws IOException {
+    }
+
+    /**
+     * Closes the stream, waiting a limited time for the queued writes to be sent before the channel is closed.
+     *
+     * @throws IOException if an error occurs closing the channel
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean interrupted = false;
+        try {
+            if (queue.offer(CLOSE, closeTimeout, TimeUnit.SECONDS)) {
+                ioThread.join(TimeUnit.SECONDS.toMillis(closeTimeout));
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        channel.close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Indicates whether queued writes are packed together into a single datagram.
+     *
+     * @return {@code true} if writes are packed, otherwise {@code false}
+     */
+    public boolean isPackMessages() {
+        return packMessages;
+    }
+
+    /**
+     * Enables or disables packing queued writes together into a single datagram of up to the maximum packet size. A
+     * write which is larger than the maximum packet size is always sent on its own.
+     * <p/>
+     * Only enable this if the receiver accepts several octet counted or delimited messages in one datagram.
+     *
+     * @param packMessages {@code true} to pack writes, otherwise {@code false}
+     */
+    public void setPackMessages(final boolean packMessages) {
+        this.packMessages = packMessages;
+    }
+
+    /**
+     * Returns the number of writes which were discarded because every pooled buffer was in use.
+     *
+     * @return the number of discarded writes
+     */
+    public long getDiscardedCount() {
+        return discarded;
+    }
+
+    /**
+     * Returns the number of writes which could not be sent, for example because the receiver was unreachable.
+     *
+     * @return the number of failed writes
+     */
+    public long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * Returns the number of writes which were sent.
+     *
+     * @return the number of sent writes
+     */
+    public long getSentCount() {
+        return sent;
+    }
+
+    /**
+     * Returns the number of datagrams which were sent, which is less than the {@link #getSentCount() sent writes} if
+     * writes were packed.
+     *
+     * @return the number of sent datagrams
+     */
+    public long getDatagramCount() {
+        return datagrams;
+    }
+
+    private void release(final ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            free.offer(buffer);
+        }
+    }
+
+    private class Sender implements Runnable {
+
+        @Override
+        public void run() {
+            final BlockingQueue<ByteBuffer> queue = NioUdpOutputStream.this.queue;
+            final ByteBuffer packet = NioUdpOutputStream.this.packet;
+            try {
+                for (;;) {
+                    ByteBuffer buffer;
+                    try {
+                        buffer = queue.take();
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                    if (buffer == CLOSE) {
+                        break;
+                    }
+                    if (! packMessages || buffer.remaining() > packet.capacity()) {
+                        send(buffer, 1);
+                        release(buffer);
+                        continue;
+                    }
+                    // Pack the writes which are already waiting
+                    packet.clear();
+                    packet.put(buffer);
+                    release(buffer);
+                    int count = 1;
+                    ByteBuffer next;
+                    while ((next = queue.peek()) != null && next != CLOSE && next.remaining() <= packet.remaining()) {
+                        queue.poll();
+                        packet.put(next);
+                        release(next);
+                        count++;
+                    }
+                    packet.flip();
+                    send(packet, count);
+                }
+            } catch (ClosedChannelException ignore) {
+                // closed without waiting for the queue to be sent
+            }
+        }
+
+        private void send(final ByteBuffer buffer, final int count) throws ClosedChannelException {
+            try {
+                channel.write(buffer);
+                sent += count;
+                datagrams++;
+            } catch (ClosedChannelException e) {
+                failed += count;
+                throw e;
+            } catch (IOException e) {
+                failed += count;
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.charset.Charset;
 
 import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
@@ -35,6 +36,7 @@ import java.util.logging.Formatter;
 public class OutputStreamHandler extends WriterHandler {
 
     private OutputStream outputStream;
+    private volatile boolean directEncoding;
 
     /**
      * Construct a new instance with no formatter.
@@ -92,6 +94,29 @@ public class OutputStreamHandler extends WriterHandler {
         }
     }
 
+    /**
+     * Determine whether records are encoded directly into bytes rather than going through a writer stack.
+     *
+     * @return {@code true} if direct encoding is enabled
+     */
+    public boolean isDirectEncoding() {
+        return directEncoding;
+    }
+
+    /**
+     * Specify whether records should be encoded directly into a reusable byte buffer rather than going through a
+     * {@code BufferedWriter} and an {@code OutputStreamWriter}.  Characters in the ASCII range are copied without
+     * invoking the charset encoder when the encoding is US-ASCII, ISO-8859-1 or UTF-8.  The setting takes effect the
+     * next time an output stream is set.
+     *
+     * @param directEncoding {@code true} to encode directly, {@code false} to use a writer stack
+     * @throws SecurityException if you do not have sufficient permission to invoke this operation
+     */
+    public void setDirectEncoding(final boolean directEncoding) throws SecurityException {
+        checkAccess(this);
+        this.directEncoding = directEncoding;
+    }
+
     /** {@inheritDoc}  Setting a writer will replace any target output stream. */
     public void setWriter(final Writer writer) {
         synchronized (outputLock) {
@@ -122,6 +147,16 @@ public class OutputStreamHandler extends WriterHandler {
 
     private void updateWriter(final OutputStream newOutputStream, final String encoding) throws UnsupportedEncodingException {
         final UninterruptibleOutputStream outputStream = new UninterruptibleOutputStream(newOutputStream);
+        if (directEncoding && newOutputStream != null) {
+            final Charset charset;
+            try {
+                charset = encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedEncodingException(encoding);
+            }
+            super.setWriter(new EncodingWriter(outputStream, charset));
+            return;
+        }
         super.setWriter(newOutputStream == null ? null : encoding == null ? new OutputStreamWriter(outputStream) : new OutputStreamWriter(outputStream, encoding));
     }
 }
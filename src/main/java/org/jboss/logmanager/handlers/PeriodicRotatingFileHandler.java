@@ -26,6 +26,7 @@ import java.util.Calendar;
 import java.util.TimeZone;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 import java.util.logging.ErrorManager;
 
@@ -40,6 +41,7 @@ public class PeriodicRotatingFileHandler extends FileHandler {
     private Period period = Period.NEVER;
     private long nextRollover = Long.MAX_VALUE;
     private TimeZone timeZone = TimeZone.getDefault();
+    private final FileRotator rotator = new FileRotator();
 
     /**
      * Construct a new instance with no formatter and no output file.
@@ -162,6 +164,71 @@ public class PeriodicRotatingFileHandler extends FileHandler {
         }
     }
 
+    /**
+     * Determine whether rotated files are renamed and compressed in the background.
+     *
+     * @return {@code true} if rotation is completed in the background
+     */
+    public boolean isRotateInBackground() {
+        synchronized (outputLock) {
+            return rotator.isBackground();
+        }
+    }
+
+    /**
+     * Specify whether rotated files should be renamed and compressed in the background.  When set, a rotation only
+     * moves the current file aside and opens a new one; any further renaming and the compression of the rotated file
+     * are done later on a background thread, so the time taken does not depend on the size of the file.
+     *
+     * @param rotateInBackground {@code true} to complete rotation in the background
+     */
+    public void setRotateInBackground(final boolean rotateInBackground) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            rotator.setBackground(rotateInBackground);
+        }
+    }
+
+    /**
+     * Determine whether rotated files are compressed.
+     *
+     * @return {@code true} if rotated files are compressed
+     */
+    public boolean isCompressRotated() {
+        synchronized (outputLock) {
+            return rotator.isCompress();
+        }
+    }
+
+    /**
+     * Specify whether rotated files should be compressed with gzip, which appends {@code .gz} to their names.
+     *
+     * @param compressRotated {@code true} to compress rotated files
+     */
+    public void setCompressRotated(final boolean compressRotated) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            rotator.setCompress(compressRotated);
+        }
+    }
+
+    /** {@inheritDoc}  Any rotation still being completed in the background is waited for. */
+    public void close() throws SecurityException {
+        super.close();
+        synchronized (outputLock) {
+            rotator.awaitCompletion();
+        }
+    }
+
+    /**
+     * Get the rotator which carries out the file operations of a rotation.
+     *
+     * @return the rotator
+     */
+    FileRotator getRotator() {
+        return rotator;
+    }
+
     /**
      * Returns the suffix to be used.
      *
@@ -177,9 +244,21 @@ public class PeriodicRotatingFileHandler extends FileHandler {
             // first, close the original file (some OSes won't let you move/rename a file that is open)
             setFile(null);
             // next, rotate it
-            file.renameTo(new File(file.getAbsolutePath() + nextSuffix));
+            final File rotated = new File(file.getAbsolutePath() + nextSuffix);
+            file.renameTo(rotated);
             // start new file
             setFile(file);
+            if (rotator.isCompress()) {
+                rotator.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            FileRotator.compress(rotated);
+                        } catch (IOException e) {
+                            reportError("Unable to compress rotated log file", e, ErrorManager.GENERIC_FAILURE);
+                        }
+                    }
+                });
+            }
         } catch (FileNotFoundException e) {
             reportError("Unable to rotate log file", e, ErrorManager.OPEN_FAILURE);
         }
@@ -21,6 +21,7 @@ package org.jboss.logmanager.handlers;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.logging.ErrorManager;
 
@@ -135,6 +136,12 @@ public class PeriodicSizeRotatingFileHandler extends PeriodicRotatingFileHandler
     @Override
     public void setOutputStream(final OutputStream outputStream) {
         synchronized (outputLock) {
+            if (outputStream instanceof MappedFileOutputStream) {
+                // a mapped file keeps track of its own size
+                this.outputStream = null;
+                super.setOutputStream(outputStream);
+                return;
+            }
             this.outputStream = outputStream == null ? null : new CountingOutputStream(outputStream);
             super.setOutputStream(this.outputStream);
         }
@@ -143,6 +150,12 @@ public class PeriodicSizeRotatingFileHandler extends PeriodicRotatingFileHandler
     @Override
     public void setFile(final File file) throws FileNotFoundException {
         synchronized (outputLock) {
+            if (file != null && maxBackupIndex > 0) {
+                // finish the background rotations which an earlier run left behind
+                for (File pending : getRotator().findPending(file)) {
+                    rotate(file, pending);
+                }
+            }
             // Check for a rotate
             if (rotateOnBoot && maxBackupIndex > 0 && file != null && file.exists() && file.length() > 0L) {
                 rotate(file);
@@ -177,6 +190,33 @@ public class PeriodicSizeRotatingFileHandler extends PeriodicRotatingFileHandler
         }
     }
 
+    /**
+     * Determine whether rotated files are numbered sequentially.
+     *
+     * @return {@code true} if rotated files are numbered sequentially
+     */
+    public boolean isSequentialBackups() {
+        synchronized (outputLock) {
+            return getRotator().isSequential();
+        }
+    }
+
+    /**
+     * Specify whether rotated files should be numbered sequentially.  By default, the most recent backup is always
+     * numbered {@code 1}, so every rotation renames each of the existing backups.  When set, each rotated file is
+     * instead given the next number of an ever increasing sequence, so that the highest number is the most recent, and
+     * the backups with the lowest numbers are deleted once there are more than the {@link #setMaxBackupIndex(int)
+     * maxBackupIndex}.  A rotation then costs a single rename regardless of the number of backups kept.
+     *
+     * @param sequentialBackups {@code true} to number rotated files sequentially
+     */
+    public void setSequentialBackups(final boolean sequentialBackups) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            getRotator().setSequential(sequentialBackups);
+        }
+    }
+
     /**
      * Set the rotation size, in bytes.
      *
@@ -205,7 +245,8 @@ public class PeriodicSizeRotatingFileHandler extends PeriodicRotatingFileHandler
     protected void preWrite(final ExtLogRecord record) {
         super.preWrite(record);
         final int maxBackupIndex = this.maxBackupIndex;
-        final long currentSize = (outputStream == null ? Long.MIN_VALUE : outputStream.currentSize);
+        final long mappedSize = getMappedFileSize();
+        final long currentSize = mappedSize != -1L ? mappedSize : (outputStream == null ? Long.MIN_VALUE : outputStream.currentSize);
         if (currentSize > rotateSize && maxBackupIndex > 0) {
             try {
                 final File file = getFile();
@@ -225,12 +266,31 @@ public class PeriodicSizeRotatingFileHandler extends PeriodicRotatingFileHandler
     }
 
     private void rotate(final File file) {
-        final File fileWithSuffix = new File(file.getAbsolutePath() + getNextSuffix());
-        // rotate.  First, drop the max file (if any), then move each file to the next higher slot.
-        new File(fileWithSuffix.getAbsolutePath() + "." + maxBackupIndex).delete();
-        for (int i = maxBackupIndex - 1; i >= 1; i--) {
-            new File(fileWithSuffix.getAbsolutePath() + "." + i).renameTo(new File(fileWithSuffix.getAbsolutePath() + "." + (i + 1)));
+        final File source;
+        if (getRotator().isBackground()) {
+            // move the file out of the way now; everything else happens in the background
+            source = FileRotator.pendingFile(file);
+            file.renameTo(source);
+        } else {
+            source = file;
         }
-        file.renameTo(new File(fileWithSuffix.getAbsolutePath() + ".1"));
+        rotate(file, source);
+    }
+
+    private void rotate(final File file, final File source) {
+        final String base = file.getAbsolutePath() + getNextSuffix();
+        final int maxBackupIndex = this.maxBackupIndex;
+        final FileRotator rotator = getRotator();
+        final boolean sequential = rotator.isSequential();
+        final boolean compress = rotator.isCompress();
+        rotator.execute(new Runnable() {
+            public void run() {
+                try {
+                    rotator.rotate(base, maxBackupIndex, source, sequential, compress);
+                } catch (IOException e) {
+                    reportError("Unable to compress rotated log file", e, ErrorManager.GENERIC_FAILURE);
+                }
+            }
+        });
     }
 }
@@ -0,0 +1,317 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.logmanager.handlers.AsyncHandler.WaitStrategy;
+
+/**
+ * A bounded, pre-allocated, lock-free blocking queue backed by a ring of slots.  Each slot carries a sequence number
+ * which tells producers and consumers whether it is ready to be written or read, so that any number of threads may
+ * offer and poll concurrently without taking a lock.  Blocking operations wait according to the configured
+ * {@link WaitStrategy}.
+ * <p/>
+ * The iterator is a weakly consistent snapshot which is only intended for diagnostic purposes.
+ *
+ * @param <E> the element type
+ */
+final class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    /**
+     * The number of times the {@link WaitStrategy#PARK} strategy spins before it parks.
+     */
+    private static final int SPINS = 64;
+    /**
+     * The {@link WaitStrategy#BUSY_SPIN} strategy yields once every this many spins, plus one.
+     */
+    private static final int BUSY_SPIN_YIELD_MASK = 0x3ff;
+    /**
+     * The longest a parked thread will sleep before checking the buffer again.  Producers are never signalled, and
+     * only one consumer at a time is registered for wake-up, so this bounds the latency of a missed signal.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final int capacity;
+    private final WaitStrategy waitStrategy;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+
+    // padding keeps the heavily written head and tail counters off the cache lines of the final fields and each other
+    @SuppressWarnings("unused")
+    private long p00, p01, p02, p03, p04, p05, p06;
+    @SuppressWarnings("unused")
+    private volatile long tail;
+    @SuppressWarnings("unused")
+    private long p10, p11, p12, p13, p14, p15, p16;
+    @SuppressWarnings("unused")
+    private volatile long head;
+    @SuppressWarnings("unused")
+    private long p20, p21, p22, p23, p24, p25, p26;
+
+    private volatile Thread waitingConsumer;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<RingBufferQueue> tailUpdater = AtomicLongFieldUpdater.newUpdater(RingBufferQueue.class, "tail");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<RingBufferQueue> headUpdater = AtomicLongFieldUpdater.newUpdater(RingBufferQueue.class, "head");
+
+    /**
+     * Construct a new instance.
+     *
+     * @param capacity the number of slots in the ring
+     * @param waitStrategy the strategy used by blocking operations
+     */
+    RingBufferQueue(final int capacity, final WaitStrategy waitStrategy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        if (waitStrategy == null) {
+            throw new NullPointerException("waitStrategy is null");
+        }
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
+        elements = new AtomicReferenceArray<E>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.lazySet(i, i);
+        }
+    }
+
+    /**
+     * Get the wait strategy used by this queue.
+     *
+     * @return the wait strategy
+     */
+    WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public boolean offer(final E e) {
+        if (e == null) {
+            throw new NullPointerException("e is null");
+        }
+        final int capacity = this.capacity;
+        final AtomicLongArray sequences = this.sequences;
+        long pos = tail;
+        for (;;) {
+            final int idx = (int) (pos % capacity);
+            final long dif = sequences.get(idx) - pos;
+            if (dif == 0L) {
+                if (tailUpdater.compareAndSet(this, pos, pos + 1)) {
+                    elements.lazySet(idx, e);
+                    sequences.set(idx, pos + 1);
+                    final Thread waiter = waitingConsumer;
+                    if (waiter != null) {
+                        LockSupport.unpark(waiter);
+                    }
+                    return true;
+                }
+                pos = tail;
+            } else if (dif < 0L) {
+                // the slot has not yet been consumed from the previous lap; we're full
+                return false;
+            } else {
+                pos = tail;
+            }
+        }
+    }
+
+    public E poll() {
+        final int capacity = this.capacity;
+        final AtomicLongArray sequences = this.sequences;
+        long pos = head;
+        for (;;) {
+            final int idx = (int) (pos % capacity);
+            final long dif = sequences.get(idx) - (pos + 1);
+            if (dif == 0L) {
+                if (headUpdater.compareAndSet(this, pos, pos + 1)) {
+                    final E e = elements.get(idx);
+                    elements.lazySet(idx, null);
+                    sequences.set(idx, pos + capacity);
+                    return e;
+                }
+                pos = head;
+            } else if (dif < 0L) {
+                // the slot has not yet been published; we're empty
+                return null;
+            } else {
+                pos = head;
+            }
+        }
+    }
+
+    public E peek() {
+        final long pos = head;
+        final int idx = (int) (pos % capacity);
+        return sequences.get(idx) == pos + 1 ? elements.get(idx) : null;
+    }
+
+    public void put(final E e) throws InterruptedException {
+        int idle = 0;
+        while (! offer(e)) {
+            idle = idle(idle, false, 0L);
+        }
+    }
+
+    public boolean offer(final E e, final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int idle = 0;
+        while (! offer(e)) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return false;
+            }
+            idle = idle(idle, false, remaining);
+        }
+        return true;
+    }
+
+    public E take() throws InterruptedException {
+        E e;
+        int idle = 0;
+        while ((e = poll()) == null) {
+            idle = idle(idle, true, 0L);
+        }
+        return e;
+    }
+
+    public E poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        int idle = 0;
+        while ((e = poll()) == null) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return null;
+            }
+            idle = idle(idle, true, remaining);
+        }
+        return e;
+    }
+
+    /**
+     * Wait a little while for the state of the ring to change.
+     *
+     * @param counter the number of times the caller has already waited
+     * @param consumer {@code true} if the caller is waiting for an element, {@code false} if it is waiting for space
+     * @param maxNanos the longest time to wait, or 0 for no limit
+     * @return the new wait counter
+     * @throws InterruptedException if the calling thread was interrupted
+     */
+    private int idle(final int counter, final boolean consumer, final long maxNanos) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        switch (waitStrategy) {
+            case BUSY_SPIN: {
+                // yield very occasionally so that an oversubscribed machine still makes progress
+                if ((counter & BUSY_SPIN_YIELD_MASK) == BUSY_SPIN_YIELD_MASK) {
+                    Thread.yield();
+                }
+                break;
+            }
+            case YIELD: {
+                Thread.yield();
+                break;
+            }
+            default: {
+                if (counter < SPINS) {
+                    break;
+                }
+                final long parkNanos = maxNanos == 0L ? MAX_PARK_NANOS : Math.min(maxNanos, MAX_PARK_NANOS);
+                if (consumer) {
+                    final Thread current = Thread.currentThread();
+                    waitingConsumer = current;
+                    // re-check after registering so that a concurrent offer cannot slip past us
+                    if (isEmpty()) {
+                        LockSupport.parkNanos(this, parkNanos);
+                    }
+                    if (waitingConsumer == current) {
+                        waitingConsumer = null;
+                    }
+                } else {
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+                return counter;
+            }
+        }
+        return counter + 1;
+    }
+
+    public int size() {
+        // read head first so that a concurrent poll can only make the result smaller than the true size
+        final long head = this.head;
+        final long size = tail - head;
+        return size < 0L ? 0 : size > capacity ? capacity : (int) size;
+    }
+
+    public boolean isEmpty() {
+        final long pos = head;
+        return sequences.get((int) (pos % capacity)) != pos + 1;
+    }
+
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    public int drainTo(final Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public int drainTo(final Collection<? super E> c, final int maxElements) {
+        if (c == null) {
+            throw new NullPointerException("c is null");
+        }
+        if (c == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    public Iterator<E> iterator() {
+        final List<E> snapshot = new ArrayList<E>();
+        final long tail = this.tail;
+        for (long pos = head; pos < tail; pos++) {
+            final int idx = (int) (pos % capacity);
+            if (sequences.get(idx) == pos + 1) {
+                final E e = elements.get(idx);
+                if (e != null) snapshot.add(e);
+            }
+        }
+        return snapshot.iterator();
+    }
+}
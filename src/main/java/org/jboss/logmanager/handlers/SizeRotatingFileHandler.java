@@ -22,6 +22,7 @@ package org.jboss.logmanager.handlers;
 import java.io.OutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import org.jboss.logmanager.ExtLogRecord;
 
 import java.text.SimpleDateFormat;
@@ -35,6 +36,7 @@ public class SizeRotatingFileHandler extends FileHandler {
     private CountingOutputStream outputStream;
     private boolean rotateOnBoot;
     private String suffix;
+    private final FileRotator rotator = new FileRotator();
 
     /**
      * Construct a new instance with no formatter and no output file.
@@ -126,6 +128,12 @@ public class SizeRotatingFileHandler extends FileHandler {
     /** {@inheritDoc} */
     public void setOutputStream(final OutputStream outputStream) {
         synchronized (outputLock) {
+            if (outputStream instanceof MappedFileOutputStream) {
+                // a mapped file keeps track of its own size
+                this.outputStream = null;
+                super.setOutputStream(outputStream);
+                return;
+            }
             this.outputStream = outputStream == null ? null : new CountingOutputStream(outputStream);
             super.setOutputStream(this.outputStream);
         }
@@ -134,6 +142,12 @@ public class SizeRotatingFileHandler extends FileHandler {
     /** {@inheritDoc} */
     public void setFile(final File file) throws FileNotFoundException {
         synchronized (outputLock) {
+            if (file != null && maxBackupIndex > 0) {
+                // finish the background rotations which an earlier run left behind
+                for (File pending : rotator.findPending(file)) {
+                    rotate(file, pending);
+                }
+            }
             // Check for a rotate
             if (rotateOnBoot && maxBackupIndex > 0 && file != null && file.exists() && file.length() > 0L) {
                 rotate(file);
@@ -168,6 +182,90 @@ public class SizeRotatingFileHandler extends FileHandler {
         }
     }
 
+    /**
+     * Determine whether rotated files are renamed and compressed in the background.
+     *
+     * @return {@code true} if rotation is completed in the background
+     */
+    public boolean isRotateInBackground() {
+        synchronized (outputLock) {
+            return rotator.isBackground();
+        }
+    }
+
+    /**
+     * Specify whether rotated files should be renamed and compressed in the background.  When set, a rotation only
+     * moves the current file aside and opens a new one; renaming the older backups, deleting the oldest one and
+     * compressing the rotated file are done later on a background thread, so the time taken does not depend on the
+     * number of backups or the size of the file.
+     *
+     * @param rotateInBackground {@code true} to complete rotation in the background
+     */
+    public void setRotateInBackground(final boolean rotateInBackground) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            rotator.setBackground(rotateInBackground);
+        }
+    }
+
+    /**
+     * Determine whether rotated files are compressed.
+     *
+     * @return {@code true} if rotated files are compressed
+     */
+    public boolean isCompressRotated() {
+        synchronized (outputLock) {
+            return rotator.isCompress();
+        }
+    }
+
+    /**
+     * Specify whether rotated files should be compressed with gzip, which appends {@code .gz} to their names.
+     *
+     * @param compressRotated {@code true} to compress rotated files
+     */
+    public void setCompressRotated(final boolean compressRotated) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            rotator.setCompress(compressRotated);
+        }
+    }
+
+    /** {@inheritDoc}  Any rotation still being completed in the background is waited for. */
+    public void close() throws SecurityException {
+        super.close();
+        synchronized (outputLock) {
+            rotator.awaitCompletion();
+        }
+    }
+
+    /**
+     * Determine whether rotated files are numbered sequentially.
+     *
+     * @return {@code true} if rotated files are numbered sequentially
+     */
+    public boolean isSequentialBackups() {
+        synchronized (outputLock) {
+            return rotator.isSequential();
+        }
+    }
+
+    /**
+     * Specify whether rotated files should be numbered sequentially.  By default, the most recent backup is always
+     * numbered {@code 1}, so every rotation renames each of the existing backups.  When set, each rotated file is
+     * instead given the next number of an ever increasing sequence, so that the highest number is the most recent, and
+     * the backups with the lowest numbers are deleted once there are more than the {@link #setMaxBackupIndex(int)
+     * maxBackupIndex}.  A rotation then costs a single rename regardless of the number of backups kept.
+     *
+     * @param sequentialBackups {@code true} to number rotated files sequentially
+     */
+    public void setSequentialBackups(final boolean sequentialBackups) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            rotator.setSequential(sequentialBackups);
+        }
+    }
+
     /**
      * Set the rotation size, in bytes.
      *
@@ -222,7 +320,8 @@ public class SizeRotatingFileHandler extends FileHandler {
     /** {@inheritDoc} */
     protected void preWrite(final ExtLogRecord record) {
         final int maxBackupIndex = this.maxBackupIndex;
-        final long currentSize = (outputStream == null ? Long.MIN_VALUE : outputStream.currentSize);
+        final long mappedSize = getMappedFileSize();
+        final long currentSize = mappedSize != -1L ? mappedSize : (outputStream == null ? Long.MIN_VALUE : outputStream.currentSize);
         if (currentSize > rotateSize && maxBackupIndex > 0) {
             try {
                 final File file = getFile();
@@ -242,25 +341,36 @@ public class SizeRotatingFileHandler extends FileHandler {
     }
 
     private void rotate(final File file) {
+        final File source;
+        if (rotator.isBackground()) {
+            // move the file out of the way now; everything else happens in the background
+            source = FileRotator.pendingFile(file);
+            file.renameTo(source);
+        } else {
+            source = file;
+        }
+        rotate(file, source);
+    }
+
+    private void rotate(final File file, final File source) {
+        final String base;
         if (suffix == null) {
-            // rotate.  First, drop the max file (if any), then move each file to the next higher slot.
-            new File(file.getAbsolutePath() + "." + maxBackupIndex).delete();
-            for (int i = maxBackupIndex - 1; i >= 1; i--) {
-                new File(file.getAbsolutePath() + "." + i).renameTo(new File(file.getAbsolutePath() + "." + (i + 1)));
-            }
-            file.renameTo(new File(file.getAbsolutePath() + ".1"));
+            base = file.getAbsolutePath();
         } else {
             // This is not efficient, but performance risks were noted on the setSuffix() method
-            final String suffix = new SimpleDateFormat(this.suffix).format(new Date());
-            // Create the file name
-            final String newBaseFilename = file.getAbsolutePath() + suffix;
-
-            // Rename any incremental files found
-            for (int i = maxBackupIndex - 1; i >= 1; i--) {
-                new File(newBaseFilename + "." + i).renameTo(new File(newBaseFilename + "." + (i + 1)));
-            }
-            // Rename the current file
-            file.renameTo(new File(newBaseFilename + ".1"));
+            base = file.getAbsolutePath() + new SimpleDateFormat(this.suffix).format(new Date());
         }
+        final int maxBackupIndex = this.maxBackupIndex;
+        final boolean sequential = rotator.isSequential();
+        final boolean compress = rotator.isCompress();
+        rotator.execute(new Runnable() {
+            public void run() {
+                try {
+                    rotator.rotate(base, maxBackupIndex, source, sequential, compress);
+                } catch (IOException e) {
+                    reportError("Unable to compress rotated log file", e, ErrorManager.GENERIC_FAILURE);
+                }
+            }
+        });
     }
 }
@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A size-capped journal of frames in a memory-mapped file.  Frames are appended after the last one and read back in
+ * the same order; the file is used as a ring, so once the frames at the start have been read, new frames which do not
+ * fit at the end wrap around to the start of the file.  Since the file is mapped, appended frames survive a crash of
+ * the JVM, and the frames which were not yet read are found again when the file is next opened.
+ * <p/>
+ * Each frame is stored as a four byte length followed by its content, and the frame after the last one always has a
+ * length of zero, so four bytes are kept free after the last frame.  A length of {@code -1} marks where the frames
+ * continue at the start of the file.  The file starts with a magic number and the position of the first frame which
+ * was not read.
+ * <p/>
+ * This class is not thread-safe.  The mapping cannot be released explicitly; it is released when it is garbage
+ * collected.
+ */
+final class SpoolFile implements Closeable {
+
+    private static final int MAGIC = 0x53504f4c;
+    private static final int HEADER_SIZE = 8;
+    private static final int READ_POSITION = 4;
+    private static final int WRAP = -1;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int readPosition;
+    private int writePosition;
+    private int peekedPosition;
+    private int size;
+    private int peekedSize;
+
+    /**
+     * Open a spool file, creating it if it does not exist.
+     *
+     * @param file the file
+     * @param maxSize the maximum size of the file in bytes
+     * @throws IOException if the file could not be opened or mapped
+     */
+    SpoolFile(final File file, final int maxSize) throws IOException {
+        if (maxSize < HEADER_SIZE + 8) {
+            throw new IllegalArgumentException("The maximum spool size must be at least " + (HEADER_SIZE + 8) + " bytes");
+        }
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        this.file = new RandomAccessFile(file, "rw");
+        boolean ok = false;
+        try {
+            buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, maxSize);
+            capacity = maxSize;
+            final int start = buffer.getInt(0) == MAGIC ? buffer.getInt(READ_POSITION) : 0;
+            if (start < HEADER_SIZE || start > capacity - 4) {
+                reset();
+            } else {
+                // find the end of the frames which were not read, which may continue at the start of the file
+                int position = start;
+                int limit = capacity;
+                int used = 0;
+                for (;;) {
+                    final int length = buffer.getInt(position);
+                    if (length == WRAP && limit == capacity && position > HEADER_SIZE) {
+                        position = HEADER_SIZE;
+                        limit = start;
+                    } else if (length > 0 && length <= limit - position - 8) {
+                        position += 4 + length;
+                        used += 4 + length;
+                    } else {
+                        break;
+                    }
+                }
+                readPosition = skipWrap(start);
+                writePosition = position;
+                size = used;
+                if (size == 0) {
+                    reset();
+                }
+            }
+            peekedPosition = readPosition;
+            ok = true;
+        } finally {
+            if (! ok) {
+                this.file.close();
+            }
+        }
+    }
+
+    private void reset() {
+        // clear the first frame before moving the read position, so that no stale frame is found after a crash
+        buffer.putInt(HEADER_SIZE, 0);
+        buffer.putInt(READ_POSITION, HEADER_SIZE);
+        buffer.putInt(0, MAGIC);
+        readPosition = writePosition = peekedPosition = HEADER_SIZE;
+        size = peekedSize = 0;
+    }
+
+    /**
+     * Determine whether every frame has been read.
+     *
+     * @return {@code true} if there are no frames to read
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the number of bytes used by the frames which were not read, including their lengths.
+     *
+     * @return the number of bytes used
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Append a frame.
+     *
+     * @param b the bytes
+     * @param off the offset of the frame
+     * @param len the length of the frame
+     * @return {@code true} if the frame was appended, or {@code false} if there is no room for it
+     */
+    boolean append(final byte[] b, final int off, final int len) {
+        if (len == 0) {
+            return true;
+        }
+        final int position = writePosition;
+        if (position < readPosition) {
+            // the frames already wrap around; the new frame must end before the first frame which was not read
+            if (len > readPosition - position - 8) {
+                return false;
+            }
+            writePosition = write(position, b, off, len);
+        } else if (len <= capacity - position - 8) {
+            writePosition = write(position, b, off, len);
+        } else {
+            // wrap around if the frames which were read at the start of the file left room for it
+            if (len > readPosition - HEADER_SIZE - 8) {
+                return false;
+            }
+            writePosition = write(HEADER_SIZE, b, off, len);
+            // the frame only becomes visible once the wrap is marked
+            buffer.putInt(position, WRAP);
+        }
+        size += 4 + len;
+        return true;
+    }
+
+    private int write(final int position, final byte[] b, final int off, final int len) {
+        final int end = position + 4 + len;
+        // the frame only becomes visible once its length is written
+        buffer.putInt(end, 0);
+        final ByteBuffer view = buffer.duplicate();
+        view.position(position + 4);
+        view.put(b, off, len);
+        buffer.putInt(position, len);
+        return end;
+    }
+
+    private int skipWrap(final int position) {
+        return buffer.getInt(position) == WRAP ? HEADER_SIZE : position;
+    }
+
+    /**
+     * Get the next frames which were not read, without removing them.  At least one frame is returned if the spool is
+     * not empty, even if it is longer than {@code maxBytes}; the frames are removed by {@link #remove()}.
+     *
+     * @param maxBytes the maximum number of bytes to return, unless the first frame is longer
+     * @return the contents of the frames, or {@code null} if the spool is empty
+     */
+    byte[] peek(final int maxBytes) {
+        if (isEmpty()) {
+            return null;
+        }
+        int position = readPosition;
+        int total = 0;
+        int frames = 0;
+        while (position != writePosition) {
+            final int length = buffer.getInt(position);
+            if (total > 0 && total + length > maxBytes) {
+                break;
+            }
+            total += length;
+            frames++;
+            position = skipWrap(position + 4 + length);
+        }
+        final byte[] result = new byte[total];
+        final ByteBuffer view = buffer.duplicate();
+        int offset = 0;
+        for (int frame = readPosition; frame != position; ) {
+            final int length = buffer.getInt(frame);
+            view.position(frame + 4);
+            view.get(result, offset, length);
+            offset += length;
+            frame = skipWrap(frame + 4 + length);
+        }
+        peekedPosition = position;
+        peekedSize = total + 4 * frames;
+        return result;
+    }
+
+    /**
+     * Remove the frames returned by the last {@link #peek(int)}.
+     */
+    void remove() {
+        size -= peekedSize;
+        peekedSize = 0;
+        if (size == 0) {
+            reset();
+        } else {
+            // frames may have wrapped around since they were peeked
+            readPosition = peekedPosition = skipWrap(peekedPosition);
+            buffer.putInt(READ_POSITION, readPosition);
+        }
+    }
+
+    /**
+     * Force the frames to the storage device.
+     */
+    void sync() {
+        buffer.force();
+    }
+
+    /**
+     * Force the frames to the storage device and close the file, so that the frames which were not read are found
+     * again when the file is next opened, even if the system stops.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A file output stream which can be forced to the storage device, and which is forced before it is closed so that
+ * nothing written to a file is lost when the file is rotated or the handler is closed.
+ */
+final class SyncFileOutputStream extends FileOutputStream implements Syncable {
+
+    // Held while forcing or closing the file, so that a sync from another thread never sees a closed descriptor
+    private final Object syncLock = new Object();
+    // Guarded by syncLock
+    private boolean closed;
+
+    SyncFileOutputStream(final File file, final boolean append) throws FileNotFoundException {
+        super(file, append);
+    }
+
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            if (! closed) {
+                // unlike FileChannel.force(), this cannot be interrupted
+                getFD().sync();
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            if (closed) {
+                return;
+            }
+            try {
+                getFD().sync();
+            } finally {
+                closed = true;
+                super.close();
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.jboss.logmanager.handlers;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -36,8 +37,10 @@ import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
 
+import org.jboss.logmanager.ExtFormatter;
 import org.jboss.logmanager.ExtHandler;
 import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Overrides;
 
 /**
  * A syslog handler for logging to syslogd.
@@ -129,6 +132,34 @@ import org.jboss.logmanager.ExtLogRecord;
  *          <td>{@code false}</td>
  *      </tr>
  *      <tr>
+ *          <td>nonBlocking</td>
+ *          <td>Whether or not {@link Protocol#TCP TCP} and {@link Protocol#UDP UDP} messages are written by a dedicated
+ * thread through a {@link NioTcpOutputStream socket channel} or {@link NioUdpOutputStream datagram channel}, so that
+ * the network does not block the threads that are logging. Does not apply to {@link Protocol#SSL_TCP SSL_TCP}.</td>
+ *          <td>{@code boolean}</td>
+ *          <td>{@code false}</td>
+ *      </tr>
+ *      <tr>
+ *          <td>packMessages</td>
+ *          <td>Whether or not {@link #setNonBlocking(boolean) non-blocking} {@link Protocol#UDP UDP} messages which are
+ * waiting to be sent are packed into as few datagrams as possible, see {@link #setPackMessages(boolean)}</td>
+ *          <td>{@code boolean}</td>
+ *          <td>{@code false}</td>
+ *      </tr>
+ *      <tr>
+ *          <td>spoolFile</td>
+ *          <td>The file which holds {@link Protocol#TCP TCP} or {@link Protocol#SSL_TCP SSL_TCP} messages while the
+ * connection is reestablished, see {@link #setSpoolFile(String)}</td>
+ *          <td>{@link java.lang.String String}</td>
+ *          <td>{@code null}</td>
+ *      </tr>
+ *      <tr>
+ *          <td>maxSpoolSize</td>
+ *          <td>The maximum size in bytes of the {@link #setSpoolFile(String) spool file}</td>
+ *          <td>{@code int}</td>
+ *          <td>16777216 (16m)</td>
+ *      </tr>
+ *      <tr>
  *          <td>truncate</td>
  *          <td>Whether or not a message, including the header, should truncate the message if the length in bytes is
  * greater than the {@link #setMaxLength(int) maximum length}. If set to {@code false} messages will be split and sent
@@ -303,7 +334,30 @@ public class SyslogHandler extends ExtHandler {
         }
     }
 
+    private static final String[] MONTHS = DateFormatSymbols.getInstance(Locale.ENGLISH).getShortMonths();
+
+    /**
+     * The space reserved at the start of the send buffer for an octet count and the space following it.
+     */
+    private static final int FRAMING_SPACE = 11;
+
+    /**
+     * The largest message builder kept between messages; a larger one is discarded once its message is sent.
+     */
+    private static final int MAX_RETAINED_MESSAGE = 0x10000;
+
     private final Object outputLock = new Object();
+    private final boolean customHeaders;
+    private final ByteStringBuilder sendBuffer = new ByteStringBuilder(FRAMING_SPACE + 2048);
+    private StringBuilder messageBuilder = new StringBuilder(256);
+    private byte[] trailer;
+    private byte[] staticHeader;
+    private SyslogType staticHeaderType;
+    private long rfc5424Second = Long.MIN_VALUE;
+    private byte[] rfc5424TimestampPrefix;
+    private byte[] rfc5424TimestampSuffix;
+    private long rfc3164Second = Long.MIN_VALUE;
+    private byte[] rfc3164Timestamp;
     private InetAddress serverAddress;
     private int port;
     private String appName;
@@ -321,6 +375,10 @@ public class SyslogHandler extends ExtHandler {
     private boolean truncate;
     private int maxLen;
     private boolean blockOnReconnect;
+    private boolean nonBlocking;
+    private boolean packMessages;
+    private String spoolFile;
+    private int maxSpoolSize = TcpOutputStream.DEFAULT_MAX_SPOOL_SIZE;
 
     /**
      * The default class constructor.
@@ -487,6 +545,7 @@ public class SyslogHandler extends ExtHandler {
             maxLen = 2048;
         }
         blockOnReconnect = false;
+        customHeaders = overridesHeaders(getClass());
     }
 
     @Override
@@ -501,88 +560,148 @@ public class SyslogHandler extends ExtHandler {
                 throw new IllegalStateException("The syslog handler has been closed.");
             }
             try {
-                // Create the header
-                final byte[] header;
+                // The header is written after the space reserved for the octet count
+                final ByteStringBuilder buffer = sendBuffer;
+                buffer.setLength(FRAMING_SPACE);
                 if (syslogType == SyslogType.RFC3164) {
-                    header = createRFC3164Header(record);
+                    if (customHeaders) {
+                        buffer.append(createRFC3164Header(record));
+                    } else {
+                        writeRFC3164Header(record, buffer);
+                    }
                 } else if (syslogType == SyslogType.RFC5424) {
-                    header = createRFC5424Header(record);
+                    if (customHeaders) {
+                        buffer.append(createRFC5424Header(record));
+                    } else {
+                        writeRFC5424Header(record, buffer);
+                    }
                 } else {
                     throw new IllegalStateException("The syslog type of '" + syslogType + "' is invalid.");
                 }
+                final int headerEnd = buffer.length();
+                final int headerLen = headerEnd - FRAMING_SPACE;
 
                 // Trailer in bytes
-                final byte[] trailer = delimiter == null ? new byte[] {0x00} : delimiter.getBytes();
+                final byte[] trailer = getTrailer();
 
-                // Buffer currently only has the header
-                final int maxMsgLen = maxLen - (header.length + (useDelimiter ? trailer.length : 0));
+                final int maxMsgLen = maxLen - (headerLen + (useDelimiter ? trailer.length : 0));
                 // Can't write the message if the header and trailer are bigger than the allowed length
                 if (maxMsgLen < 1) {
                     throw new IOException(String.format("The header and delimiter length, %d, is greater than the message length, %d, allows.",
-                            (header.length + (useDelimiter ? trailer.length : 0)), maxLen));
+                            (headerLen + (useDelimiter ? trailer.length : 0)), maxLen));
                 }
 
                 // Get the message
-                final Formatter formatter = getFormatter();
-                String logMsg;
-                if (formatter != null) {
-                    logMsg = formatter.format(record);
-                } else {
-                    logMsg = record.getFormattedMessage();
-                }
-                if (!Normalizer.isNormalized(logMsg, Form.NFKC)) {
-                    logMsg = Normalizer.normalize(logMsg, Form.NFKC);
-                }
-                // Create a message buffer
-                ByteStringBuilder message = new ByteStringBuilder(maxMsgLen);
-                // Write the message to the buffer, the len is the number of characters written
-                int len = message.write(logMsg, maxMsgLen);
-                sendMessage(header, message, trailer);
-                // If not truncating, chunk the message and send separately
-                if (!truncate && len < logMsg.length()) {
-                    while (len > 0) {
-                        // Get the next part of the message to write
-                        logMsg = logMsg.substring(len + 1);
-                        if (logMsg.isEmpty()) {
+                final CharSequence logMsg = normalize(formatMessage(record));
+                final int msgLen = logMsg.length();
+                final int limit = headerEnd + maxMsgLen;
+                // Write the message after the header, next is the index of the first character not written
+                int next = buffer.appendUtf8(logMsg, 0, limit);
+                sendMessage(trailer);
+                // If not truncating, chunk the message and send each part after the same header
+                if (!truncate) {
+                    while (next < msgLen) {
+                        buffer.setLength(headerEnd);
+                        final int start = next;
+                        next = buffer.appendUtf8(logMsg, start, limit);
+                        if (next == start) {
+                            // a single character is longer than the allowed length
                             break;
                         }
-                        message = new ByteStringBuilder(maxMsgLen);
-                        // Write the message to the buffer, the len is the number of characters written
-                        len = message.write(logMsg, maxMsgLen);
-                        sendMessage(header, message, trailer);
+                        sendMessage(trailer);
                     }
                 }
             } catch (IOException e) {
                 reportError("Could not write to syslog", e, ErrorManager.WRITE_FAILURE);
+            } finally {
+                if (messageBuilder.capacity() > MAX_RETAINED_MESSAGE) {
+                    messageBuilder = new StringBuilder(256);
+                }
             }
         }
         super.doPublish(record);
     }
 
     /**
-     * Writes the message to the output stream. The message buffer is cleared after it's written.
+     * Formats the record into the reusable message builder.
      *
-     * @param message the message to write
+     * @param record the record to format
+     *
+     * @return the message builder
+     */
+    private StringBuilder formatMessage(final ExtLogRecord record) {
+        final StringBuilder builder = messageBuilder;
+        builder.setLength(0);
+        final Formatter formatter = getFormatter();
+        if (formatter instanceof ExtFormatter) {
+            ((ExtFormatter) formatter).formatTo(builder, record);
+        } else if (formatter != null) {
+            builder.append(formatter.format(record));
+        } else {
+            record.appendFormattedMessage(builder);
+        }
+        return builder;
+    }
+
+    /**
+     * Normalizes the message to the NFKC form. A message of only US-ASCII characters is always normalized, so it is
+     * returned without asking the {@link Normalizer}.
+     *
+     * @param msg the message
+     *
+     * @return the normalized message
+     */
+    private static CharSequence normalize(final CharSequence msg) {
+        final int len = msg.length();
+        for (int i = 0; i < len; i++) {
+            if (msg.charAt(i) >= 0x80) {
+                return Normalizer.isNormalized(msg, Form.NFKC) ? msg : Normalizer.normalize(msg, Form.NFKC);
+            }
+        }
+        return msg;
+    }
+
+    private byte[] getTrailer() {
+        byte[] trailer = this.trailer;
+        if (trailer == null) {
+            trailer = this.trailer = (delimiter == null ? new byte[] {0x00} : delimiter.getBytes());
+        }
+        return trailer;
+    }
+
+    /**
+     * Writes the header and message in the send buffer to the output stream, followed by the trailer if the delimiter
+     * is used and preceded by the octet count if counting framing is used.
+     *
+     * @param trailer the trailer
      *
      * @throws IOException if there is an error writing the message
      */
-    private void sendMessage(final byte[] header, final ByteStringBuilder message, final byte[] trailer) throws IOException {
-        final ByteStringBuilder payload = new ByteStringBuilder(header.length + message.length());
+    private void sendMessage(final byte[] trailer) throws IOException {
+        final ByteStringBuilder buffer = sendBuffer;
+        if (useDelimiter) buffer.append(trailer);
+        int start = FRAMING_SPACE;
         // Prefix the size of the message if counting framing is being used
         if (useCountingFraming) {
-            int len = header.length + message.length() + (useDelimiter ? trailer.length : 0);
-            payload.append(len).append(' ');
+            buffer.setByteAt(--start, (byte) ' ');
+            int len = buffer.length() - FRAMING_SPACE;
+            do {
+                buffer.setByteAt(--start, (byte) ('0' + len % 10));
+                len /= 10;
+            } while (len > 0);
         }
-        payload.append(header);
-        payload.append(message);
-        if (useDelimiter) payload.append(trailer);
-        out.write(payload.toArray());
+        buffer.writeTo(out, start);
         // If this is a TcpOutputStream print any errors that may have occurred
+        final Collection<Exception> errors;
         if (out instanceof TcpOutputStream) {
-            final Collection<Exception> errors = ((TcpOutputStream) out).getErrors();
-            for (Exception error : errors) {
-                reportError("Error writing to TCP stream", error, ErrorManager.WRITE_FAILURE);
-            }
+            errors = ((TcpOutputStream) out).getErrors();
+        } else if (out instanceof NioTcpOutputStream) {
+            errors = ((NioTcpOutputStream) out).getErrors();
+        } else {
+            return;
+        }
+        for (Exception error : errors) {
+            reportError("Error writing to TCP stream", error, ErrorManager.WRITE_FAILURE);
         }
     }
 
@@ -626,6 +745,7 @@ public class SyslogHandler extends ExtHandler {
         checkAccess(this);
         synchronized (outputLock) {
             this.appName = appName;
+            staticHeader = null;
         }
     }
 
@@ -658,10 +778,147 @@ public class SyslogHandler extends ExtHandler {
             this.blockOnReconnect = blockOnReconnect;
             if (out instanceof TcpOutputStream) {
                 ((TcpOutputStream) out).setBlockOnReconnect(blockOnReconnect);
+            } else if (out instanceof NioTcpOutputStream) {
+                ((NioTcpOutputStream) out).setBlockOnReconnect(blockOnReconnect);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether or not {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#TCP TCP} and {@link
+     * org.jboss.logmanager.handlers.SyslogHandler.Protocol#UDP UDP} messages are written by a dedicated thread through
+     * a {@link NioTcpOutputStream socket channel} or {@link NioUdpOutputStream datagram channel}.
+     *
+     * @return {@code true} if messages are written by a dedicated thread, otherwise {@code false}
+     */
+    public boolean isNonBlocking() {
+        synchronized (outputLock) {
+            return nonBlocking;
+        }
+    }
+
+    /**
+     * Enables or disables writing {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#TCP TCP} and {@link
+     * org.jboss.logmanager.handlers.SyslogHandler.Protocol#UDP UDP} messages from a dedicated thread through a {@link
+     * NioTcpOutputStream socket channel} or {@link NioUdpOutputStream datagram channel}.
+     * <p/>
+     * When enabled, messages are added to a bounded backlog and the {@code publish} methods return without waiting for
+     * the server. Messages waiting in the backlog are written together. While a TCP connection is reestablished, new
+     * messages keep being added to the backlog and are sent once reconnected; only when the backlog is full are new
+     * messages discarded. If {@link #setBlockOnReconnect(boolean) block on reconnect} is {@code true}, the {@code
+     * publish} methods instead wait until the connection is reestablished and the message fits in the backlog. For UDP,
+     * messages are always discarded when the backlog is full, and the waiting messages are packed into as few datagrams
+     * as possible if {@link #setPackMessages(boolean) packing} is enabled.
+     * <p/>
+     * This does not apply to {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#SSL_TCP SSL TCP}, whose
+     * messages are always written by the publishing thread. Changing this value reconnects on the next message.
+     *
+     * @param nonBlocking {@code true} to write messages from a dedicated thread, otherwise {@code false}
+     */
+    public void setNonBlocking(final boolean nonBlocking) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            if (this.nonBlocking != nonBlocking) {
+                this.nonBlocking = nonBlocking;
+                initializeConnection = true;
             }
         }
     }
 
+    /**
+     * Indicates whether or not {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#UDP UDP} messages waiting to
+     * be sent by a {@link #setNonBlocking(boolean) non-blocking} handler are packed into as few datagrams as possible.
+     *
+     * @return {@code true} if messages are packed, otherwise {@code false}
+     */
+    public boolean isPackMessages() {
+        synchronized (outputLock) {
+            return packMessages;
+        }
+    }
+
+    /**
+     * Enables or disables packing {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#UDP UDP} messages which
+     * are waiting to be sent by a {@link #setNonBlocking(boolean) non-blocking} handler into as few datagrams as
+     * possible. This has no effect for other protocols or if the handler is blocking.
+     * <p/>
+     * A receiver must be able to split a datagram back into messages, so this should only be enabled if the server
+     * accepts several messages in one datagram and the messages are {@link #setUseCountingFraming(boolean) octet
+     * counted} or {@link #setUseMessageDelimiter(boolean) delimited}.
+     *
+     * @param packMessages {@code true} to pack messages, otherwise {@code false}
+     *
+     * @throws SecurityException if a security manager exists and if the caller does not have {@code
+     *                           LoggingPermission(control)} or the handler is {@link #protect(Object) protected}
+     */
+    public void setPackMessages(final boolean packMessages) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            this.packMessages = packMessages;
+            if (out instanceof NioUdpOutputStream) {
+                ((NioUdpOutputStream) out).setPackMessages(packMessages);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the file which holds messages while a {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#TCP
+     * TCP} or {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#SSL_TCP SSL TCP} connection is reestablished.
+     *
+     * @return the spool file name or {@code null} if messages are not spooled
+     */
+    public String getSpoolFile() {
+        synchronized (outputLock) {
+            return spoolFile;
+        }
+    }
+
+    /**
+     * Sets the name of the file which holds messages while a {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#TCP
+     * TCP} or {@link org.jboss.logmanager.handlers.SyslogHandler.Protocol#SSL_TCP SSL TCP} connection is reestablished.
+     * <p/>
+     * When set, messages are appended to the memory-mapped spool file while the connection is down, and the {@code
+     * publish} methods do not block. Once reconnected, the spooled messages are sent in order before any new message.
+     * Messages left in the file when the handler is closed are sent when the same file is used again. If the spool is
+     * full, new messages are discarded unless {@link #setBlockOnReconnect(boolean) block on reconnect} is {@code true}.
+     * This has no effect on a {@link #setNonBlocking(boolean) non-blocking} connection. Changing this value reconnects
+     * on the next message.
+     *
+     * @param spoolFile the spool file name or {@code null} to not spool messages
+     */
+    public void setSpoolFile(final String spoolFile) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            this.spoolFile = spoolFile;
+            initializeConnection = true;
+        }
+    }
+
+    /**
+     * Returns the maximum size in bytes of the {@link #setSpoolFile(String) spool file}.
+     *
+     * @return the maximum spool size
+     */
+    public int getMaxSpoolSize() {
+        synchronized (outputLock) {
+            return maxSpoolSize;
+        }
+    }
+
+    /**
+     * Sets the maximum size in bytes of the {@link #setSpoolFile(String) spool file}. Changing this value reconnects on
+     * the next message.
+     *
+     * @param maxSpoolSize the maximum spool size
+     */
+    public void setMaxSpoolSize(final int maxSpoolSize) {
+        checkAccess(this);
+        synchronized (outputLock) {
+            this.maxSpoolSize = maxSpoolSize;
+            initializeConnection = true;
+        }
+    }
+
     /**
      * Checks whether or not characters below decimal 32, traditional US-ASCII control values expect {@code DEL}, are
      * being escaped or not.
@@ -816,6 +1073,7 @@ public class SyslogHandler extends ExtHandler {
         checkAccess(this);
         synchronized (outputLock) {
             this.delimiter = delimiter;
+            trailer = null;
         }
     }
 
@@ -866,6 +1124,7 @@ public class SyslogHandler extends ExtHandler {
         }
         synchronized (outputLock) {
             this.hostname = hostname;
+            staticHeader = null;
         }
     }
 
@@ -1097,14 +1356,40 @@ public class SyslogHandler extends ExtHandler {
             // Check the sockets
             try {
                 if (protocol == Protocol.TCP) {
-                    out = new TcpOutputStream(serverAddress, port, blockOnReconnect);
+                    if (nonBlocking) {
+                        out = new NioTcpOutputStream(serverAddress, port, blockOnReconnect);
+                    } else {
+                        out = new TcpOutputStream(serverAddress, port, blockOnReconnect);
+                    }
                 } else if (protocol == Protocol.UDP) {
-                    out = new UdpOutputStream(serverAddress, port);
+                    if (nonBlocking) {
+                        final NioUdpOutputStream udp = new NioUdpOutputStream(serverAddress, port);
+                        udp.setPackMessages(packMessages);
+                        out = udp;
+                    } else {
+                        out = new UdpOutputStream(serverAddress, port);
+                    }
                 } else if (protocol == Protocol.SSL_TCP) {
                     out = new SslTcpOutputStream(serverAddress, port, blockOnReconnect);
                 } else {
                     throw new IllegalStateException("Invalid protocol: " + protocol);
                 }
+                if (spoolFile != null && out instanceof TcpOutputStream) {
+                    // The old stream may still be replaying the same spool file, so it is closed before the file is
+                    // opened again; otherwise both would send and remove the same frames
+                    final OutputStream oldOut = this.out;
+                    this.out = null;
+                    safeFlush(oldOut);
+                    safeClose(oldOut);
+                    try {
+                        ((TcpOutputStream) out).setSpool(new File(spoolFile), maxSpoolSize);
+                    } catch (IOException e) {
+                        safeClose(out);
+                        // try again with the next message
+                        initializeConnection = true;
+                        throw e;
+                    }
+                }
                 setOutputStream(out, false);
             } catch (IOException e) {
                 throw new IllegalStateException("Could not set " + protocol + " output stream.", e);
@@ -1120,6 +1405,21 @@ public class SyslogHandler extends ExtHandler {
 
     protected byte[] createRFC5424Header(final ExtLogRecord record) throws IOException {
         final ByteStringBuilder buffer = new ByteStringBuilder(256);
+        synchronized (outputLock) {
+            writeRFC5424Header(record, buffer);
+        }
+        return buffer.toArray();
+    }
+
+    protected byte[] createRFC3164Header(final ExtLogRecord record) throws IOException {
+        final ByteStringBuilder buffer = new ByteStringBuilder(256);
+        synchronized (outputLock) {
+            writeRFC3164Header(record, buffer);
+        }
+        return buffer.toArray();
+    }
+
+    private void writeRFC5424Header(final ExtLogRecord record, final ByteStringBuilder buffer) {
         // Set the property
         buffer.append('<').append(calculatePriority(record.getLevel(), facility)).append('>');
         // Set the version
@@ -1129,86 +1429,24 @@ public class SyslogHandler extends ExtHandler {
         if (millis <= 0) {
             buffer.appendUSASCII(NILVALUE_SP);
         } else {
-            // The follow can be changed to use a formatter with Java 7 pattern is yyyy-MM-dd'T'hh:mm:ss.SSSXXX
-            final Calendar cal = Calendar.getInstance();
-            cal.setTimeInMillis(millis);
-            final int month = cal.get(Calendar.MONTH);
-            final int day = cal.get(Calendar.DAY_OF_MONTH);
-            final int hours = cal.get(Calendar.HOUR_OF_DAY);
-            final int minutes = cal.get(Calendar.MINUTE);
-            final int seconds = cal.get(Calendar.SECOND);
-            buffer.append(cal.get(Calendar.YEAR)).append('-');
-            if (month < 10) {
-                buffer.append(0);
+            // The date and time zone only change with the second, so only the milliseconds are written every time
+            final long second = millis / 1000L;
+            if (second != rfc5424Second || rfc5424TimestampPrefix == null) {
+                createRFC5424Timestamp(millis);
+                rfc5424Second = second;
             }
-            buffer.append(month + 1).append('-');
-            if (day < 10) {
-                buffer.append(0);
-            }
-            buffer.append(day).append('T');
-            if (hours < 10) {
-                buffer.append(0);
-            }
-            buffer.append(hours).append(':');
-            if (minutes < 10) {
-                buffer.append(0);
-            }
-            buffer.append(minutes).append(':');
-            if (seconds < 10) {
-                buffer.append(0);
-            }
-            buffer.append(seconds).append('.');
-            final int milliseconds = cal.get(Calendar.MILLISECOND);
+            buffer.append(rfc5424TimestampPrefix);
+            final int milliseconds = (int) (millis % 1000L);
             if (milliseconds < 10) {
                 buffer.append(0).append(0);
             } else if (milliseconds < 100) {
                 buffer.append(0);
             }
             buffer.append(milliseconds);
-            final int tz = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
-            if (tz == 0) {
-                buffer.append("+00:00");
-            } else {
-                int tzMinutes = tz / 60000; // milliseconds to minutes
-                if (tzMinutes < 0) {
-                    tzMinutes = -tzMinutes;
-                    buffer.append('-');
-                } else {
-                    buffer.append('+');
-                }
-                final int tzHour = tzMinutes / 60; // minutes to hours
-                tzMinutes -= tzHour * 60; // subtract hours from minutes in minutes
-                if (tzHour < 10) {
-                    buffer.append(0);
-                }
-                buffer.append(tzHour).append(':');
-                if (tzMinutes < 10) {
-                    buffer.append(0);
-                }
-                buffer.append(tzMinutes);
-            }
-            buffer.append(' ');
-        }
-        // Set the host name
-        if (hostname == null) {
-            buffer.append(NILVALUE_SP);
-        } else {
-            buffer.appendUSASCII(hostname, 255).append(' ');
-        }
-        // Set the app name
-        if (appName == null) {
-            buffer.appendUSASCII(NILVALUE_SP);
-        } else {
-            buffer.appendUSASCII(appName, 48);
-            buffer.append(' ');
-        }
-        // Set the procid
-        if (pid == null) {
-            buffer.appendUSASCII(NILVALUE_SP);
-        } else {
-            buffer.appendUSASCII(pid, 128);
-            buffer.append(' ');
+            buffer.append(rfc5424TimestampSuffix);
         }
+        // Set the host name, app name and procid
+        buffer.append(getStaticHeader(SyslogType.RFC5424));
         // Set the msgid
         final String msgid = record.getLoggerName();
         if (msgid == null) {
@@ -1227,25 +1465,95 @@ public class SyslogHandler extends ExtHandler {
         if (encoding == null || DEFAULT_ENCODING.equalsIgnoreCase(encoding)) {
             buffer.appendUtf8Raw(0xFEFF);
         }
-        return buffer.toArray();
     }
 
-    protected byte[] createRFC3164Header(final ExtLogRecord record) throws IOException {
-        final ByteStringBuilder buffer = new ByteStringBuilder(256);
+    private void createRFC5424Timestamp(final long millis) {
+        // The follow can be changed to use a formatter with Java 7 pattern is yyyy-MM-dd'T'hh:mm:ss.SSSXXX
+        final Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(millis);
+        final int month = cal.get(Calendar.MONTH) + 1;
+        final int day = cal.get(Calendar.DAY_OF_MONTH);
+        final int hours = cal.get(Calendar.HOUR_OF_DAY);
+        final int minutes = cal.get(Calendar.MINUTE);
+        final int seconds = cal.get(Calendar.SECOND);
+        final ByteStringBuilder buffer = new ByteStringBuilder(32);
+        buffer.append(cal.get(Calendar.YEAR)).append('-');
+        if (month < 10) {
+            buffer.append(0);
+        }
+        buffer.append(month).append('-');
+        if (day < 10) {
+            buffer.append(0);
+        }
+        buffer.append(day).append('T');
+        if (hours < 10) {
+            buffer.append(0);
+        }
+        buffer.append(hours).append(':');
+        if (minutes < 10) {
+            buffer.append(0);
+        }
+        buffer.append(minutes).append(':');
+        if (seconds < 10) {
+            buffer.append(0);
+        }
+        buffer.append(seconds).append('.');
+        rfc5424TimestampPrefix = buffer.toArray();
+        buffer.setLength(0);
+        final int tz = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
+        if (tz == 0) {
+            buffer.append("+00:00");
+        } else {
+            int tzMinutes = tz / 60000; // milliseconds to minutes
+            if (tzMinutes < 0) {
+                tzMinutes = -tzMinutes;
+                buffer.append('-');
+            } else {
+                buffer.append('+');
+            }
+            final int tzHour = tzMinutes / 60; // minutes to hours
+            tzMinutes -= tzHour * 60; // subtract hours from minutes in minutes
+            if (tzHour < 10) {
+                buffer.append(0);
+            }
+            buffer.append(tzHour).append(':');
+            if (tzMinutes < 10) {
+                buffer.append(0);
+            }
+            buffer.append(tzMinutes);
+        }
+        buffer.append(' ');
+        rfc5424TimestampSuffix = buffer.toArray();
+    }
+
+    private void writeRFC3164Header(final ExtLogRecord record, final ByteStringBuilder buffer) {
         // Set the property
         buffer.append('<').append(calculatePriority(record.getLevel(), facility)).append('>');
 
         // Set the time
-        final long millis = record.getMillis();
+        final long recordMillis = record.getMillis();
+        final long millis = (recordMillis <= 0 ? System.currentTimeMillis() : recordMillis);
+        final long second = millis / 1000L;
+        if (second != rfc3164Second || rfc3164Timestamp == null) {
+            createRFC3164Timestamp(millis);
+            rfc3164Second = second;
+        }
+        buffer.append(rfc3164Timestamp);
+
+        // Set the host name, app name and proc id
+        buffer.append(getStaticHeader(SyslogType.RFC3164));
+    }
+
+    private void createRFC3164Timestamp(final long millis) {
         final Calendar cal = Calendar.getInstance();
-        cal.setTimeInMillis((millis <= 0 ? System.currentTimeMillis() : millis));
+        cal.setTimeInMillis(millis);
         final int month = cal.get(Calendar.MONTH);
         final int day = cal.get(Calendar.DAY_OF_MONTH);
         final int hours = cal.get(Calendar.HOUR_OF_DAY);
         final int minutes = cal.get(Calendar.MINUTE);
         final int seconds = cal.get(Calendar.SECOND);
-        final DateFormatSymbols formatSymbols = DateFormatSymbols.getInstance(Locale.ENGLISH);
-        buffer.appendUSASCII(formatSymbols.getShortMonths()[month]).append(' ');
+        final ByteStringBuilder buffer = new ByteStringBuilder(32);
+        buffer.appendUSASCII(MONTHS[month]).append(' ');
         if (day < 10) {
             buffer.append(' ');
         }
@@ -1263,22 +1571,75 @@ public class SyslogHandler extends ExtHandler {
         }
         buffer.append(seconds);
         buffer.append(' ');
+        rfc3164Timestamp = buffer.toArray();
+    }
 
-        // Set the host name
-        if (hostname == null) {
-            // TODO might not be the best solution
-            buffer.appendUSASCII("UNKNOWN_HOSTNAME").append(' ');
-        } else {
-            buffer.appendUSASCII(hostname).append(' ');
+    /**
+     * Gets the part of the header which is the same for every message; the host name, app name and proc id.
+     *
+     * @param syslogType the syslog type of the header
+     *
+     * @return the static part of the header
+     */
+    private byte[] getStaticHeader(final SyslogType syslogType) {
+        byte[] staticHeader = this.staticHeader;
+        if (staticHeader != null && staticHeaderType == syslogType) {
+            return staticHeader;
         }
-        // Set the app name and the proc id
-        if (appName != null && pid != null) {
-            buffer.appendUSASCII(appName).append('[').appendUSASCII(pid).append(']').appendUSASCII(": ");
-        } else if (appName != null) {
-            buffer.append(appName).append(": ");
-        } else if (pid != null) {
-            buffer.append('[').appendUSASCII(pid).append(']').append(": ");
+        final ByteStringBuilder buffer = new ByteStringBuilder(64);
+        if (syslogType == SyslogType.RFC5424) {
+            // Set the host name
+            if (hostname == null) {
+                buffer.append(NILVALUE_SP);
+            } else {
+                buffer.appendUSASCII(hostname, 255).append(' ');
+            }
+            // Set the app name
+            if (appName == null) {
+                buffer.appendUSASCII(NILVALUE_SP);
+            } else {
+                buffer.appendUSASCII(appName, 48);
+                buffer.append(' ');
+            }
+            // Set the procid
+            if (pid == null) {
+                buffer.appendUSASCII(NILVALUE_SP);
+            } else {
+                buffer.appendUSASCII(pid, 128);
+                buffer.append(' ');
+            }
+        } else {
+            // Set the host name
+            if (hostname == null) {
+                // TODO might not be the best solution
+                buffer.appendUSASCII("UNKNOWN_HOSTNAME").append(' ');
+            } else {
+                buffer.appendUSASCII(hostname).append(' ');
+            }
+            // Set the app name and the proc id
+            if (appName != null && pid != null) {
+                buffer.appendUSASCII(appName).append('[').appendUSASCII(pid).append(']').appendUSASCII(": ");
+            } else if (appName != null) {
+                buffer.append(appName).append(": ");
+            } else if (pid != null) {
+                buffer.append('[').appendUSASCII(pid).append(']').append(": ");
+            }
         }
-        return buffer.toArray();
+        staticHeader = this.staticHeader = buffer.toArray();
+        staticHeaderType = syslogType;
+        return staticHeader;
+    }
+
+    /**
+     * Checks whether a subclass overrides the methods which create the headers, in which case the headers it creates
+     * are used rather than the headers written directly to the send buffer.
+     *
+     * @param type the handler type
+     *
+     * @return {@code true} if either header method is overridden, otherwise {@code false}
+     */
+    private static boolean overridesHeaders(final Class<?> type) {
+        return Overrides.isOverridden(type, SyslogHandler.class, "createRFC5424Header", ExtLogRecord.class)
+                || Overrides.isOverridden(type, SyslogHandler.class, "createRFC3164Header", ExtLogRecord.class);
     }
 }
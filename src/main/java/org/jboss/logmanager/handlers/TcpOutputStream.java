@@ -19,6 +19,7 @@
 
 package org.jboss.logmanager.handlers;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
@@ -41,6 +42,12 @@ import javax.net.SocketFactory;
  * additional writes are discarded when reconnecting. If you set the {@link #setBlockOnReconnect(boolean) block on
  * reconnect} to {@code true}, then the reconnect will indefinitely block until the TCP stream is reconnected.
  * <p/>
+ * If a {@link #setSpool(java.io.File, int) spool} is set, writes made while the stream is reconnecting are appended to
+ * the spool file instead, and the reconnect is always done asynchronously. Once reconnected, the spooled writes are
+ * replayed in order before any new write is sent. Writes made during the replay are spooled behind them. A write which
+ * does not fit in the spool is discarded, or if {@link #setBlockOnReconnect(boolean) block on reconnect} is {@code
+ * true}, waits until the spool has been replayed.
+ * <p/>
  * You can optionally get a collection of the errors that occurred during a write or reconnect.
  *
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
@@ -49,6 +56,12 @@ public class TcpOutputStream extends OutputStream implements FlushableCloseable
     private static final long retryTimeout = 5L;
     private static final long maxRetryTimeout = 40L;
     private static final int maxErrors = 10;
+    private static final int maxReplay = 0x10000;
+
+    /**
+     * The default maximum size of a spool file.
+     */
+    public static final int DEFAULT_MAX_SPOOL_SIZE = 16 << 20;
 
     protected final Object outputLock = new Object();
 
@@ -64,6 +77,14 @@ public class TcpOutputStream extends OutputStream implements FlushableCloseable
     private Socket socket;
     // Guarded by outputLock
     private boolean connected;
+    // Guarded by outputLock
+    private SpoolFile spool;
+    // Guarded by outputLock, writes are spooled while this is true
+    private boolean spooling;
+    // Guarded by outputLock, the connection on which the spool is being replayed
+    private Socket replaySocket;
+    // Guarded by outputLock
+    private boolean closed;
 
     /**
      * Creates a TCP output stream.
@@ -167,6 +188,15 @@ public class TcpOutputStream extends OutputStream implements FlushableCloseable
     @Override
     public void write(final byte[] b, final int off, final int len) throws IOException {
         synchronized (outputLock) {
+            if (spool != null) {
+                if (closed) {
+                    throw new IOException("The stream has been closed");
+                }
+                if (spooling) {
+                    spool(b, off, len);
+                    return;
+                }
+            }
             try {
                 if (connected) {
                     socket.getOutputStream().write(b, off, len);
@@ -180,7 +210,11 @@ public class TcpOutputStream extends OutputStream implements FlushableCloseable
                         socket.getOutputStream().close();
                     } catch (IOException ignore) {
                     }
-                    if (blockOnReconnect) {
+                    if (spool != null) {
+                        // The write may have been partly sent, it is sent again in full after reconnecting
+                        startSpooling();
+                        spool(b, off, len);
+                    } else if (blockOnReconnect) {
                         reconnectThread.run();
                         // We should be reconnected, try to write again
                         write(b, off, len);
@@ -204,7 +238,114 @@ public class TcpOutputStream extends OutputStream implements FlushableCloseable
     @Override
     public void close() throws IOException {
         synchronized (outputLock) {
-            socket.getOutputStream().close();
+            closed = true;
+            outputLock.notifyAll();
+            // Abort a replay in progress, so that the spool file may be replayed by another stream
+            SyslogHandler.safeClose(replaySocket);
+            replaySocket = null;
+            try {
+                socket.getOutputStream().close();
+            } finally {
+                closeSpool();
+            }
+        }
+    }
+
+    /**
+     * Sets the spool used to hold writes while reconnecting, replacing any previous spool. Writes which remain in the
+     * spool file when the stream is closed, or when the JVM stops, are replayed when the same file is used again.
+     * <p/>
+     * If the spool file already holds writes, the stream reconnects and replays them before any new write is sent.
+     *
+     * @param file    the spool file, or {@code null} to stop spooling
+     * @param maxSize the maximum size of the spool file in bytes
+     *
+     * @throws IOException if the spool file could not be opened
+     */
+    public void setSpool(final File file, final int maxSize) throws IOException {
+        synchronized (outputLock) {
+            if (reconnectThread == null) {
+                throw new IllegalStateException("A stream which cannot reconnect cannot be spooled");
+            }
+            if (spooling) {
+                throw new IllegalStateException("The spool cannot be changed while reconnecting");
+            }
+            closeSpool();
+            if (file != null) {
+                spool = new SpoolFile(file, maxSize);
+                if (! spool.isEmpty() && ! closed) {
+                    // Replay the writes left by a previous stream before any new write
+                    connected = false;
+                    try {
+                        socket.getOutputStream().close();
+                    } catch (IOException ignore) {
+                    }
+                    startSpooling();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes held by the spool, including the length of each write, or {@code 0} if there is no
+     * spool.
+     *
+     * @return the size of the spool in bytes
+     */
+    public int getSpoolSize() {
+        synchronized (outputLock) {
+            return spool == null ? 0 : spool.getSize();
+        }
+    }
+
+    // Guarded by outputLock
+    private void spool(final byte[] b, final int off, final int len) throws IOException {
+        if (spool.append(b, off, len)) {
+            return;
+        }
+        if (! blockOnReconnect) {
+            addError(new IOException("The spool is full, the write was discarded"));
+            return;
+        }
+        // Wait for the spool to be replayed, then write directly
+        boolean interrupted = false;
+        try {
+            while (spooling && ! closed) {
+                try {
+                    outputLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (closed) {
+            throw new IOException("The stream has been closed");
+        }
+        write(b, off, len);
+    }
+
+    // Guarded by outputLock
+    private void startSpooling() {
+        spooling = true;
+        final Thread thread = new Thread(new SpoolReplayer());
+        thread.setDaemon(true);
+        thread.setName("LogManager Socket Spool Replay Thread");
+        thread.start();
+    }
+
+    // Guarded by outputLock
+    private void closeSpool() {
+        final SpoolFile spool = this.spool;
+        if (spool != null) {
+            this.spool = null;
+            try {
+                spool.close();
+            } catch (IOException ignore) {
+            }
         }
     }
 
@@ -274,6 +415,78 @@ public class TcpOutputStream extends OutputStream implements FlushableCloseable
         }
     }
 
+    /**
+     * Reconnects the socket, then replays the spool before new writes are sent to the socket again.
+     */
+    private class SpoolReplayer implements Runnable {
+
+        @Override
+        public void run() {
+            int attempts = 0;
+            Socket socket = null;
+            for (;;) {
+                try {
+                    if (socket == null) {
+                        socket = socketFactory.createSocket(address, port);
+                        synchronized (outputLock) {
+                            if (closed) {
+                                break;
+                            }
+                            replaySocket = socket;
+                        }
+                    }
+                    final SpoolFile spool;
+                    final byte[] frames;
+                    synchronized (outputLock) {
+                        spool = TcpOutputStream.this.spool;
+                        if (closed || spool == null) {
+                            break;
+                        }
+                        frames = spool.peek(maxReplay);
+                        if (frames == null) {
+                            // Everything was replayed, new writes can go straight to the socket
+                            TcpOutputStream.this.socket = socket;
+                            replaySocket = null;
+                            socket = null;
+                            connected = true;
+                            spooling = false;
+                            outputLock.notifyAll();
+                            return;
+                        }
+                    }
+                    socket.getOutputStream().write(frames);
+                    synchronized (outputLock) {
+                        if (spool == TcpOutputStream.this.spool) {
+                            spool.remove();
+                        }
+                    }
+                    attempts = 0;
+                } catch (IOException e) {
+                    addError(e);
+                    SyslogHandler.safeClose(socket);
+                    socket = null;
+                    final long timeout;
+                    if (attempts++ > 0L) {
+                        timeout = (10 * attempts);
+                    } else {
+                        timeout = retryTimeout;
+                    }
+                    // Wait for a bit, then try to reconnect unless closed in the meantime
+                    synchronized (outputLock) {
+                        if (closed) {
+                            break;
+                        }
+                        try {
+                            outputLock.wait(TimeUnit.SECONDS.toMillis(Math.min(timeout, maxRetryTimeout)));
+                        } catch (InterruptedException ignore) {
+                        }
+                    }
+                }
+            }
+            SyslogHandler.safeClose(socket);
+        }
+    }
+
     private class RetryConnector implements Runnable {
         private int attempts = 0;
 
@@ -24,11 +24,15 @@ import java.io.Writer;
 import java.io.Closeable;
 import java.io.Flushable;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 
+import org.jboss.logmanager.ExtFormatter;
 import org.jboss.logmanager.ExtLogRecord;
 import org.jboss.logmanager.ExtHandler;
+import org.jboss.logmanager.Overrides;
 
 /**
  * A handler which writes to any {@code Writer}.
@@ -37,11 +41,36 @@ public class WriterHandler extends ExtHandler {
 
     protected final Object outputLock = new Object();
     private Writer writer;
+    private volatile boolean combiningWrites;
+    private final boolean customPublish = overridesPublish(getClass());
+
+    /**
+     * The records waiting to be written by the combining thread, most recent first.
+     */
+    @SuppressWarnings("unused")
+    private volatile PendingWrite pending;
+    /**
+     * The thread which currently writes on behalf of the others, if any.
+     */
+    @SuppressWarnings("unused")
+    private volatile Thread combiner;
+
+    private static final AtomicReferenceFieldUpdater<WriterHandler, PendingWrite> pendingUpdater = AtomicReferenceFieldUpdater.newUpdater(WriterHandler.class, PendingWrite.class, "pending");
+    private static final AtomicReferenceFieldUpdater<WriterHandler, Thread> combinerUpdater = AtomicReferenceFieldUpdater.newUpdater(WriterHandler.class, Thread.class, "combiner");
+
+    /**
+     * The maximum number of times the combining thread takes the pending writes before it hands the job over.
+     */
+    private static final int MAX_COMBINING_PASSES = 4;
 
     /** {@inheritDoc} */
     protected void doPublish(final ExtLogRecord record) {
-        final String formatted;
         final Formatter formatter = getFormatter();
+        if (formatter instanceof ExtFormatter) {
+            doPublish(record, (ExtFormatter) formatter);
+            return;
+        }
+        final String formatted;
         try {
             formatted = formatter.format(record);
         } catch (Exception ex) {
@@ -52,6 +81,10 @@ public class WriterHandler extends ExtHandler {
             // nothing to write; don't bother
             return;
         }
+        if (combiningWrites && combiner != Thread.currentThread()) {
+            writeCombined(new PendingWrite(record, formatted, null, 0));
+            return;
+        }
         try {
             synchronized (outputLock) {
                 if (writer == null) {
@@ -72,6 +105,296 @@ public class WriterHandler extends ExtHandler {
         }
     }
 
+    /**
+     * Format the record into the current thread's reusable buffer and write the characters directly, so that no
+     * intermediate string is created.
+     */
+    private void doPublish(final ExtLogRecord record, final ExtFormatter formatter) {
+        final FormatBuffer buffer = FormatBuffer.acquire();
+        try {
+            final StringBuilder builder = buffer.getBuilder();
+            try {
+                formatter.formatTo(builder, record);
+            } catch (Exception ex) {
+                reportError("Formatting error", ex, ErrorManager.FORMAT_FAILURE);
+                return;
+            }
+            final int length = builder.length();
+            if (length == 0) {
+                // nothing to write; don't bother
+                return;
+            }
+            final char[] chars = buffer.getChars();
+            if (combiningWrites && combiner != Thread.currentThread()) {
+                // the buffer is not released until the combining thread has written it
+                writeCombined(new PendingWrite(record, null, chars, length));
+                return;
+            }
+            synchronized (outputLock) {
+                if (writer == null) {
+                    return;
+                }
+                preWrite(record);
+                final Writer writer = this.writer;
+                if (writer == null) {
+                    return;
+                }
+                writer.write(chars, 0, length);
+                // only flush if something was written
+                super.doPublish(record);
+            }
+        } catch (Exception ex) {
+            reportError("Error writing log message", ex, ErrorManager.WRITE_FAILURE);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Determine whether concurrent writes are combined.
+     *
+     * @return {@code true} if concurrent writes are combined
+     */
+    public boolean isCombiningWrites() {
+        return combiningWrites;
+    }
+
+    /**
+     * Specify whether concurrent writes should be combined.  Normally each publishing thread takes the output lock in
+     * turn to write its own record, so many threads logging at once queue up on the lock.  When set, each thread
+     * formats its record and then adds it to a list of pending writes; whichever thread finds no other thread writing
+     * takes the lock once and writes every pending record, flushing at most once, while the others wait for their
+     * records to be written.  Publishing stays synchronous, but many threads share each acquisition of the lock and
+     * each flush.
+     * <p/>
+     * Combining can only help when many threads on several processors contend for the same handler and each write is
+     * expensive, such as when {@code autoFlush} writes every record through to a file.  In measurements with 1, 16 and
+     * 200 threads publishing with {@code autoFlush} it was no faster than writing under the lock, so it is off by
+     * default; measure before enabling it, or publish through an {@link AsyncHandler}, which already writes records in
+     * batches.
+     *
+     * @param combiningWrites {@code true} to combine concurrent writes
+     */
+    public void setCombiningWrites(final boolean combiningWrites) {
+        checkAccess(this);
+        this.combiningWrites = combiningWrites;
+    }
+
+    /**
+     * Add a write to the pending writes and wait until it is written, writing the pending writes of all threads if
+     * no other thread is doing so.  The wait is not interruptible; the interrupt status is restored before returning.
+     */
+    private void writeCombined(final PendingWrite write) {
+        PendingWrite head;
+        do {
+            head = pending;
+            write.next = head;
+        } while (! pendingUpdater.compareAndSet(this, head, write));
+        final Thread current = write.thread;
+        // an interrupted thread would return from park at once, so clear the status while waiting
+        boolean intr = Thread.interrupted();
+        try {
+            for (;;) {
+                if (combinerUpdater.compareAndSet(this, null, current)) {
+                    try {
+                        combine();
+                    } finally {
+                        combiner = null;
+                    }
+                    // writes which were added after the last pass would be stranded; wake one of their threads to take over
+                    final PendingWrite next = pending;
+                    if (next != null) {
+                        LockSupport.unpark(next.thread);
+                    }
+                    if (write.done) {
+                        return;
+                    }
+                } else if (write.done) {
+                    return;
+                } else {
+                    LockSupport.park(this);
+                    intr |= Thread.interrupted();
+                }
+            }
+        } finally {
+            if (intr) {
+                current.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Write the pending writes of all threads, and then release their threads.
+     */
+    private void combine() {
+        PendingWrite written = null;
+        try {
+            synchronized (outputLock) {
+                boolean flush = false;
+                try {
+                    for (int pass = 0; pass < MAX_COMBINING_PASSES; pass++) {
+                        PendingWrite batch = pendingUpdater.getAndSet(this, null);
+                        if (batch == null) {
+                            break;
+                        }
+                        // the list is most recent first; reverse it to write in order
+                        PendingWrite ordered = null;
+                        while (batch != null) {
+                            final PendingWrite next = batch.next;
+                            batch.next = ordered;
+                            ordered = batch;
+                            batch = next;
+                        }
+                        while (ordered != null) {
+                            final PendingWrite next = ordered.next;
+                            try {
+                                flush |= write(ordered);
+                            } catch (Exception ex) {
+                                reportError("Error writing log message", ex, ErrorManager.WRITE_FAILURE);
+                            }
+                            ordered.next = written;
+                            written = ordered;
+                            ordered = next;
+                        }
+                    }
+                } finally {
+                    // only flush if something was written
+                    if (flush) {
+                        flush();
+                    }
+                }
+            }
+        } finally {
+            while (written != null) {
+                final PendingWrite next = written.next;
+                written.done = true;
+                LockSupport.unpark(written.thread);
+                written = next;
+            }
+        }
+    }
+
+    private boolean write(final PendingWrite write) throws Exception {
+        if (writer == null) {
+            return false;
+        }
+        final ExtLogRecord record = write.record;
+        preWrite(record);
+        final Writer writer = this.writer;
+        if (writer == null) {
+            return false;
+        }
+        if (write.string != null) {
+            writer.write(write.string);
+        } else {
+            writer.write(write.chars, 0, write.length);
+        }
+        return shouldFlush(record);
+    }
+
+    /**
+     * A formatted record waiting to be written by the combining thread.
+     */
+    private static final class PendingWrite {
+        final ExtLogRecord record;
+        final String string;
+        final char[] chars;
+        final int length;
+        final Thread thread = Thread.currentThread();
+        PendingWrite next;
+        volatile boolean done;
+
+        PendingWrite(final ExtLogRecord record, final String string, final char[] chars, final int length) {
+            this.record = record;
+            this.string = string;
+            this.chars = chars;
+            this.length = length;
+        }
+    }
+
+    /**
+     * {@inheritDoc}  This implementation formats every record into the current thread's reusable buffer first, then
+     * writes them all while holding the output lock once, and flushes at most once for the whole batch, if the flush
+     * policy requires it for any of the records.  If a subclass overrides {@link #doPublish(ExtLogRecord)} without
+     * also overriding this method, each record is published in turn instead, so that the override is honoured.
+     */
+    public void publishBatch(final ExtLogRecord[] records, final int count) {
+        if (customPublish) {
+            super.publishBatch(records, count);
+            return;
+        }
+        if (! isEnabled()) {
+            return;
+        }
+        final Formatter formatter = getFormatter();
+        final FormatBuffer buffer = FormatBuffer.acquire();
+        try {
+            final StringBuilder builder = buffer.getBuilder();
+            final int[] ends = buffer.getEnds(count);
+            for (int i = 0; i < count; i++) {
+                final ExtLogRecord record = records[i];
+                final int start = builder.length();
+                if (record != null && isLoggable(record)) try {
+                    if (formatter instanceof ExtFormatter) {
+                        ((ExtFormatter) formatter).formatTo(builder, record);
+                    } else {
+                        builder.append(formatter.format(record));
+                    }
+                } catch (Exception ex) {
+                    // drop whatever part of the record was formatted
+                    builder.setLength(start);
+                    reportError("Formatting error", ex, ErrorManager.FORMAT_FAILURE);
+                }
+                ends[i] = builder.length();
+            }
+            if (builder.length() == 0) {
+                // nothing to write; don't bother
+                return;
+            }
+            final char[] chars = buffer.getChars();
+            synchronized (outputLock) {
+                boolean flush = false;
+                try {
+                    int start = 0;
+                    for (int i = 0; i < count; i++) {
+                        final int end = ends[i];
+                        if (end == start || writer == null) {
+                            start = end;
+                            continue;
+                        }
+                        final ExtLogRecord record = records[i];
+                        preWrite(record);
+                        final Writer writer = this.writer;
+                        if (writer != null) {
+                            writer.write(chars, start, end - start);
+                            flush |= shouldFlush(record);
+                        }
+                        start = end;
+                    }
+                } finally {
+                    // only flush if something was written
+                    if (flush) {
+                        flush();
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            reportError("Error writing log message", ex, ErrorManager.WRITE_FAILURE);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static boolean overridesPublish(final Class<?> type) {
+        final Class<?> publisher = Overrides.findOverride(type, WriterHandler.class, "doPublish", ExtLogRecord.class);
+        if (publisher == null) {
+            return false;
+        }
+        // a class which overrides both methods publishes batches itself
+        final Class<?> batchPublisher = Overrides.findOverride(type, WriterHandler.class, "publishBatch", ExtLogRecord[].class, int.class);
+        return batchPublisher == null || batchPublisher != publisher && batchPublisher.isAssignableFrom(publisher);
+    }
+
     /**
      * Execute any pre-write policy, such as file rotation.  The write lock is held during this method, so make
      * it quick.  The default implementation does nothing.
@@ -100,7 +423,8 @@ public class WriterHandler extends ExtHandler {
                     safeFlush(oldWriter);
                 }
                 if (writer != null) {
-                    writeHead(this.writer = new BufferedWriter(writer));
+                    // an encoding writer does its own buffering
+                    writeHead(this.writer = writer instanceof EncodingWriter ? writer : new BufferedWriter(writer));
                 } else {
                     this.writer = null;
                 }
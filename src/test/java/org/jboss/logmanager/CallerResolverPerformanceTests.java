@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the cost of finding the caller of a logger with each caller resolver, at several stack depths.
+ */
+public class CallerResolverPerformanceTests {
+    private static final int[] DEPTHS = { 20, 100, 300 };
+    private static final int ITERATIONS = 2000;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testPerformance() {
+        final CallerResolver throwable = CallerResolvers.throwableResolver();
+        final CallerResolver stackWalker = CallerResolvers.stackWalkerResolver();
+        for (int depth : DEPTHS) {
+            // the first run of each warms up the code paths
+            run(throwable, depth);
+            // the result is system dependant and can therefore only be checked manually
+            System.out.printf("Caller resolution at depth %d: throwable %d ns", depth, run(throwable, depth));
+            if (stackWalker != null) {
+                run(stackWalker, depth);
+                System.out.printf(", stack walker %d ns", run(stackWalker, depth));
+            }
+            System.out.println();
+        }
+    }
+
+    private static long run(final CallerResolver resolver, final int depth) {
+        final long start = System.nanoTime();
+        final StackTraceElement caller = recurse(resolver, depth);
+        final long elapsed = System.nanoTime() - start;
+        Assert.assertNotNull(caller);
+        Assert.assertEquals(CallerResolverPerformanceTests.class.getName(), caller.getClassName());
+        return elapsed / ITERATIONS;
+    }
+
+    private static StackTraceElement recurse(final CallerResolver resolver, final int depth) {
+        // the frames below the logger make up the bulk of the stack, as they would in an application server
+        if (depth > 1) {
+            return recurse(resolver, depth - 1);
+        }
+        StackTraceElement caller = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            caller = FakeLogger.resolve(resolver);
+        }
+        return caller;
+    }
+
+    static final class FakeLogger {
+        static StackTraceElement resolve(final CallerResolver resolver) {
+            return resolver.getCaller(FakeLogger.class.getName());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class CallerResolverTests {
+
+    @Test
+    public void testThrowableResolver() {
+        testResolver(CallerResolvers.throwableResolver());
+    }
+
+    @Test
+    public void testStackWalkerResolver() {
+        final CallerResolver resolver = CallerResolvers.stackWalkerResolver();
+        if (resolver != null) {
+            testResolver(resolver);
+        }
+    }
+
+    @Test
+    public void testRecordCaller() {
+        final ExtLogRecord record = FakeLogger.log();
+        Assert.assertEquals(CallerResolverTests.class.getName(), record.getSourceClassName());
+        Assert.assertEquals("testRecordCaller", record.getSourceMethodName());
+        Assert.assertEquals("CallerResolverTests.java", record.getSourceFileName());
+        Assert.assertTrue(record.getSourceLineNumber() > 0);
+    }
+
+    private static void testResolver(final CallerResolver resolver) {
+        final StackTraceElement expected = new Throwable().getStackTrace()[0];
+        final StackTraceElement caller = FakeLogger.resolve(resolver, 3);
+        Assert.assertNotNull(caller);
+        Assert.assertEquals(expected.getClassName(), caller.getClassName());
+        Assert.assertEquals("testResolver", caller.getMethodName());
+        Assert.assertEquals(expected.getFileName(), caller.getFileName());
+        Assert.assertEquals(expected.getLineNumber() + 1, caller.getLineNumber());
+        // a logger which is not on the stack has no caller
+        Assert.assertNull(resolver.getCaller("no.such.Logger"));
+    }
+
+    static final class FakeLogger {
+        static StackTraceElement resolve(final CallerResolver resolver, final int depth) {
+            // nested logger frames are skipped
+            return depth > 0 ? resolve(resolver, depth - 1) : resolver.getCaller(FakeLogger.class.getName());
+        }
+
+        static ExtLogRecord log() {
+            final ExtLogRecord record = new ExtLogRecord(Level.INFO, "Test message", FakeLogger.class.getName());
+            record.copyAll();
+            return record;
+        }
+    }
+}
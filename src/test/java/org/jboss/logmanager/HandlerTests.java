@@ -73,6 +73,94 @@ public final class HandlerTests {
         assertEquals("Test message", writer.toString());
     }
 
+    @Test
+    public void testCombiningWrites() throws Throwable {
+        final WriterHandler handler = new WriterHandler();
+        initHandler(handler);
+        handler.setFormatter(new PatternFormatter("%m%n"));
+        handler.setCombiningWrites(true);
+        final StringWriter writer = new StringWriter();
+        handler.setWriter(writer);
+        final int threads = 16;
+        final int records = 200;
+        final Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < records; i++) {
+                        handler.publish(new ExtLogRecord(Level.INFO, id + " " + i, null));
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        handler.close();
+        // every record is written once, and each thread's records are written in order
+        final int[] next = new int[threads];
+        final String[] lines = writer.toString().split("\n");
+        assertEquals(threads * records, lines.length);
+        for (String line : lines) {
+            final int space = line.indexOf(' ');
+            final int id = Integer.parseInt(line.substring(0, space));
+            assertEquals(next[id]++, Integer.parseInt(line.substring(space + 1)));
+        }
+    }
+
+    @Test
+    public void testFlushRecordCount() throws Throwable {
+        final WriterHandler handler = new WriterHandler();
+        initHandler(handler);
+        handler.setAutoFlush(false);
+        handler.setFlushRecordCount(3);
+        final StringWriter writer = new StringWriter();
+        handler.setWriter(writer);
+        testPublish(handler);
+        testPublish(handler);
+        assertEquals("", writer.toString());
+        testPublish(handler);
+        assertEquals("Test messageTest messageTest message", writer.toString());
+        testPublish(handler);
+        assertEquals("Test messageTest messageTest message", writer.toString());
+        handler.close();
+    }
+
+    @Test
+    public void testFlushLevel() throws Throwable {
+        final WriterHandler handler = new WriterHandler();
+        initHandler(handler);
+        handler.setAutoFlush(false);
+        handler.setFlushLevel(Level.ERROR);
+        final StringWriter writer = new StringWriter();
+        handler.setWriter(writer);
+        testPublish(handler, Level.INFO);
+        testPublish(handler, Level.WARN);
+        assertEquals("", writer.toString());
+        testPublish(handler, Level.FATAL);
+        assertEquals("Test messageTest messageTest message", writer.toString());
+        handler.close();
+    }
+
+    @Test
+    public void testFlushInterval() throws Throwable {
+        final WriterHandler handler = new WriterHandler();
+        initHandler(handler);
+        handler.setAutoFlush(false);
+        handler.setFlushInterval(20L);
+        final StringWriter writer = new StringWriter();
+        handler.setWriter(writer);
+        testPublish(handler);
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (writer.toString().length() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals("Test message", writer.toString());
+        handler.close();
+    }
+
     @Test
     public void testOutputStreamHandler() throws Throwable {
         final OutputStreamHandler handler = new OutputStreamHandler();
@@ -83,6 +171,30 @@ public final class HandlerTests {
         assertEquals("Test message", new String(stream.toByteArray(), "utf-8"));
     }
 
+    @Test
+    public void testDirectEncodingFileHandler() throws Throwable {
+        final FileHandler handler = new FileHandler();
+        initHandler(handler);
+        handler.setDirectEncoding(true);
+        final File tempFile = File.createTempFile("jblm-", ".log");
+        try {
+            handler.setFile(tempFile);
+            testPublish(handler);
+            handler.close();
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            final FileInputStream is = new FileInputStream(tempFile);
+            try {
+                int r;
+                while ((r = is.read()) != -1) os.write(r);
+                assertEquals("Test message", new String(os.toByteArray(), "utf-8"));
+            } finally {
+                is.close();
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
     @Test
     public void testFileHandler() throws Throwable {
         final FileHandler handler = new FileHandler();
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Measures the bytes allocated by calls to a disabled logger, comparing a parameter array created by the caller with
+ * the fixed-arity and message supplier methods, which should allocate nothing.
+ */
+public class LoggerPerformanceTests {
+    private static final int CALLS = 1000000;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testDisabledAllocation() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        final long threadId = Thread.currentThread().getId();
+
+        final Logger logger = LogContext.create().getLogger("disabledAllocation");
+        logger.setLevel(Level.WARN);
+        logger.addHandler(new ExtHandler() {
+        });
+        final String fqcn = LoggerPerformanceTests.class.getName();
+        final Object param1 = "param1";
+        final Object param2 = "param2";
+        final Object param3 = "param3";
+        final MessageSupplier<String> supplier = new MessageSupplier<String>() {
+            public String get() {
+                return "Message " + param1;
+            }
+        };
+        for (int round = 0; round < 3; round++) {
+            long begin = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < CALLS; i++) {
+                logger.log(fqcn, Level.DEBUG, "Message {} {} {}", ExtLogRecord.FormatStyle.BRACES, new Object[] { param1, param2, param3 }, null);
+            }
+            final long array = threadBean.getThreadAllocatedBytes(threadId) - begin;
+            begin = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < CALLS; i++) {
+                logger.log(fqcn, Level.DEBUG, "Message {} {} {}", ExtLogRecord.FormatStyle.BRACES, param1, param2, param3, null);
+            }
+            final long fixed = threadBean.getThreadAllocatedBytes(threadId) - begin;
+            begin = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < CALLS; i++) {
+                logger.log(fqcn, Level.DEBUG, null, supplier);
+            }
+            final long supplied = threadBean.getThreadAllocatedBytes(threadId) - begin;
+            System.out.printf("%d disabled calls: parameter array %.2f bytes/call, fixed arity %.2f bytes/call, supplier %.2f bytes/call%n",
+                    CALLS, (double) array / CALLS, (double) fixed / CALLS, (double) supplied / CALLS);
+        }
+    }
+}
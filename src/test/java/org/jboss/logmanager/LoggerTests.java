@@ -20,10 +20,13 @@
 package org.jboss.logmanager;
 
 import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.Assume;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Handler;
@@ -165,6 +168,200 @@ public final class LoggerTests {
         assertEquals("Test message", handler.messages.get(1));
     }
 
+    @Test
+    public void testBracesStyle() {
+        final ListHandler handler = new ListHandler();
+        final Logger logger = Logger.getLogger("bracesLogger");
+        logger.setLevel(Level.INFO);
+        logger.addHandler(handler);
+        logger.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.INFO, "User {} logged in from {} after {} ms",
+                ExtLogRecord.FormatStyle.BRACES, new Object[] { "alice", "10.0.0.1", Integer.valueOf(25) }, null);
+        logger.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.INFO, "Unused {} {}",
+                ExtLogRecord.FormatStyle.BRACES, null, null);
+        assertEquals("User alice logged in from 10.0.0.1 after 25 ms", handler.messages.get(0));
+        assertEquals("Unused {} {}", handler.messages.get(1));
+    }
+
+    @Test
+    public void testFixedArity() {
+        final ListHandler handler = new ListHandler();
+        final Logger logger = Logger.getLogger("fixedArityLogger");
+        logger.setLevel(Level.INFO);
+        logger.addHandler(handler);
+        logger.log(Level.INFO, "{0} {1}", "a", "b");
+        logger.log(Level.INFO, "{0} {1} {2}", "a", "b", "c");
+        logger.log(Level.INFO, "{0} {1} {2} {3}", "a", "b", "c", "d");
+        logger.log(Level.FINE, "{0} {1}", "x", "y");
+        final String fqcn = LoggerTests.class.getName();
+        logger.log(fqcn, org.jboss.logmanager.Level.INFO, "{}", ExtLogRecord.FormatStyle.BRACES, "e", null);
+        logger.log(fqcn, org.jboss.logmanager.Level.INFO, "%s %s", ExtLogRecord.FormatStyle.PRINTF, "e", "f", null);
+        logger.log(fqcn, org.jboss.logmanager.Level.INFO, "{} {} {}", ExtLogRecord.FormatStyle.BRACES, "e", "f", "g", null);
+        logger.log(fqcn, org.jboss.logmanager.Level.INFO, "{0}{1}{2}{3}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "e", "f", "g", "h", null);
+        assertEquals(Arrays.asList("a b", "a b c", "a b c d", "e", "e f", "e f g", "efgh"), handler.messages);
+    }
+
+    @Test
+    public void testMessageSupplier() {
+        final ListHandler handler = new ListHandler();
+        final Logger logger = Logger.getLogger("messageSupplierLogger");
+        logger.setLevel(Level.INFO);
+        logger.addHandler(handler);
+        final AtomicBoolean called = new AtomicBoolean();
+        final MessageSupplier<Object> supplier = new MessageSupplier<Object>() {
+            public Object get() {
+                called.set(true);
+                return new StringBuilder("Supplied {0}");
+            }
+        };
+        logger.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.DEBUG, null, supplier);
+        assertFalse("Supplier called for a disabled level", called.get());
+        logger.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.INFO, null, supplier);
+        assertTrue("Supplier not called", called.get());
+        logger.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.WARN, new IllegalStateException(), new MessageSupplier<String>() {
+            public String get() {
+                return null;
+            }
+        });
+        assertEquals(Arrays.asList("Supplied {0}"), handler.messages);
+    }
+
+    @Test
+    public void testNoHandlers() {
+        final LogContext context = LogContext.create();
+        final Logger parent = context.getLogger("testNoHandlers");
+        final Logger logger = context.getLogger("testNoHandlers.child");
+        logger.setLevel(Level.INFO);
+        final AtomicBoolean ran = new AtomicBoolean();
+        final Handler handler = new CheckingHandler(ran);
+        logger.info("Nowhere to go.");
+        parent.addHandler(handler);
+        logger.info("This is a test.");
+        assertTrue("Parent handler wasn't run", ran.get());
+        ran.set(false);
+        logger.setUseParentHandlers(false);
+        logger.info("Nowhere to go.");
+        assertFalse("Parent handler shouldn't run", ran.get());
+        logger.setUseParentHandlers(true);
+        parent.removeHandler(handler);
+        logger.addHandler(handler);
+        logger.info("This is a test.");
+        assertTrue("Handler wasn't run", ran.get());
+    }
+
+    @Test
+    public void testHandlerChain() {
+        final LogContext context = LogContext.create();
+        final List<String> published = Collections.synchronizedList(new ArrayList<String>());
+        final Handler root = new NamedHandler("root", published);
+        final Handler middle = new NamedHandler("middle", published);
+        final Handler leaf = new NamedHandler("leaf", published);
+        context.getLogger("").addHandler(root);
+        final Logger middleLogger = context.getLogger("com.acme");
+        middleLogger.addHandler(middle);
+        final Logger logger = context.getLogger("com.acme.service.impl.x");
+        logger.setLevel(Level.INFO);
+        logger.addHandler(leaf);
+        logger.info("test");
+        assertEquals(Arrays.asList("leaf", "middle", "root"), published);
+
+        published.clear();
+        middleLogger.setUseParentHandlers(false);
+        logger.info("test");
+        assertEquals(Arrays.asList("leaf", "middle"), published);
+
+        published.clear();
+        middleLogger.removeHandler(middle);
+        logger.addHandler(middle);
+        logger.info("test");
+        assertEquals(Arrays.asList("leaf", "middle"), published);
+
+        published.clear();
+        middleLogger.setUseParentHandlers(true);
+        logger.setHandlers(new Handler[] { root });
+        logger.info("test");
+        assertEquals(Arrays.asList("root", "root"), published);
+
+        published.clear();
+        logger.clearHandlers();
+        logger.info("test");
+        assertEquals(Arrays.asList("root"), published);
+    }
+
+    @Test
+    public void testDisabledAllocation() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        final LogContext context = LogContext.create();
+        final Logger disabled = context.getLogger("testDisabledAllocation.disabled");
+        disabled.setLevel(Level.WARNING);
+        disabled.addHandler(new CheckingHandler(new AtomicBoolean()));
+        final Logger unhandled = context.getLogger("testDisabledAllocation.unhandled");
+        unhandled.setLevel(Level.ALL);
+        unhandled.setUseParentHandlers(false);
+        final int iterations = 10000;
+        // the first run warms up the code paths
+        logDisabled(disabled, unhandled, iterations);
+        final long threadId = Thread.currentThread().getId();
+        final long start = threadBean.getThreadAllocatedBytes(threadId);
+        logDisabled(disabled, unhandled, iterations);
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+        // anything less than a byte per call means that the calls themselves allocate nothing
+        assertTrue("Disabled logging allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    private static void logDisabled(final Logger disabled, final Logger unhandled, final int iterations) {
+        final Object param = "param";
+        final Object[] params = { param };
+        final Throwable thrown = new Throwable();
+        final MessageSupplier<String> supplier = new MessageSupplier<String>() {
+            public String get() {
+                return "Test message";
+            }
+        };
+        for (int i = 0; i < iterations; i++) {
+            disabled.fine("Test message");
+            disabled.info("Test message");
+            disabled.log(Level.INFO, "Test message {0}", param);
+            disabled.log(Level.INFO, "Test message {0}", params);
+            disabled.log(Level.INFO, "Test message", thrown);
+            disabled.logp(Level.INFO, "Class", "method", "Test message");
+            disabled.logrb(Level.INFO, "Class", "method", "bundle", "Test message");
+            disabled.entering("Class", "method", param);
+            disabled.log(Level.INFO, "Test message {0} {1}", param, param);
+            disabled.log(Level.INFO, "Test message {0} {1} {2}", param, param, param);
+            disabled.log(Level.INFO, "Test message {0} {1} {2} {3}", param, param, param, param);
+            disabled.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.DEBUG, "Test message {}", ExtLogRecord.FormatStyle.BRACES, param, thrown);
+            disabled.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.DEBUG, "Test message {} {} {} {}", ExtLogRecord.FormatStyle.BRACES, param, param, param, param, thrown);
+            disabled.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.DEBUG, thrown, supplier);
+            disabled.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.DEBUG, "Test message", ExtLogRecord.FormatStyle.PRINTF, params, thrown);
+            unhandled.severe("Test message");
+            unhandled.log(Level.SEVERE, "Test message {0}", params);
+            unhandled.logp(Level.SEVERE, "Class", "method", "Test message", thrown);
+            unhandled.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.ERROR, "Test message", thrown);
+            unhandled.log(Level.SEVERE, "Test message {0} {1} {2}", param, param, param);
+            unhandled.log(LoggerTests.class.getName(), org.jboss.logmanager.Level.ERROR, thrown, supplier);
+        }
+    }
+
+    private static final class NamedHandler extends ExtHandler {
+        private final String name;
+        private final List<String> published;
+
+        NamedHandler(final String name, final List<String> published) {
+            this.name = name;
+            this.published = published;
+        }
+
+        @Override
+        protected void doPublish(final ExtLogRecord record) {
+            published.add(name);
+        }
+    }
+
     private static final class ListHandler extends ExtHandler {
         final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
 
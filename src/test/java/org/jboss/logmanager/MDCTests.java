@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class MDCTests {
+
+    @After
+    public void clearMdc() {
+        MDC.clear();
+    }
+
+    @Test
+    public void testSnapshotSharing() {
+        MDC.put("request", "1");
+        final ExtLogRecord first = createRecord();
+        final ExtLogRecord second = createRecord();
+        Assert.assertSame("Snapshot should be shared while the MDC is unchanged", MDC.snapshot(), MDC.snapshot());
+        Assert.assertEquals("1", first.getMdc("request"));
+        Assert.assertEquals("1", second.getMdc("request"));
+
+        MDC.put("request", "2");
+        final ExtLogRecord third = createRecord();
+        Assert.assertEquals("1", first.getMdc("request"));
+        Assert.assertEquals("2", third.getMdc("request"));
+
+        MDC.remove("request");
+        final ExtLogRecord fourth = createRecord();
+        Assert.assertNull(fourth.getMdc("request"));
+        Assert.assertEquals("2", third.getMdc("request"));
+    }
+
+    @Test
+    public void testRecordChangesAreNotShared() {
+        MDC.put("request", "1");
+        final ExtLogRecord first = createRecord();
+        final ExtLogRecord second = createRecord();
+        first.putMdc("request", "changed");
+        first.putMdc("extra", "value");
+        Assert.assertEquals("changed", first.getMdc("request"));
+        Assert.assertEquals("1", second.getMdc("request"));
+        Assert.assertNull(second.getMdc("extra"));
+        Assert.assertEquals("1", MDC.get("request"));
+
+        second.removeMdc("request");
+        Assert.assertNull(second.getMdc("request"));
+        Assert.assertEquals("1", createRecord().getMdc("request"));
+
+        // a copied record must not see changes made to the original either
+        final ExtLogRecord copy = new ExtLogRecord(first);
+        first.removeMdc("extra");
+        Assert.assertEquals("value", copy.getMdc("extra"));
+    }
+
+    @Test
+    public void testInheritedSnapshot() throws Exception {
+        MDC.put("request", "parent");
+        final ExtLogRecord parentRecord = createRecord();
+        final String[] childValues = new String[2];
+        final Thread child = new Thread(new Runnable() {
+            public void run() {
+                childValues[0] = createRecord().getMdc("request");
+                MDC.put("request", "child");
+                childValues[1] = createRecord().getMdc("request");
+            }
+        });
+        child.start();
+        child.join();
+        Assert.assertEquals("parent", childValues[0]);
+        Assert.assertEquals("child", childValues[1]);
+        Assert.assertEquals("parent", parentRecord.getMdc("request"));
+        Assert.assertEquals("parent", createRecord().getMdc("request"));
+    }
+
+    private static ExtLogRecord createRecord() {
+        final ExtLogRecord record = new ExtLogRecord(Level.INFO, "Test message", MDCTests.class.getName());
+        record.copyMdc();
+        return record;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import java.text.MessageFormat;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares formatting a repeated message through the cached {@link MessageTemplate} against parsing it every time
+ * with {@link MessageFormat} and {@link String#format(String, Object...)}.
+ */
+public class MessageTemplatePerformanceTests {
+    private static final int RECORDS = 200000;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testRepeatedMessage() {
+        final Object[] parameters = { "request-42", Integer.valueOf(17), "GET" };
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            int length = 0;
+            for (int i = 0; i < RECORDS; i++) {
+                length += MessageFormat.format("Processed {0} in {1} ms using {2}", parameters).length();
+            }
+            final long parsed = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            for (int i = 0; i < RECORDS; i++) {
+                length += MessageTemplate.formatMessageFormat("Processed {0} in {1} ms using {2}", parameters).length();
+            }
+            final long cached = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            for (int i = 0; i < RECORDS; i++) {
+                length += String.format("Processed %s in %d ms using %s", parameters).length();
+            }
+            final long printfParsed = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            for (int i = 0; i < RECORDS; i++) {
+                length += MessageTemplate.formatPrintf("Processed %s in %d ms using %s", parameters).length();
+            }
+            final long printfCached = System.nanoTime() - begin;
+            System.out.printf("%d messages: MessageFormat %d ms, cached %d ms; String.format %d ms, cached %d ms (%d chars)%n",
+                    RECORDS, parsed / 1000000L, cached / 1000000L, printfParsed / 1000000L, printfCached / 1000000L, length);
+        }
+    }
+}
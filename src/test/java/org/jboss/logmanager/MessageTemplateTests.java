@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.Locale;
+
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that cached message templates format messages exactly as {@link MessageFormat} and {@link
+ * String#format(String, Object...)} do.
+ */
+public final class MessageTemplateTests {
+
+    private static final Formattable FORMATTABLE = new Formattable() {
+        public void formatTo(final Formatter formatter, final int flags, final int width, final int precision) {
+            formatter.format("formattable");
+        }
+    };
+
+    private static final Object[][] PARAMETERS = {
+            { "a", "b", "c" },
+            { Integer.valueOf(12345), Long.valueOf(-7L), Double.valueOf(3.5) },
+            { null, new StringBuilder("builder"), new Date(0L) },
+            { new BigDecimal("1234.5"), BigInteger.valueOf(-99L), Short.valueOf((short) 3) },
+            { FORMATTABLE, Byte.valueOf((byte) -1), Boolean.TRUE },
+            { "only one" },
+    };
+
+    @Test
+    public void testMessageFormat() {
+        final String[] patterns = {
+                "{0}",
+                "Value {0} and {1} and {2}",
+                "{2}{1}{0}",
+                "Repeated {0} {0} {00}",
+                "Missing {5} {9999}",
+                "Quoted '{0}' and ''{1}'' and '' text",
+                "Unterminated quote '{0}",
+                "Close } brace {0}",
+                "Typed {0,number,#.##} {1,number,integer}",
+                "Spaced { 0 } {1 }",
+                "Date {2,date,yyyy-MM-dd}",
+                "Choice {1,choice,-1#negative|0#zero|1#positive}",
+        };
+        for (String pattern : patterns) {
+            for (Object[] parameters : PARAMETERS) {
+                assertSameMessageFormat(pattern, parameters);
+                // a second time from the cache
+                assertSameMessageFormat(pattern, parameters);
+            }
+        }
+    }
+
+    @Test
+    public void testMessageFormatErrors() {
+        for (String pattern : new String[] { "Unmatched {0", "Bad {x}", "Too big {10000}", "Bad type {0,nothing}" }) {
+            assertSameMessageFormat(pattern, PARAMETERS[0]);
+        }
+    }
+
+    @Test
+    public void testMessageFormatLocale() {
+        final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            for (Locale l : new Locale[] { Locale.GERMANY, Locale.FRANCE, Locale.US }) {
+                Locale.setDefault(Locale.Category.FORMAT, l);
+                assertSameMessageFormat("Number {0} {1} {2}", PARAMETERS[1]);
+                assertSameMessageFormat("Number {0,number,#,##0.00}", PARAMETERS[1]);
+                assertSameMessageFormat("Date {2}", PARAMETERS[2]);
+            }
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, locale);
+        }
+    }
+
+    @Test
+    public void testPrintf() {
+        final String[] patterns = {
+                "%s",
+                "Value %s and %s and %s",
+                "Percent %% and%nnew line %s",
+                "Integer %d",
+                "Integers %s %d %d",
+                "Width %5s %-3d",
+                "Indexed %2$s %1$s",
+                "Hex %x",
+                "Float %.2f",
+                "Missing %s %s %s %s",
+                "Upper %S",
+                "Trailing %",
+        };
+        for (String pattern : patterns) {
+            for (Object[] parameters : PARAMETERS) {
+                assertSamePrintf(pattern, parameters);
+                assertSamePrintf(pattern, parameters);
+            }
+        }
+    }
+
+    @Test
+    public void testBraces() {
+        assertBraces("a 1 b 2 c", "a {} b {} c", 1, 2);
+        assertBraces("1 2 {}", "{} {} {}", 1, 2);
+        assertBraces("only 1", "only {}", 1, 2);
+        assertBraces("null and true and x and 2.5 and -3", "{} and {} and {} and {} and {}", null, true, 'x', 2.5d, (byte) -3);
+        assertBraces("escaped {} then 1", "escaped \\{} then {}", 1);
+        assertBraces("backslash \\1", "backslash \\\\{}", 1);
+        assertBraces("after \\{}", "{}fter \\{}", "a");
+        assertBraces("{ } { 1 }", "{ } { {} }", 1);
+        assertBraces("arrays [1, 2] [a, [b]]", "arrays {} {}", new int[] { 1, 2 }, new Object[] { "a", new String[] { "b" } });
+        assertBraces("builder", "{}", new StringBuilder("builder"));
+        assertBraces("no placeholders", "no placeholders", 1);
+    }
+
+    @Test
+    public void testBracesFormatStep() {
+        final ExtLogRecord record = new ExtLogRecord(Level.INFO, "Took {} ms", ExtLogRecord.FormatStyle.BRACES, MessageTemplateTests.class.getName());
+        record.setParameters(new Object[] { Long.valueOf(15L) });
+        Assert.assertEquals("[Took 15 ms  ]", new PatternFormatter("[%-12s]").format(record));
+        Assert.assertEquals("[To]", new PatternFormatter("[%.2s]").format(record));
+        Assert.assertEquals("Took 15 ms", record.getFormattedMessage());
+    }
+
+    @Test
+    public void testRecordFormatting() {
+        final ExtLogRecord record = new ExtLogRecord(Level.INFO, "Took {0} ms for {1}", MessageTemplateTests.class.getName());
+        record.setParameters(new Object[] { Integer.valueOf(15), "request" });
+        Assert.assertEquals(MessageFormat.format("Took {0} ms for {1}", 15, "request"), record.getFormattedMessage());
+        final ExtLogRecord printf = new ExtLogRecord(Level.INFO, "Took %d ms for %s", ExtLogRecord.FormatStyle.PRINTF, MessageTemplateTests.class.getName());
+        printf.setParameters(new Object[] { Integer.valueOf(15), "request" });
+        Assert.assertEquals("Took 15 ms for request", printf.getFormattedMessage());
+    }
+
+    private static void assertBraces(final String expected, final String pattern, final Object... parameters) {
+        final ExtLogRecord record = new ExtLogRecord(Level.INFO, pattern, ExtLogRecord.FormatStyle.BRACES, MessageTemplateTests.class.getName());
+        record.setParameters(parameters);
+        final StringBuilder builder = new StringBuilder();
+        record.appendFormattedMessage(builder);
+        Assert.assertEquals(pattern, expected, builder.toString());
+        Assert.assertEquals(pattern, expected, record.getFormattedMessage());
+    }
+
+    private static void assertSameMessageFormat(final String pattern, final Object[] parameters) {
+        String expected;
+        try {
+            expected = MessageFormat.format(pattern, parameters);
+        } catch (RuntimeException e) {
+            expected = e.getClass().getName();
+        }
+        String actual;
+        try {
+            actual = MessageTemplate.formatMessageFormat(pattern, parameters);
+        } catch (RuntimeException e) {
+            actual = e.getClass().getName();
+        }
+        Assert.assertEquals(pattern, expected, actual);
+    }
+
+    private static void assertSamePrintf(final String pattern, final Object[] parameters) {
+        String expected;
+        try {
+            expected = String.format(pattern, parameters);
+        } catch (RuntimeException e) {
+            expected = e.getClass().getName();
+        }
+        String actual;
+        try {
+            actual = MessageTemplate.formatPrintf(pattern, parameters);
+        } catch (RuntimeException e) {
+            actual = e.getClass().getName();
+        }
+        Assert.assertEquals(pattern, expected, actual);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.logmanager;
+
+import org.jboss.logmanager.formatters.MultistepFormatter;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests detection of overridden methods.
+ */
+public final class OverridesTests {
+
+    @Test
+    public void testOverride() throws Exception {
+        Assert.assertFalse(Overrides.isOverridden(MultistepFormatter.class, MultistepFormatter.class, "format", ExtLogRecord.class));
+        Assert.assertFalse(Overrides.isOverridden(PatternFormatter.class, MultistepFormatter.class, "format", ExtLogRecord.class));
+        Assert.assertEquals(OverridingFormatter.class, Overrides.findOverride(OverridingFormatter.class, MultistepFormatter.class, "format", ExtLogRecord.class));
+        Assert.assertEquals(OverridingFormatter.class, Overrides.findOverride(InheritingFormatter.class, MultistepFormatter.class, "format", ExtLogRecord.class));
+    }
+
+    @Test
+    public void testOverload() throws Exception {
+        Assert.assertFalse(Overrides.isOverridden(OverloadingFormatter.class, MultistepFormatter.class, "format", ExtLogRecord.class));
+        Assert.assertTrue(Overrides.isOverridden(OverloadingFormatter.class, MultistepFormatter.class, "format", String.class));
+    }
+
+    @Test
+    public void testPrivateAndStatic() throws Exception {
+        Assert.assertFalse(Overrides.isOverridden(HidingFormatter.class, PatternFormatter.class, "format", ExtLogRecord.class, String.class));
+        Assert.assertFalse(Overrides.isOverridden(HidingFormatter.class, PatternFormatter.class, "format", String.class));
+    }
+
+    static class OverridingFormatter extends PatternFormatter {
+        public String format(final ExtLogRecord record) {
+            return "[" + super.format(record) + "]";
+        }
+    }
+
+    static class InheritingFormatter extends OverridingFormatter {
+    }
+
+    static class OverloadingFormatter extends PatternFormatter {
+        public String format(final String message) {
+            return "[" + message + "]";
+        }
+    }
+
+    static class HidingFormatter extends PatternFormatter {
+        @SuppressWarnings("unused")
+        private String format(final ExtLogRecord record, final String prefix) {
+            return prefix + super.format(record);
+        }
+
+        @SuppressWarnings("unused")
+        static String format(final String message) {
+            return message;
+        }
+    }
+}
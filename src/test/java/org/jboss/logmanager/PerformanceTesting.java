@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.logmanager;
+
+import org.junit.Assume;
+
+/**
+ * Support for the {@code *PerformanceTests}, which take a long time and print figures to be compared by hand, so they
+ * are skipped unless the {@value #PROPERTY} system property is {@code true}, for example with the {@code performance}
+ * profile.
+ */
+public final class PerformanceTesting {
+    public static final String PROPERTY = "org.jboss.logmanager.test.performance";
+
+    private PerformanceTesting() {
+    }
+
+    /**
+     * Skip the calling test class unless performance tests are enabled.
+     */
+    public static void assumeEnabled() {
+        Assume.assumeTrue("Performance tests are only run if " + PROPERTY + " is true", Boolean.getBoolean(PROPERTY));
+    }
+}
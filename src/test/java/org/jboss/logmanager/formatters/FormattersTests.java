@@ -26,6 +26,13 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
 
 import org.junit.Test;
 
@@ -79,6 +86,45 @@ public class FormattersTests {
         assertEquals(Formatters.getJarName(resource, classResourceName), "quux");
     }
 
+    @Test
+    public void dateFormatStep() {
+        final String[] patterns = {
+                "yyyy-MM-dd HH:mm:ss,SSS",
+                "HH:mm:ss",
+                "S",
+                "SSSSS 'SSS' ss",
+                "ss.SSS zzz EEEE MMMM",
+                "HH:mm:ss.SSS SSS",
+        };
+        final TimeZone[] timeZones = {
+                TimeZone.getTimeZone("UTC"),
+                TimeZone.getTimeZone("America/New_York"),
+                TimeZone.getTimeZone("Asia/Kolkata"),
+        };
+        final Random random = new Random(12345L);
+        // include a daylight saving transition, and times on both sides of the epoch
+        final long[] bases = { 1414909800000L, 0L, -1500L, System.currentTimeMillis() };
+        for (String pattern : patterns) {
+            for (TimeZone timeZone : timeZones) {
+                final FormatStep step = Formatters.dateFormatStep(timeZone, pattern, false, 0, 0);
+                final SimpleDateFormat expected = new SimpleDateFormat(pattern);
+                expected.setTimeZone(timeZone);
+                for (long base : bases) {
+                    long millis = base;
+                    for (int i = 0; i < 500; i++) {
+                        // mostly move forwards, but sometimes jump back as records from other threads do
+                        millis += random.nextInt(3000) - 500;
+                        final ExtLogRecord record = new ExtLogRecord(Level.INFO, "test", FormattersTests.class.getName());
+                        record.setMillis(millis);
+                        final StringBuilder builder = new StringBuilder();
+                        step.render(builder, record);
+                        assertEquals(pattern + " at " + millis, expected.format(new Date(millis)), builder.toString());
+                    }
+                }
+            }
+        }
+    }
+
 }
 
 class DummyURLStreamHandler extends URLStreamHandler {
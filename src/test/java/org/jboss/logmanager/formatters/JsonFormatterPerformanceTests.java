@@ -0,0 +1,71 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.formatters;
+
+import org.jboss.logmanager.ExtFormatter;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.PerformanceTesting;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the throughput of the {@link JsonFormatter} with a {@link PatternFormatter} which produces the same output
+ * for messages which need no escaping.
+ */
+public class JsonFormatterPerformanceTests {
+    static final String PATTERN = "{\"timestamp\":\"%d{" + JsonFormatter.DEFAULT_DATE_FORMAT + "}\",\"level\":\"%p\"," +
+            "\"loggerName\":\"%c\",\"threadName\":\"%t\",\"message\":\"%s\"}\n";
+    private static final int RECORDS = 1000000;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testThroughput() {
+        final ExtFormatter json = new JsonFormatter("timestamp,level,loggerName,threadName,message");
+        final ExtFormatter pattern = new PatternFormatter(PATTERN);
+        final ExtLogRecord[] records = new ExtLogRecord[64];
+        for (int i = 0; i < records.length; i++) {
+            final ExtLogRecord record = new ExtLogRecord(Level.INFO, "Processed request {} in {} ms", ExtLogRecord.FormatStyle.BRACES, JsonFormatterPerformanceTests.class.getName());
+            record.setParameters(new Object[] { Integer.valueOf(i), Long.valueOf(i * 7L) });
+            record.setLoggerName("org.jboss.logmanager.formatters.performance");
+            records[i] = record;
+        }
+        for (int round = 0; round < 5; round++) {
+            final long patternTime = run(pattern, records);
+            final long jsonTime = run(json, records);
+            System.out.printf("%d records: PatternFormatter %.1f ns/record, JsonFormatter %.1f ns/record%n",
+                    RECORDS, (double) patternTime / RECORDS, (double) jsonTime / RECORDS);
+        }
+    }
+
+    private static long run(final ExtFormatter formatter, final ExtLogRecord[] records) {
+        final StringBuilder builder = new StringBuilder(256);
+        final long start = System.nanoTime();
+        for (int i = 0; i < RECORDS; i++) {
+            builder.setLength(0);
+            formatter.formatTo(builder, records[i & 63]);
+        }
+        return System.nanoTime() - start;
+    }
+}
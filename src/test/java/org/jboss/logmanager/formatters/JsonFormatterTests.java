@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.formatters;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.MDC;
+import org.jboss.logmanager.NDC;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the output of the {@link JsonFormatter}.
+ */
+public class JsonFormatterTests {
+    private static final String CATEGORY = "org.jboss.logmanager.formatters.JsonFormatterTests";
+
+    @Test
+    public void testDefaultFields() {
+        MDC.clear();
+        final ExtLogRecord record = createLogRecord("Quote \" backslash \\ new\nline \u0001 tab\t é");
+        record.setNdc("outer.inner.v1.2");
+        record.putMdc("key", "value \"quoted\"");
+        final JsonFormatter formatter = new JsonFormatter();
+        formatter.setTimeZone("UTC");
+        Assert.assertEquals("{\"timestamp\":\"1970-01-01T00:00:01.234Z\",\"sequence\":5,\"level\":\"INFO\"," +
+                "\"loggerName\":\"" + CATEGORY + "\",\"threadName\":\"main thread\",\"threadId\":33," +
+                "\"message\":\"Quote \\\" backslash \\\\ new\\nline \\u0001 tab\\t é\"," +
+                "\"ndc\":\"outer.inner.v1.2\",\"mdc\":{\"key\":\"value \\\"quoted\\\"\"}}\n", formatter.format(record));
+    }
+
+    @Test
+    public void testFieldSelection() {
+        MDC.clear();
+        NDC.clear();
+        final ExtLogRecord record = createLogRecord("message");
+        final JsonFormatter formatter = new JsonFormatter("level, message");
+        formatter.setJsonLines(false);
+        Assert.assertEquals("level,message", formatter.getFields());
+        Assert.assertEquals("{\"level\":\"INFO\",\"message\":\"message\"}", formatter.format(record));
+
+        // Fields without a value are left out, including the first one
+        formatter.setFields("exception,ndc,mdc,message,exception");
+        Assert.assertEquals("{\"message\":\"message\"}", formatter.format(record));
+        formatter.setFields("");
+        Assert.assertEquals("{}", formatter.format(record));
+
+        try {
+            formatter.setFields("level,unknown");
+            Assert.fail("Expected an unknown field to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testFormattedMessage() {
+        final ExtLogRecord record = new ExtLogRecord(Level.INFO, "Value {} and {}", ExtLogRecord.FormatStyle.BRACES, CATEGORY);
+        record.setParameters(new Object[] { "\"quoted\"", Integer.valueOf(2) });
+        final JsonFormatter formatter = new JsonFormatter("message");
+        final StringBuilder builder = new StringBuilder("prefix ");
+        formatter.formatTo(builder, record);
+        Assert.assertEquals("prefix {\"message\":\"Value \\\"quoted\\\" and 2\"}\n", builder.toString());
+    }
+
+    @Test
+    public void testException() {
+        final StackTraceElement main = new StackTraceElement("org.example.Main", "main", "Main.java", 10);
+        final Exception cause = new IllegalStateException("cause");
+        cause.setStackTrace(new StackTraceElement[] {
+                new StackTraceElement("org.example.Service", "call", null, -1),
+                new StackTraceElement("org.example.Main", "run", "Main.java", 5),
+                main,
+        });
+        final Exception thrown = new RuntimeException("failed \"badly\"", cause);
+        thrown.setStackTrace(new StackTraceElement[] {
+                new StackTraceElement("org.example.Main", "handle", "Main.java", 20),
+                main,
+        });
+        final Exception suppressed = new Exception();
+        suppressed.setStackTrace(new StackTraceElement[] { main });
+        thrown.addSuppressed(suppressed);
+        // A cycle must not be followed
+        suppressed.initCause(thrown);
+
+        final ExtLogRecord record = createLogRecord("message");
+        record.setThrown(thrown);
+        final JsonFormatter formatter = new JsonFormatter("exception");
+        formatter.setJsonLines(false);
+        Assert.assertEquals("{\"exception\":{\"type\":\"java.lang.RuntimeException\",\"message\":\"failed \\\"badly\\\"\"," +
+                "\"frames\":[{\"class\":\"org.example.Main\",\"method\":\"handle\",\"file\":\"Main.java\",\"line\":20}," +
+                "{\"class\":\"org.example.Main\",\"method\":\"main\",\"file\":\"Main.java\",\"line\":10}]," +
+                "\"suppressed\":[{\"type\":\"java.lang.Exception\",\"message\":null,\"frames\":[],\"framesInCommon\":1}]," +
+                "\"cause\":{\"type\":\"java.lang.IllegalStateException\",\"message\":\"cause\"," +
+                "\"frames\":[{\"class\":\"org.example.Service\",\"method\":\"call\"}," +
+                "{\"class\":\"org.example.Main\",\"method\":\"run\",\"file\":\"Main.java\",\"line\":5}]," +
+                "\"framesInCommon\":1}}}", formatter.format(record));
+    }
+
+    @Test
+    public void testMatchesPattern() {
+        final ExtLogRecord record = createLogRecord("A message without characters to escape");
+        final JsonFormatter formatter = new JsonFormatter("timestamp,level,loggerName,threadName,message");
+        final PatternFormatter patternFormatter = new PatternFormatter(JsonFormatterPerformanceTests.PATTERN);
+        Assert.assertEquals(patternFormatter.format(record), formatter.format(record));
+    }
+
+    private static ExtLogRecord createLogRecord(final String msg) {
+        final ExtLogRecord result = new ExtLogRecord(Level.INFO, msg, JsonFormatterTests.class.getName());
+        result.setLoggerName(CATEGORY);
+        result.setMillis(1234L);
+        result.setSequenceNumber(5L);
+        result.setThreadName("main thread");
+        result.setThreadID(33);
+        return result;
+    }
+}
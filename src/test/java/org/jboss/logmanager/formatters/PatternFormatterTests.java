@@ -184,6 +184,28 @@ public class PatternFormatterTests {
 
         formatter = new PatternFormatter("%-5.10m");
         Assert.assertEquals("test ", formatter.format(record));
+
+        formatter = new PatternFormatter("[%40m]");
+        Assert.assertEquals("[                                    test]", formatter.format(record));
+
+        final StringBuilder builder = new StringBuilder("prefix ");
+        formatter = new PatternFormatter("%6m|%.-3m");
+        formatter.formatTo(builder, record);
+        Assert.assertEquals("prefix   test|est", builder.toString());
+    }
+
+    @Test
+    public void overriddenFormat() throws Exception {
+        final ExtLogRecord record = createLogRecord("test");
+        final PatternFormatter formatter = new PatternFormatter("%m") {
+            public String format(final ExtLogRecord record) {
+                return "[" + super.format(record) + "]";
+            }
+        };
+        Assert.assertEquals("[test]", formatter.format(record));
+        final StringBuilder builder = new StringBuilder("prefix ");
+        formatter.formatTo(builder, record);
+        Assert.assertEquals("prefix [test]", builder.toString());
     }
 
     protected static ExtLogRecord createLogRecord(final String msg) {
@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logmanager.ExtHandler;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.PerformanceTesting;
+import org.jboss.logmanager.handlers.AsyncHandler.WaitStrategy;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the throughput of the lock-based queue and the ring buffer under contention from several producers.
+ */
+public class AsyncHandlerPerformanceTests {
+    private static final int PRODUCERS = 8;
+    private static final int RECORDS_PER_PRODUCER = 25000;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testPerformance() throws Exception {
+        // the first run of each warms up the code paths
+        run(null);
+        run(WaitStrategy.PARK);
+        // the result is system dependant and can therefore only be checked manually
+        System.out.printf("AsyncHandler queue: %d ms%n", run(null));
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            System.out.printf("AsyncHandler ring buffer (%s): %d ms%n", waitStrategy, run(waitStrategy));
+        }
+    }
+
+    private static long run(final WaitStrategy waitStrategy) throws Exception {
+        final int total = PRODUCERS * RECORDS_PER_PRODUCER;
+        final CountingHandler counter = new CountingHandler(total);
+        final AsyncHandler handler = new AsyncHandler(512, waitStrategy);
+        handler.addHandler(counter);
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[PRODUCERS];
+        for (int i = 0; i < PRODUCERS; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < RECORDS_PER_PRODUCER; j++) {
+                        final ExtLogRecord record = new ExtLogRecord(Level.INFO, "Test message", AsyncHandlerPerformanceTests.class.getName());
+                        record.disableCallerCalculation();
+                        handler.publish(record);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        final long begin = System.nanoTime();
+        start.countDown();
+        try {
+            Assert.assertTrue("Timed out waiting for records", counter.done.await(60L, TimeUnit.SECONDS));
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        } finally {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            handler.close();
+        }
+    }
+
+    static class CountingHandler extends ExtHandler {
+        final CountDownLatch done;
+
+        CountingHandler(final int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        protected void doPublish(final ExtLogRecord record) {
+            done.countDown();
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.jboss.logmanager.handlers;
 
+import java.util.Properties;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
@@ -26,10 +27,14 @@ import java.util.concurrent.TimeUnit;
 import org.jboss.logmanager.ExtHandler;
 import org.jboss.logmanager.ExtLogRecord;
 import org.jboss.logmanager.Level;
+import org.jboss.logmanager.LogContext;
 import org.jboss.logmanager.MDC;
 import org.jboss.logmanager.NDC;
+import org.jboss.logmanager.PropertyConfigurator;
 import org.jboss.logmanager.formatters.PatternFormatter;
 import org.jboss.logmanager.handlers.AsyncHandler.OverflowAction;
+import org.jboss.logmanager.handlers.AsyncHandler.ShardKey;
+import org.jboss.logmanager.handlers.AsyncHandler.WaitStrategy;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -99,6 +104,95 @@ public class AsyncHandlerTests {
         Assert.assertEquals(mdcValue, handler.getFirst());
     }
 
+    @Test
+    public void testRingBuffer() throws Exception {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            final BlockingQueueHandler handler = new BlockingQueueHandler();
+            handler.setFormatter(new PatternFormatter("%s"));
+            final AsyncHandler asyncHandler = new AsyncHandler(4, waitStrategy);
+            Assert.assertEquals(waitStrategy, asyncHandler.getWaitStrategy());
+            asyncHandler.addHandler(handler);
+            try {
+                for (int i = 0; i < 20; i++) {
+                    asyncHandler.publish(new ExtLogRecord(Level.INFO, "Message " + i, AsyncHandlerTests.class.getName()));
+                }
+                for (int i = 0; i < 20; i++) {
+                    Assert.assertEquals("Message " + i, handler.getFirst());
+                }
+            } finally {
+                asyncHandler.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSharded() throws Exception {
+        testSharded(new AsyncHandler(8, 4, WaitStrategy.PARK));
+        // without a ring buffer
+        final AsyncHandler asyncHandler = new AsyncHandler(8, 4);
+        Assert.assertNull(asyncHandler.getWaitStrategy());
+        Assert.assertEquals(4, asyncHandler.getWorkerCount());
+        testSharded(asyncHandler);
+    }
+
+    private static void testSharded(final AsyncHandler asyncHandler) throws Exception {
+        final BlockingQueueHandler handler = new BlockingQueueHandler();
+        handler.setFormatter(new PatternFormatter("%c %s"));
+        asyncHandler.setShardKey(ShardKey.LOGGER_NAME);
+        asyncHandler.addHandler(handler);
+        final int loggers = 8;
+        final int perLogger = 50;
+        try {
+            for (int i = 0; i < perLogger; i++) {
+                for (int j = 0; j < loggers; j++) {
+                    final ExtLogRecord record = createRecord();
+                    record.setLoggerName("logger" + j);
+                    record.setMessage(Integer.toString(i));
+                    asyncHandler.publish(record);
+                }
+            }
+            // records from different loggers may interleave, but each logger's records must stay in order
+            final int[] next = new int[loggers];
+            for (int i = 0; i < loggers * perLogger; i++) {
+                final String formatted = handler.getFirst();
+                Assert.assertNotNull(formatted);
+                final String[] parts = formatted.split(" ");
+                final int logger = Integer.parseInt(parts[0].substring("logger".length()));
+                Assert.assertEquals(next[logger]++, Integer.parseInt(parts[1]));
+            }
+        } finally {
+            asyncHandler.close();
+        }
+    }
+
+    @Test
+    public void testShardedConfiguration() throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty("logger.handlers", "ASYNC");
+        properties.setProperty("handler.ASYNC", AsyncHandler.class.getName());
+        properties.setProperty("handler.ASYNC.constructorProperties", "queueLength,workerCount,waitStrategy");
+        properties.setProperty("handler.ASYNC.properties", "queueLength,workerCount,waitStrategy,shardKey,shardMdcKey,batchSize");
+        properties.setProperty("handler.ASYNC.queueLength", "128");
+        properties.setProperty("handler.ASYNC.workerCount", "3");
+        properties.setProperty("handler.ASYNC.waitStrategy", "YIELD");
+        properties.setProperty("handler.ASYNC.shardKey", "MDC");
+        properties.setProperty("handler.ASYNC.shardMdcKey", "requestId");
+        properties.setProperty("handler.ASYNC.batchSize", "16");
+        final LogContext logContext = LogContext.create();
+        new PropertyConfigurator(logContext).configure(properties);
+        final AsyncHandler handler = (AsyncHandler) logContext.getLogger("").getHandlers()[0];
+        try {
+            Assert.assertEquals(128, handler.getQueueLength());
+            Assert.assertEquals(3, handler.getWorkerCount());
+            Assert.assertEquals(WaitStrategy.YIELD, handler.getWaitStrategy());
+            Assert.assertEquals(ShardKey.MDC, handler.getShardKey());
+            Assert.assertEquals("requestId", handler.getShardMdcKey());
+            Assert.assertEquals(16, handler.getBatchSize());
+        } finally {
+            handler.close();
+        }
+    }
+
     static ExtLogRecord createRecord() {
         return new ExtLogRecord(Level.INFO, "Test message", AsyncHandlerTests.class.getName());
     }
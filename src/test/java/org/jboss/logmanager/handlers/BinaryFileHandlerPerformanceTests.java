@@ -0,0 +1,71 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.File;
+
+import org.jboss.logmanager.ExtHandler;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.PerformanceTesting;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the time taken to write records with a {@link BinaryFileHandler} against formatting them with a {@link
+ * FileHandler}.
+ */
+public class BinaryFileHandlerPerformanceTests extends AbstractHandlerTest {
+    private static final int RECORDS = 100000;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        final File textFile = new File(BASE_LOG_DIR, "text-performance.log");
+        final File binaryFile = new File(BASE_LOG_DIR, "binary-performance.log");
+        for (int round = 0; round < 3; round++) {
+            final FileHandler textHandler = new FileHandler(textFile);
+            configureHandlerDefaults(textHandler);
+            textHandler.setAutoFlush(false);
+            final long text = measure(textHandler);
+            final BinaryFileHandler binaryHandler = new BinaryFileHandler(binaryFile);
+            binaryHandler.setAutoFlush(false);
+            final long binary = measure(binaryHandler);
+            System.out.printf("%d records: formatted %d ms (%d bytes), binary %d ms (%d bytes)%n", RECORDS,
+                    text / 1000000L, textFile.length(), binary / 1000000L, binaryFile.length());
+        }
+    }
+
+    private static long measure(final ExtHandler handler) {
+        final long begin = System.nanoTime();
+        for (int i = 0; i < RECORDS; i++) {
+            final ExtLogRecord record = new ExtLogRecord(Level.INFO, "Processed request {0} in {1} ms", BinaryFileHandlerPerformanceTests.class.getName());
+            record.setLoggerName("org.jboss.logmanager.performance");
+            record.setParameters(new Object[] {Integer.valueOf(i), Long.valueOf(i % 100)});
+            handler.publish(record);
+        }
+        handler.close();
+        return System.nanoTime() - begin;
+    }
+}
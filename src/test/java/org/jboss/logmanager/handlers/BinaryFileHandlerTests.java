@@ -0,0 +1,256 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.MDC;
+import org.jboss.logmanager.NDC;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that records written by a {@link BinaryFileHandler} are read back by a {@link BinaryRecordReader} so that they
+ * format exactly as the original records do.
+ */
+public class BinaryFileHandlerTests extends AbstractHandlerTest {
+
+    private static final PatternFormatter PATTERN = new PatternFormatter("%d{yyyy-MM-dd HH:mm:ss,SSS} %-5p [%c] (%t) {%X{user}} <%x> %s%e%n");
+
+    private final File file = new File(BASE_LOG_DIR, "binary.log");
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final List<ExtLogRecord> records = new ArrayList<ExtLogRecord>();
+        MDC.put("user", "alice");
+        NDC.push("request-1");
+        try {
+            records.add(createRecord(Level.INFO, "Simple message", ExtLogRecord.FormatStyle.MESSAGE_FORMAT));
+            records.add(createRecord(Level.WARN, "Value {0} of {1,number,#.##} at {2,date,yyyy-MM-dd} is {3}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT,
+                    "x", Double.valueOf(3.14159), new Date(0L), Boolean.TRUE));
+            records.add(createRecord(Level.DEBUG, "%s has %d items costing %s (%c)", ExtLogRecord.FormatStyle.PRINTF,
+                    "Cart", Integer.valueOf(42), new BigDecimal("19.99"), Character.valueOf('\u00e9')));
+            records.add(createRecord(Level.INFO, "Unicode \u00fc\u4e2d\u6587 {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, new StringBuilder("object")));
+            final ExtLogRecord error = createRecord(Level.ERROR, "Failed {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, Long.valueOf(7L));
+            final IOException cause = new IOException("Inner");
+            cause.setStackTrace(new StackTraceElement[] {
+                    new StackTraceElement("org.example.Store", "load", "Store.java", 12),
+                    new StackTraceElement("org.example.Service", "run", null, -1),
+            });
+            final IllegalStateException thrown = new IllegalStateException("Outer", cause);
+            thrown.setStackTrace(new StackTraceElement[] {
+                    new StackTraceElement("org.example.Service", "call", "Service.java", 40),
+                    new StackTraceElement("org.example.Service", "run", null, -1),
+            });
+            thrown.addSuppressed(new RuntimeException("Suppressed"));
+            error.setThrown(thrown);
+            records.add(error);
+            // repeat a record so that its names come from the dictionary
+            records.add(createRecord(Level.INFO, "Simple message", ExtLogRecord.FormatStyle.MESSAGE_FORMAT));
+            for (ExtLogRecord record : records) {
+                record.copyMdc();
+            }
+        } finally {
+            NDC.clear();
+            MDC.clear();
+        }
+
+        final BinaryFileHandler handler = new BinaryFileHandler(file);
+        for (ExtLogRecord record : records) {
+            handler.publish(record);
+        }
+        handler.close();
+
+        final List<ExtLogRecord> read = readRecords(file);
+        Assert.assertEquals(records.size(), read.size());
+        for (int i = 0; i < records.size(); i++) {
+            Assert.assertEquals(PATTERN.format(records.get(i)), PATTERN.format(read.get(i)));
+        }
+        final Throwable readThrown = read.get(4).getThrown();
+        Assert.assertEquals(IllegalStateException.class.getName(), ((BinaryRecordReader.RecordedThrowable) readThrown).getClassName());
+        Assert.assertEquals(1, readThrown.getSuppressed().length);
+        Assert.assertEquals("java.io.IOException: Inner", readThrown.getCause().toString());
+    }
+
+    @Test
+    public void testCaller() throws Exception {
+        final BinaryFileHandler handler = new BinaryFileHandler(file);
+        handler.setIncludeCaller(true);
+        final ExtLogRecord record = createRecord(Level.INFO, "With caller", ExtLogRecord.FormatStyle.NO_FORMAT);
+        record.setSourceClassName(BinaryFileHandlerTests.class.getName());
+        record.setSourceMethodName("testCaller");
+        record.setSourceFileName("BinaryFileHandlerTests.java");
+        record.setSourceLineNumber(100);
+        handler.publish(record);
+        handler.setIncludeCaller(false);
+        handler.publish(createRecord(Level.INFO, "Without caller", ExtLogRecord.FormatStyle.NO_FORMAT));
+        handler.close();
+
+        final List<ExtLogRecord> read = readRecords(file);
+        Assert.assertEquals(2, read.size());
+        Assert.assertEquals(BinaryFileHandlerTests.class.getName(), read.get(0).getSourceClassName());
+        Assert.assertEquals("testCaller", read.get(0).getSourceMethodName());
+        Assert.assertEquals(100, read.get(0).getSourceLineNumber());
+        Assert.assertEquals("<unknown>", read.get(1).getSourceClassName());
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        BinaryFileHandler handler = new BinaryFileHandler(file);
+        handler.publish(createRecord(Level.INFO, "First {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "file"));
+        handler.close();
+        // a new handler starts a new dictionary, which the reader must pick up
+        handler = new BinaryFileHandler(file, true);
+        handler.publish(createRecord(Level.WARN, "Second {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "file"));
+        handler.publish(createRecord(Level.INFO, "First {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "again"));
+        handler.close();
+
+        final List<ExtLogRecord> read = readRecords(file);
+        Assert.assertEquals(3, read.size());
+        Assert.assertEquals("First file", read.get(0).getFormattedMessage());
+        Assert.assertEquals("Second file", read.get(1).getFormattedMessage());
+        Assert.assertEquals(Level.WARN, read.get(1).getLevel());
+        Assert.assertEquals("First again", read.get(2).getFormattedMessage());
+    }
+
+    @Test
+    public void testTruncatedRecord() throws Exception {
+        final BinaryFileHandler handler = new BinaryFileHandler(file);
+        handler.publish(createRecord(Level.INFO, "Complete", ExtLogRecord.FormatStyle.NO_FORMAT));
+        handler.publish(createRecord(Level.INFO, "Incomplete", ExtLogRecord.FormatStyle.NO_FORMAT));
+        handler.close();
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 3);
+        } finally {
+            raf.close();
+        }
+
+        final List<ExtLogRecord> read = readRecords(file);
+        Assert.assertEquals(1, read.size());
+        Assert.assertEquals("Complete", read.get(0).getFormattedMessage());
+    }
+
+    @Test
+    public void testFailedEncoding() throws Exception {
+        final BinaryFileHandler handler = new BinaryFileHandler(file);
+        handler.setErrorManager(new java.util.logging.ErrorManager() {
+            public void error(final String msg, final Exception ex, final int code) {
+                // expected for the failing parameter
+            }
+        });
+        final Object failing = new Object() {
+            public String toString() {
+                throw new IllegalStateException("toString failed");
+            }
+        };
+        handler.publish(createRecord(Level.INFO, "Before {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "failure"));
+        // the template and logger class are new names which must not stay in the dictionary
+        final ExtLogRecord record = new ExtLogRecord(Level.WARN, "Failing {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "org.example.Failing");
+        record.setParameters(new Object[] { failing });
+        handler.publish(record);
+        final ExtLogRecord after = new ExtLogRecord(Level.WARN, "Failing {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "org.example.Failing");
+        after.setParameters(new Object[] { "no more" });
+        handler.publish(after);
+        handler.close();
+
+        final List<ExtLogRecord> read = readRecords(file);
+        Assert.assertEquals(2, read.size());
+        Assert.assertEquals("Before failure", read.get(0).getFormattedMessage());
+        Assert.assertEquals("Failing no more", read.get(1).getFormattedMessage());
+        Assert.assertEquals("org.example.Failing", read.get(1).getLoggerClassName());
+    }
+
+    @Test
+    public void testPartialWrite() throws Exception {
+        final FileOutputStream out = new FileOutputStream(file);
+        final BinaryFileHandler handler = new BinaryFileHandler();
+        handler.setErrorManager(new java.util.logging.ErrorManager() {
+            public void error(final String msg, final Exception ex, final int code) {
+                // expected for the failing write
+            }
+        });
+        // a stream which fails half way through the second record
+        final int[] writes = new int[1];
+        handler.setOutputStream(new OutputStream() {
+            public void write(final int b) throws IOException {
+                out.write(b);
+            }
+
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                if (++writes[0] == 3) {
+                    out.write(b, off, len / 2);
+                    throw new IOException("Disk full");
+                }
+                out.write(b, off, len);
+            }
+
+            public void close() throws IOException {
+                out.close();
+            }
+        });
+        handler.publish(createRecord(Level.INFO, "First {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "record"));
+        handler.publish(createRecord(Level.INFO, "Lost {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "record"));
+        handler.publish(createRecord(Level.INFO, "First {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "again"));
+        handler.publish(createRecord(Level.INFO, "Last {0}", ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "record"));
+        handler.close();
+
+        final List<ExtLogRecord> read = readRecords(file);
+        Assert.assertEquals(3, read.size());
+        Assert.assertEquals("First record", read.get(0).getFormattedMessage());
+        Assert.assertEquals("First again", read.get(1).getFormattedMessage());
+        Assert.assertEquals("Last record", read.get(2).getFormattedMessage());
+    }
+
+    private static ExtLogRecord createRecord(final Level level, final String msg, final ExtLogRecord.FormatStyle style, final Object... params) {
+        final ExtLogRecord record = new ExtLogRecord(level, msg, style, BinaryFileHandlerTests.class.getName());
+        record.setLoggerName("org.jboss.logmanager.binary");
+        if (params.length > 0) {
+            record.setParameters(params);
+        }
+        return record;
+    }
+
+    private static List<ExtLogRecord> readRecords(final File file) throws IOException {
+        final List<ExtLogRecord> records = new ArrayList<ExtLogRecord>();
+        final BinaryRecordReader reader = new BinaryRecordReader(new FileInputStream(file));
+        try {
+            ExtLogRecord record;
+            while ((record = reader.readRecord()) != null) {
+                records.add(record);
+            }
+        } finally {
+            reader.close();
+        }
+        return records;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.logmanager.handlers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EncodingWriterTests {
+
+    @Test
+    public void testDirectEncoding() throws Exception {
+        final StringBuilder longMessage = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longMessage.append(i % 7 == 0 ? "\u00e9t\u00e9 " : "abc ");
+        }
+        final String[] messages = {"Hello World", "Gr\u00fc\u00dfe \u65e5\u672c \ud83d\ude00 done", longMessage.toString()};
+        for (String encoding : new String[] {"UTF-8", "ISO-8859-1", "UTF-16"}) {
+            for (String message : messages) {
+                final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                final OutputStreamHandler handler = new OutputStreamHandler(new PatternFormatter("%s"));
+                handler.setDirectEncoding(true);
+                handler.setEncoding(encoding);
+                handler.setOutputStream(stream);
+                handler.publish(new ExtLogRecord(Level.INFO, message, getClass().getName()));
+                handler.flush();
+                final String expected = new String(message.getBytes(encoding), encoding);
+                Assert.assertEquals(expected, new String(stream.toByteArray(), encoding));
+                handler.close();
+            }
+        }
+    }
+
+    @Test
+    public void testDirectEncodingSplitSurrogate() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final EncodingWriter writer = new EncodingWriter(stream, Charset.forName("UTF-8"));
+        final String smiley = "\ud83d\ude00";
+        writer.write("a" + smiley.charAt(0));
+        writer.write(smiley.charAt(1) + "b");
+        // a lone high surrogate at the end is replaced rather than dropped
+        writer.write(smiley.charAt(0));
+        writer.close();
+        Assert.assertEquals("a" + smiley + "b?", new String(stream.toByteArray(), "UTF-8"));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.logmanager.handlers;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.PerformanceTesting;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Measures the throughput of a durable {@link FileHandler} as the number of logging threads grows.  Since the threads
+ * share syncs, the number of records per sync, and therefore the throughput, should grow with the number of threads.
+ */
+public class FileHandlerSyncPerformanceTests extends AbstractHandlerTest {
+    private static final int RECORDS = 2000;
+
+    private final File file = new File(BASE_LOG_DIR, "durable-performance.log");
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        for (int threads : new int[] {1, 4, 16}) {
+            final FileHandler handler = new FileHandler();
+            configureHandlerDefaults(handler);
+            handler.setAutoFlush(false);
+            handler.setDurable(true);
+            handler.setAwaitDurable(true);
+            handler.setFile(file);
+            final int perThread = RECORDS / threads;
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int i = 0; i < perThread; i++) {
+                                handler.publish(new ExtLogRecord(org.jboss.logmanager.Level.INFO, "Durable test message", FileHandlerSyncPerformanceTests.class.getName()));
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }).start();
+            }
+            final long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            final long elapsed = System.nanoTime() - begin;
+            final long syncs = handler.getSyncCount();
+            handler.close();
+            file.delete();
+            final int records = perThread * threads;
+            System.out.printf("Durable FileHandler with %d threads: %d records/s, %.1f records per sync%n",
+                    threads, records * 1000000000L / elapsed, (double) records / syncs);
+        }
+    }
+}
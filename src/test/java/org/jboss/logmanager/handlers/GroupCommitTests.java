@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.logmanager.handlers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroupCommitTests extends AbstractHandlerTest {
+
+    private final File file = new File(BASE_LOG_DIR, "durable.log");
+
+    @Test
+    public void testSharedSync() throws Exception {
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicInteger synced = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        // a slow sync, which makes everything written before it started durable
+        final GroupCommit groupCommit = new GroupCommit(new Runnable() {
+            public void run() {
+                final int count = written.get();
+                try {
+                    Thread.sleep(5L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synced.set(count);
+            }
+        });
+        final int threads = 8;
+        final int records = 50;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < records; i++) {
+                            final int mine = written.incrementAndGet();
+                            groupCommit.commit();
+                            if (synced.get() < mine) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        done.await();
+        Assert.assertEquals("Records returned before they were synced", 0, failures.get());
+        Assert.assertTrue("Syncs should have been shared", groupCommit.getSyncCount() < threads * records);
+    }
+
+    @Test
+    public void testDurableFileHandler() throws Exception {
+        final FileHandler handler = new FileHandler();
+        configureHandlerDefaults(handler);
+        handler.setAutoFlush(false);
+        handler.setDurable(true);
+        handler.setAwaitDurable(true);
+        handler.setFile(file);
+        handler.publish(createLogRecord("Test message: %d", 1));
+        // the record was flushed and synced before publish returned
+        Assert.assertEquals(1, countLines(file));
+        Assert.assertEquals(1L, handler.getSyncCount());
+
+        handler.setAwaitDurable(false);
+        handler.publish(createLogRecord("Test message: %d", 2));
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (handler.getSyncCount() < 2L && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assert.assertEquals(2, countLines(file));
+        handler.close();
+        Assert.assertEquals(2, countLines(file));
+    }
+
+    private static int countLines(final File file) throws Exception {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            int count = 0;
+            while (reader.readLine() != null) {
+                count++;
+            }
+            return count;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedFileOutputStreamTests extends AbstractHandlerTest {
+
+    private final File file = new File(BASE_LOG_DIR, "mapped.log");
+
+    @Test
+    public void testWindows() throws Exception {
+        // a small window, so that writes cross several window boundaries
+        MappedFileOutputStream out = new MappedFileOutputStream(file, false, 64);
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            final String line = "Test message " + i + "\n";
+            out.write(line.getBytes("UTF-8"));
+            expected.append(line);
+        }
+        out.write('!');
+        expected.append('!');
+        Assert.assertEquals(expected.length(), out.getSize());
+        Assert.assertTrue("File should be extended to the window", file.length() > expected.length());
+        out.close();
+        Assert.assertEquals(expected.toString(), read(file));
+
+        // append picks up at the end of the data
+        out = new MappedFileOutputStream(file, true, 64);
+        Assert.assertEquals(expected.length(), out.getSize());
+        out.write("appended".getBytes("UTF-8"));
+        out.close();
+        Assert.assertEquals(expected + "appended", read(file));
+
+        // overwrite starts over
+        out = new MappedFileOutputStream(file, false, 64);
+        out.write("new".getBytes("UTF-8"));
+        out.close();
+        Assert.assertEquals("new", read(file));
+    }
+
+    @Test
+    public void testUncleanShutdown() throws Exception {
+        // a stream which is never closed, as if the JVM had stopped; its window still pads the file
+        final MappedFileOutputStream crashed = new MappedFileOutputStream(file, false, 20000);
+        crashed.write("before crash\n".getBytes("UTF-8"));
+        Assert.assertEquals(20000L, file.length());
+        Assert.assertTrue(new File(file.getPath() + MappedFileOutputStream.LENGTH_SUFFIX).exists());
+
+        final MappedFileOutputStream out = new MappedFileOutputStream(file, true);
+        out.write("after restart\n".getBytes("UTF-8"));
+        out.close();
+        Assert.assertEquals("before crash\nafter restart\n", read(file));
+        Assert.assertFalse(new File(file.getPath() + MappedFileOutputStream.LENGTH_SUFFIX).exists());
+    }
+
+    @Test
+    public void testTrailingZeros() throws Exception {
+        // data which itself ends with zero bytes, such as UTF-16LE text, is not mistaken for padding
+        final byte[] data = "data".getBytes("UTF-16LE");
+        MappedFileOutputStream out = new MappedFileOutputStream(file, false, 64);
+        out.write(data);
+        out.close();
+        Assert.assertEquals(data.length, file.length());
+        out = new MappedFileOutputStream(file, true, 64);
+        Assert.assertEquals(data.length, out.getSize());
+        out.write(data);
+        out.close();
+        Assert.assertEquals(data.length * 2, file.length());
+    }
+
+    @Test
+    public void testRenameAfterClose() throws Exception {
+        final MappedFileOutputStream out = new MappedFileOutputStream(file, false, 64);
+        for (int i = 0; i < 10; i++) {
+            out.write("Test message\n".getBytes("UTF-8"));
+        }
+        out.close();
+        // the windows are unmapped, so the file may be renamed and replaced at once
+        final File renamed = new File(BASE_LOG_DIR, "mapped.log.1");
+        Assert.assertTrue(file.renameTo(renamed));
+        Assert.assertEquals(130L, renamed.length());
+        renamed.delete();
+    }
+
+    @Test
+    public void testFileHandler() throws Exception {
+        final FileHandler handler = new FileHandler();
+        configureHandlerDefaults(handler);
+        handler.setMemoryMapped(true);
+        handler.setFile(file);
+        Assert.assertEquals(0L, handler.getMappedFileSize());
+        handler.publish(createLogRecord("Test message"));
+        Assert.assertTrue(handler.getMappedFileSize() > 0L);
+        handler.close();
+        Assert.assertEquals(-1L, handler.getMappedFileSize());
+        final String contents = read(file);
+        Assert.assertTrue(contents, contents.endsWith("Test message\n") || contents.endsWith("Test message\r\n"));
+    }
+
+    private static String read(final File file) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            final byte[] buffer = new byte[512];
+            int r;
+            while ((r = in.read(buffer)) != -1) {
+                out.write(buffer, 0, r);
+            }
+        } finally {
+            in.close();
+        }
+        return new String(out.toByteArray(), "UTF-8");
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.jboss.logmanager.handlers.SyslogHandler.Protocol;
+import org.jboss.logmanager.handlers.SyslogHandler.SyslogType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests writing through a {@link NioTcpOutputStream} to a {@link SimpleLogServer}.
+ */
+public class NioTcpOutputStreamTests {
+    private static final String ENCODING = "UTF-8";
+    private static final int PORT = 10997;
+
+    @Test
+    public void testWrite() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        final SimpleLogServer server = SimpleLogServer.createTcp(address, PORT);
+        try {
+            final NioTcpOutputStream out = new NioTcpOutputStream(address, PORT);
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            for (int i = 0; i < 5000; i++) {
+                final byte[] frame = ("Frame number " + i + "\n").getBytes(ENCODING);
+                out.write(frame);
+                expected.write(frame);
+            }
+            out.close();
+            Assert.assertEquals(0L, out.getDiscardedCount());
+            Assert.assertEquals(expected.toString(ENCODING), new String(server.receiveData(), ENCODING));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSyslogHandler() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        final SimpleLogServer server = SimpleLogServer.createTcp(address, PORT);
+        try {
+            final SyslogHandler handler = new SyslogHandler(address, PORT, SyslogHandler.DEFAULT_FACILITY, SyslogType.RFC3164, Protocol.TCP, "test");
+            handler.setFormatter(new PatternFormatter("%s"));
+            handler.setNonBlocking(true);
+            handler.setUseMessageDelimiter(false);
+            handler.setUseCountingFraming(true);
+            for (int i = 0; i < 3; i++) {
+                handler.publish(new ExtLogRecord(Level.INFO, "Message " + i, NioTcpOutputStreamTests.class.getName()));
+            }
+            handler.close();
+            // Each frame is the octet count, a space and the message
+            String received = new String(server.receiveData(), ENCODING);
+            for (int i = 0; i < 3; i++) {
+                final int space = received.indexOf(' ');
+                final int len = Integer.parseInt(received.substring(0, space));
+                final String frame = received.substring(space + 1, space + 1 + len);
+                Assert.assertTrue(frame, frame.startsWith("<14>"));
+                Assert.assertTrue(frame, frame.endsWith("]: Message " + i));
+                received = received.substring(space + 1 + len);
+            }
+            Assert.assertEquals("", received);
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testFullBacklog() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        // A server which never accepts the connection, so nothing is read once the socket buffers are full
+        final ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(address, PORT));
+        NioTcpOutputStream out = null;
+        try {
+            out = new NioTcpOutputStream(address, PORT, false, 4096);
+            final byte[] frame = new byte[65536];
+            final long start = System.nanoTime();
+            for (int i = 0; i < 2000 && out.getDiscardedCount() == 0L; i++) {
+                out.write(frame);
+            }
+            Assert.assertTrue("No writes were discarded", out.getDiscardedCount() > 0L);
+            Assert.assertTrue("Writes blocked", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10L));
+        } finally {
+            serverSocket.close();
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        SimpleLogServer server = SimpleLogServer.createTcp(address, PORT);
+        final NioTcpOutputStream out;
+        try {
+            out = new NioTcpOutputStream(address, PORT);
+            out.write("before\n".getBytes(ENCODING));
+            while (out.getBacklogSize() > 0) {
+                Thread.sleep(10L);
+            }
+        } finally {
+            // Closing the server closes the connection
+            server.close();
+        }
+        // Keep writing until the closed connection is noticed
+        final long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(20L);
+        while (out.isConnected() && System.nanoTime() < timeout) {
+            out.write("lost\n".getBytes(ENCODING));
+            Thread.sleep(10L);
+        }
+        Assert.assertFalse("The stream did not notice the closed connection", out.isConnected());
+        out.write("reconnected\n".getBytes(ENCODING));
+        server = SimpleLogServer.createTcp(address, PORT);
+        try {
+            while (! out.isConnected() && System.nanoTime() < timeout + TimeUnit.SECONDS.toNanos(20L)) {
+                Thread.sleep(50L);
+            }
+            Assert.assertTrue("The stream did not reconnect", out.isConnected());
+            out.write("after\n".getBytes(ENCODING));
+            out.close();
+            final String received = new String(server.receiveData(), ENCODING);
+            Assert.assertTrue(received, received.endsWith("reconnected\nafter\n"));
+            Assert.assertFalse(out.getErrors().isEmpty());
+        } finally {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.net.InetAddress;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.jboss.logmanager.handlers.SyslogHandler.Protocol;
+import org.jboss.logmanager.handlers.SyslogHandler.SyslogType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests sending through a {@link NioUdpOutputStream} to a {@link SimpleLogServer}.
+ */
+public class NioUdpOutputStreamTests {
+    private static final String ENCODING = "UTF-8";
+    private static final int PORT = 10995;
+
+    @Test
+    public void testSend() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        final SimpleLogServer server = SimpleLogServer.createUdp(address, PORT);
+        final Thread serverThread = new Thread(server);
+        serverThread.start();
+        try {
+            final NioUdpOutputStream out = new NioUdpOutputStream(address, PORT);
+            for (int i = 0; i < 10; i++) {
+                out.write(("Message " + i).getBytes(ENCODING));
+            }
+            out.close();
+            Assert.assertEquals(10L, out.getSentCount());
+            Assert.assertEquals(10L, out.getDatagramCount());
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals("Message " + i, new String(server.receiveData(), ENCODING));
+            }
+        } finally {
+            server.close();
+            // The port is only released once the receiving thread has stopped
+            serverThread.join();
+        }
+    }
+
+    @Test
+    public void testPacking() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        final SimpleLogServer server = SimpleLogServer.createUdp(address, PORT);
+        final Thread serverThread = new Thread(server);
+        serverThread.start();
+        try {
+            final int maxPacketSize = 256;
+            final NioUdpOutputStream out = new NioUdpOutputStream(address, PORT, 512, 128, maxPacketSize);
+            out.setPackMessages(true);
+            final StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 500; i++) {
+                final String message = "Message " + i;
+                final String frame = message.length() + " " + message;
+                out.write(frame.getBytes(ENCODING));
+                expected.append(frame);
+            }
+            out.close();
+            Assert.assertEquals(0L, out.getDiscardedCount());
+            Assert.assertEquals(500L, out.getSentCount());
+            Assert.assertTrue(out.getDatagramCount() <= out.getSentCount());
+            // Every datagram holds whole frames, so the datagrams together are the frames in order
+            final StringBuilder received = new StringBuilder();
+            for (long i = 0; i < out.getDatagramCount(); i++) {
+                final byte[] datagram = server.receiveData();
+                Assert.assertNotNull(datagram);
+                Assert.assertTrue(datagram.length <= maxPacketSize);
+                final String data = new String(datagram, ENCODING);
+                Assert.assertTrue(data, data.matches("([0-9]+ Message [0-9]+)+"));
+                received.append(data);
+            }
+            Assert.assertEquals(expected.toString(), received.toString());
+        } finally {
+            server.close();
+            // The port is only released once the receiving thread has stopped
+            serverThread.join();
+        }
+    }
+
+    @Test
+    public void testDiscarded() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        // Nothing listens on the port, so some sends may also fail
+        final NioUdpOutputStream out = new NioUdpOutputStream(address, PORT, 1, 64, NioUdpOutputStream.DEFAULT_MAX_PACKET_SIZE);
+        final byte[] message = "message".getBytes(ENCODING);
+        for (int i = 0; i < 10000; i++) {
+            out.write(message);
+        }
+        out.close();
+        Assert.assertTrue("No writes were discarded", out.getDiscardedCount() > 0L);
+        Assert.assertEquals(10000L, out.getDiscardedCount() + out.getSentCount() + out.getFailedCount());
+    }
+
+    @Test
+    public void testSyslogHandler() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        final SimpleLogServer server = SimpleLogServer.createUdp(address, PORT);
+        final Thread serverThread = new Thread(server);
+        serverThread.start();
+        try {
+            final SyslogHandler handler = new SyslogHandler(address, PORT, SyslogHandler.DEFAULT_FACILITY, SyslogType.RFC3164, Protocol.UDP, "test");
+            handler.setFormatter(new PatternFormatter("%s"));
+            handler.setNonBlocking(true);
+            handler.setUseMessageDelimiter(false);
+            // Packing is only enabled explicitly, not by counting framing
+            handler.setUseCountingFraming(true);
+            Assert.assertFalse(handler.isPackMessages());
+            handler.setUseCountingFraming(false);
+            handler.publish(new ExtLogRecord(Level.INFO, "Message", NioUdpOutputStreamTests.class.getName()));
+            handler.close();
+            final String received = new String(server.receiveData(), ENCODING);
+            Assert.assertTrue(received, received.startsWith("<14>"));
+            Assert.assertTrue(received, received.endsWith("]: Message"));
+        } finally {
+            server.close();
+            // The port is only released once the receiving thread has stopped
+            serverThread.join();
+        }
+    }
+}
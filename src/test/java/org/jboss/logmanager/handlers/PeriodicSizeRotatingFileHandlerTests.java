@@ -155,6 +155,54 @@ public class PeriodicSizeRotatingFileHandlerTests extends AbstractHandlerTest {
         rotatedFile.delete();
     }
 
+    @Test
+    public void testBackgroundCompressedRotate() throws Exception {
+        final SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd");
+        final Calendar cal = Calendar.getInstance();
+        final String extension = "." + fmt.format(cal.getTimeInMillis());
+
+        final PeriodicSizeRotatingFileHandler handler = new PeriodicSizeRotatingFileHandler();
+        configureHandlerDefaults(handler);
+        handler.setRotateSize(1024L);
+        handler.setMaxBackupIndex(2);
+        handler.setSuffix("." + fmt.toPattern());
+        handler.setRotateInBackground(true);
+        handler.setCompressRotated(true);
+        handler.setFile(logFile);
+
+        // Allow a few size rotates
+        for (int i = 0; i < 100; i++) {
+            handler.publish(createLogRecord("Test message: %d", i));
+        }
+
+        // Force a periodic rotate
+        cal.add(Calendar.DAY_OF_MONTH, 1);
+        final ExtLogRecord record = createLogRecord("Test message: next day");
+        record.setMillis(cal.getTimeInMillis());
+        handler.publish(record);
+
+        // Closing waits for the background rotations
+        handler.close();
+
+        final File file1 = new File(BASE_LOG_DIR, FILENAME + extension + ".1.gz");
+        final File file2 = new File(BASE_LOG_DIR, FILENAME + extension + ".2.gz");
+        final File periodFile = new File(BASE_LOG_DIR, FILENAME + extension + ".gz");
+        Assert.assertTrue(logFile.exists());
+        Assert.assertTrue(file1.exists());
+        Assert.assertTrue(file2.exists());
+        Assert.assertTrue(periodFile.exists());
+        for (String name : BASE_LOG_DIR.list()) {
+            Assert.assertFalse(name, name.contains(FileRotator.PENDING_SUFFIX));
+        }
+        Assert.assertFalse(new File(BASE_LOG_DIR, FILENAME + extension + ".1").exists());
+        Assert.assertFalse(new File(BASE_LOG_DIR, FILENAME + extension).exists());
+
+        // Clean up files
+        file1.delete();
+        file2.delete();
+        periodFile.delete();
+    }
+
     @Test
     @Ignore("LOGMGR-82")
     public void testPeriodicAndSizeRotate() throws Exception {
@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logmanager.handlers.AsyncHandler.WaitStrategy;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RingBufferQueueTests {
+
+    @Test
+    public void testOrderAndCapacity() throws Exception {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(3, WaitStrategy.PARK);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+        // wrap around the ring a few times
+        for (int lap = 0; lap < 4; lap++) {
+            Assert.assertTrue(queue.offer(1));
+            Assert.assertTrue(queue.offer(2));
+            Assert.assertTrue(queue.offer(3));
+            Assert.assertFalse(queue.offer(4));
+            Assert.assertEquals(3, queue.size());
+            Assert.assertEquals(0, queue.remainingCapacity());
+            Assert.assertFalse(queue.offer(4, 10L, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(Integer.valueOf(1), queue.peek());
+            Assert.assertEquals(Integer.valueOf(1), queue.poll());
+            Assert.assertEquals(Integer.valueOf(2), queue.take());
+            final List<Integer> drained = new ArrayList<Integer>();
+            Assert.assertEquals(1, queue.drainTo(drained, 5));
+            Assert.assertEquals(Integer.valueOf(3), drained.get(0));
+            Assert.assertTrue(queue.isEmpty());
+        }
+        Assert.assertNull(queue.poll(10L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testMultipleProducersBusySpin() throws Exception {
+        testMultipleProducers(WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void testMultipleProducersYield() throws Exception {
+        testMultipleProducers(WaitStrategy.YIELD);
+    }
+
+    @Test
+    public void testMultipleProducersPark() throws Exception {
+        testMultipleProducers(WaitStrategy.PARK);
+    }
+
+    @Test
+    public void testInterruptedTake() throws Exception {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(4, WaitStrategy.PARK);
+        Thread.currentThread().interrupt();
+        try {
+            queue.take();
+            Assert.fail("Expected an InterruptedException");
+        } catch (InterruptedException expected) {
+            Assert.assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    private static void testMultipleProducers(final WaitStrategy waitStrategy) throws Exception {
+        final int producers = 4;
+        final int perProducer = 10000;
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(16, waitStrategy);
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            final int producer = i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < perProducer; j++) {
+                            queue.put(producer * perProducer + j);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        // each producer's values must arrive in order, and none may be lost or duplicated
+        final int[] next = new int[producers];
+        for (int i = 0; i < producers * perProducer; i++) {
+            final Integer value = queue.poll(5L, TimeUnit.SECONDS);
+            Assert.assertNotNull("Timed out waiting for value " + i, value);
+            final int producer = value / perProducer;
+            Assert.assertEquals(next[producer]++, value % perProducer);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.PerformanceTesting;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the latency of the record which triggers a size rotation when the rotation is completed on the logging
+ * thread, when it is completed in the background with compression, and when backups are numbered sequentially.
+ */
+public class RotatingFileHandlerPerformanceTests extends AbstractHandlerTest {
+    private static final String FILENAME = "rotating-performance.log";
+
+    private final File logFile = new File(BASE_LOG_DIR, FILENAME);
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testRotationLatency() throws Exception {
+        for (int maxBackupIndex : new int[] {1, 10, 30}) {
+            for (long rotateSize : new long[] {0x10000L, 0x80000L}) {
+                final long sync = measure(false, false, false, maxBackupIndex, rotateSize);
+                final long syncCompressed = measure(false, true, false, maxBackupIndex, rotateSize);
+                final long background = measure(true, true, false, maxBackupIndex, rotateSize);
+                final long sequential = measure(false, false, true, maxBackupIndex, rotateSize);
+                System.out.printf("Rotation with maxBackupIndex=%d, rotateSize=%d: synchronous %d us, synchronous compressed %d us, background compressed %d us, sequential %d us (median)%n",
+                        maxBackupIndex, rotateSize, sync / 1000L, syncCompressed / 1000L, background / 1000L, sequential / 1000L);
+            }
+        }
+    }
+
+    private long measure(final boolean background, final boolean compress, final boolean sequential, final int maxBackupIndex, final long rotateSize) throws Exception {
+        final SizeRotatingFileHandler handler = new SizeRotatingFileHandler();
+        configureHandlerDefaults(handler);
+        handler.setRotateSize(rotateSize);
+        handler.setMaxBackupIndex(maxBackupIndex);
+        handler.setRotateInBackground(background);
+        handler.setCompressRotated(compress);
+        handler.setSequentialBackups(sequential);
+        handler.setFile(logFile);
+        final ExtLogRecord record = createLogRecord("Test message for measuring the cost of rotating a log file which has reached its limit");
+        final int rotations = maxBackupIndex + 5;
+        final long[] times = new long[rotations];
+        try {
+            for (int i = 0; i < rotations; i++) {
+                // fill the file up to the rotation size without timing
+                while (handler.getMappedFileSize() == -1L && logFile.length() <= rotateSize) {
+                    handler.publish(record);
+                }
+                // this one triggers the rotation
+                final long start = System.nanoTime();
+                handler.publish(record);
+                times[i] = System.nanoTime() - start;
+            }
+        } finally {
+            handler.close();
+            deleteChildrenRecursively(BASE_LOG_DIR);
+        }
+        Arrays.sort(times);
+        return times[rotations / 2];
+    }
+}
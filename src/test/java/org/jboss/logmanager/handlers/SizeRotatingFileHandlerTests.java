@@ -19,9 +19,14 @@
 
 package org.jboss.logmanager.handlers;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -61,6 +66,157 @@ public class SizeRotatingFileHandlerTests extends AbstractHandlerTest {
         file2.delete();
     }
 
+    @Test
+    public void testMemoryMappedSizeRotate() throws Exception {
+        final SizeRotatingFileHandler handler = new SizeRotatingFileHandler();
+        configureHandlerDefaults(handler);
+        handler.setMemoryMapped(true);
+        handler.setRotateSize(1024L);
+        handler.setMaxBackupIndex(2);
+        handler.setFile(logFile);
+
+        // Allow a few rotates
+        for (int i = 0; i < 100; i++) {
+            handler.publish(createLogRecord("Test message: %d", i));
+        }
+
+        handler.close();
+
+        // We should end up with 3 files, 2 rotated and the default log
+        final File file1 = new File(BASE_LOG_DIR, FILENAME + ".1");
+        final File file2 = new File(BASE_LOG_DIR, FILENAME + ".2");
+        Assert.assertTrue(logFile.exists());
+        Assert.assertTrue(file1.exists());
+        Assert.assertTrue(file2.exists());
+
+        // The mapped files must have been truncated to the data actually written
+        Assert.assertTrue(file1.length() > 1024L && file1.length() < 2048L);
+        Assert.assertTrue(file2.length() > 1024L && file2.length() < 2048L);
+        Assert.assertTrue(logFile.length() > 0L && logFile.length() < 2048L);
+
+        // Clean up files
+        file1.delete();
+        file2.delete();
+    }
+
+    @Test
+    public void testBackgroundCompressedSizeRotate() throws Exception {
+        final SizeRotatingFileHandler handler = new SizeRotatingFileHandler();
+        configureHandlerDefaults(handler);
+        handler.setRotateSize(1024L);
+        handler.setMaxBackupIndex(2);
+        handler.setRotateInBackground(true);
+        handler.setCompressRotated(true);
+        handler.setFile(logFile);
+
+        // Allow a few rotates
+        for (int i = 0; i < 100; i++) {
+            handler.publish(createLogRecord("Test message: %d", i));
+        }
+
+        // Closing waits for the background rotations
+        handler.close();
+
+        // We should end up with 3 files, 2 rotated and compressed and the default log
+        final File file1 = new File(BASE_LOG_DIR, FILENAME + ".1.gz");
+        final File file2 = new File(BASE_LOG_DIR, FILENAME + ".2.gz");
+        Assert.assertTrue(logFile.exists());
+        Assert.assertTrue(file1.exists());
+        Assert.assertTrue(file2.exists());
+        Assert.assertFalse(new File(BASE_LOG_DIR, FILENAME + ".1").exists());
+        Assert.assertFalse(new File(BASE_LOG_DIR, FILENAME + ".3.gz").exists());
+        for (String name : BASE_LOG_DIR.list()) {
+            Assert.assertFalse(name, name.contains(FileRotator.PENDING_SUFFIX));
+        }
+
+        // The most recent backup holds the messages just before those in the current file
+        final String last = readLastLine(file1);
+        Assert.assertNotNull(last);
+        final int index = Integer.parseInt(last.substring(last.lastIndexOf(' ') + 1));
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), "UTF-8"));
+        try {
+            final String first = reader.readLine();
+            Assert.assertTrue(first, first.endsWith("Test message: " + (index + 1)));
+        } finally {
+            reader.close();
+        }
+
+        // Clean up files
+        file1.delete();
+        file2.delete();
+    }
+
+    @Test
+    public void testSequentialSizeRotate() throws Exception {
+        SizeRotatingFileHandler handler = new SizeRotatingFileHandler();
+        configureHandlerDefaults(handler);
+        handler.setRotateSize(1024L);
+        handler.setMaxBackupIndex(3);
+        handler.setSequentialBackups(true);
+        handler.setFile(logFile);
+
+        // Allow a few rotates
+        for (int i = 0; i < 100; i++) {
+            handler.publish(createLogRecord("Test message: %d", i));
+        }
+        handler.close();
+
+        // Only the three most recent backups are kept
+        final long last = lastSequence();
+        Assert.assertTrue(last > 3L);
+        Assert.assertEquals(4, BASE_LOG_DIR.list().length);
+        Assert.assertTrue(new File(BASE_LOG_DIR, FILENAME + "." + last).exists());
+        Assert.assertTrue(new File(BASE_LOG_DIR, FILENAME + "." + (last - 2)).exists());
+
+        // A new handler continues the sequence from the files which exist
+        handler = new SizeRotatingFileHandler();
+        configureHandlerDefaults(handler);
+        handler.setRotateSize(1024L);
+        handler.setMaxBackupIndex(3);
+        handler.setSequentialBackups(true);
+        handler.setRotateOnBoot(true);
+        handler.setFile(logFile);
+        handler.close();
+
+        Assert.assertEquals(last + 1L, lastSequence());
+        Assert.assertEquals(4, BASE_LOG_DIR.list().length);
+        Assert.assertFalse(new File(BASE_LOG_DIR, FILENAME + "." + (last - 2)).exists());
+        Assert.assertTrue(new File(BASE_LOG_DIR, FILENAME + "." + (last - 1)).exists());
+    }
+
+    private long lastSequence() {
+        long last = 0L;
+        for (String name : BASE_LOG_DIR.list()) {
+            if (name.startsWith(FILENAME + ".")) {
+                last = Math.max(last, Long.parseLong(name.substring(FILENAME.length() + 1)));
+            }
+        }
+        return last;
+    }
+
+    private static void writeFile(final File file, final String line) throws Exception {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write((line + "\n").getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String readLastLine(final File file) throws Exception {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), "UTF-8"));
+        try {
+            String last = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                last = line;
+            }
+            return last;
+        } finally {
+            reader.close();
+        }
+    }
+
     @Test
     public void testSuffixSizeRotate() throws Exception {
         final SizeRotatingFileHandler handler = new SizeRotatingFileHandler();
@@ -93,6 +249,40 @@ public class SizeRotatingFileHandlerTests extends AbstractHandlerTest {
         file2.delete();
     }
 
+    @Test
+    public void testRecoverPendingRotations() throws Exception {
+        // the files left behind by background rotations which never completed, one from an older version
+        final File legacy = new File(BASE_LOG_DIR, FILENAME + FileRotator.PENDING_SUFFIX + "1");
+        final File pending = new File(BASE_LOG_DIR, FILENAME + FileRotator.PENDING_SUFFIX + System.currentTimeMillis() + "-1");
+        writeFile(legacy, "legacy");
+        writeFile(pending, "pending");
+        // a new temporary name never collides with an existing one
+        final File next = FileRotator.pendingFile(logFile);
+        Assert.assertFalse(next.exists());
+        Assert.assertFalse(next.equals(pending));
+
+        final SizeRotatingFileHandler handler = new SizeRotatingFileHandler();
+        configureHandlerDefaults(handler);
+        handler.setRotateSize(5000L);
+        handler.setMaxBackupIndex(3);
+        handler.setRotateInBackground(true);
+        handler.setCompressRotated(true);
+        handler.setFile(logFile);
+        handler.publish(createLogRecord("Test message: %d", 1));
+        handler.close();
+
+        // the orphans are rotated oldest first, so the newest is the first backup
+        final File file1 = new File(BASE_LOG_DIR, FILENAME + ".1.gz");
+        final File file2 = new File(BASE_LOG_DIR, FILENAME + ".2.gz");
+        Assert.assertEquals("pending", readLastLine(file1));
+        Assert.assertEquals("legacy", readLastLine(file2));
+        Assert.assertFalse(legacy.exists());
+        Assert.assertFalse(pending.exists());
+
+        file1.delete();
+        file2.delete();
+    }
+
     @Test
     public void testBootRotate() throws Exception {
         SizeRotatingFileHandler handler = new SizeRotatingFileHandler();
@@ -0,0 +1,347 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.jboss.logmanager.handlers.SyslogHandler.Protocol;
+import org.jboss.logmanager.handlers.SyslogHandler.SyslogType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link SpoolFile} journal and spooling writes in a {@link TcpOutputStream} while it reconnects.
+ */
+public class SpoolFileTests extends AbstractHandlerTest {
+    private static final String ENCODING = "UTF-8";
+    private static final int PORT = 10996;
+
+    private final File file = new File(BASE_LOG_DIR, "syslog.spool");
+
+    @Test
+    public void testAppendAndRemove() throws Exception {
+        final SpoolFile spool = new SpoolFile(file, 64);
+        try {
+            Assert.assertTrue(spool.isEmpty());
+            Assert.assertNull(spool.peek(1024));
+            Assert.assertTrue(spool.append(bytes("first"), 0, 5));
+            Assert.assertTrue(spool.append(bytes("xsecondx"), 1, 6));
+            Assert.assertEquals("first", string(spool.peek(5)));
+            spool.remove();
+            Assert.assertTrue(spool.append(bytes("third"), 0, 5));
+            Assert.assertEquals("secondthird", string(spool.peek(1024)));
+            // the frames were not removed
+            Assert.assertEquals("secondthird", string(spool.peek(1024)));
+            spool.remove();
+            Assert.assertTrue(spool.isEmpty());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        final SpoolFile spool = new SpoolFile(file, 32);
+        try {
+            // the header takes 8 bytes, each frame 4 more than its content, and 4 bytes follow the last frame
+            Assert.assertTrue(spool.append(bytes("0123456789"), 0, 10));
+            Assert.assertFalse(spool.append(bytes("0123456789"), 0, 10));
+            Assert.assertTrue(spool.append(bytes("0123456"), 0, 2));
+            Assert.assertEquals(20, spool.getSize());
+            spool.peek(1024);
+            spool.remove();
+            // the space is reused once empty
+            Assert.assertTrue(spool.append(bytes("0123456789"), 0, 10));
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        SpoolFile spool = new SpoolFile(file, 1024);
+        try {
+            spool.append(bytes("first"), 0, 5);
+            spool.append(bytes("second"), 0, 6);
+            spool.peek(5);
+            spool.remove();
+            spool.append(bytes("third"), 0, 5);
+        } finally {
+            spool.close();
+        }
+        spool = new SpoolFile(file, 1024);
+        try {
+            Assert.assertEquals("secondthird", string(spool.peek(1024)));
+            spool.remove();
+        } finally {
+            spool.close();
+        }
+        spool = new SpoolFile(file, 1024);
+        try {
+            Assert.assertTrue(spool.isEmpty());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void testWrap() throws Exception {
+        final SpoolFile spool = new SpoolFile(file, 64);
+        try {
+            // a backlog which is drained while it is written never fills the file
+            Assert.assertTrue(spool.append(bytes("frame0"), 0, 6));
+            for (int i = 1; i < 100; i++) {
+                Assert.assertTrue("Frame " + i, spool.append(bytes("frame" + i), 0, ("frame" + i).length()));
+                Assert.assertEquals("frame" + (i - 1), string(spool.peek(1)));
+                spool.remove();
+            }
+            Assert.assertEquals("frame99", string(spool.peek(1)));
+            spool.remove();
+            // frames which wrap around are returned together with the frames at the end of the file
+            spool.append(bytes("0123456789012345678"), 0, 19);
+            spool.append(bytes("abcdefghijklmn"), 0, 14);
+            spool.peek(19);
+            spool.remove();
+            Assert.assertTrue(spool.append(bytes("wrapped"), 0, 7));
+            Assert.assertTrue(spool.append(bytes("again"), 0, 5));
+            Assert.assertFalse(spool.append(bytes("0123456789"), 0, 10));
+            Assert.assertEquals(38, spool.getSize());
+        } finally {
+            spool.close();
+        }
+        final SpoolFile reopened = new SpoolFile(file, 64);
+        try {
+            Assert.assertEquals(38, reopened.getSize());
+            Assert.assertEquals("abcdefghijklmnwrappedagain", string(reopened.peek(1024)));
+            reopened.remove();
+            Assert.assertTrue(reopened.isEmpty());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testReplayAfterReconnect() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        Receiver server = new Receiver(address, PORT);
+        final TcpOutputStream out;
+        try {
+            out = new TcpOutputStream(address, PORT);
+            out.setSpool(file, 4096);
+            out.write(bytes("connected\n"));
+            // Once the write arrived the connection was accepted, so closing the server closes it
+            server.awaitReceived("connected\n");
+        } finally {
+            server.close();
+        }
+        // Keep writing until the closed connection is noticed
+        final long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(20L);
+        while (out.isConnected() && System.nanoTime() < timeout) {
+            out.write(bytes("lost\n"));
+            Thread.sleep(10L);
+        }
+        Assert.assertFalse("The stream did not notice the closed connection", out.isConnected());
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            final byte[] frame = bytes("spooled " + i + "\n");
+            out.write(frame);
+            expected.write(frame);
+        }
+        Assert.assertTrue(out.getSpoolSize() > expected.size());
+        server = new Receiver(address, PORT);
+        try {
+            while (! out.isConnected() && System.nanoTime() < timeout + TimeUnit.SECONDS.toNanos(20L)) {
+                Thread.sleep(50L);
+            }
+            Assert.assertTrue("The stream did not reconnect", out.isConnected());
+            Assert.assertEquals(0, out.getSpoolSize());
+            out.write(bytes("after\n"));
+            expected.write(bytes("after\n"));
+            out.close();
+            // the write which found the connection closed is sent again first
+            Assert.assertEquals("lost\n" + expected.toString(ENCODING), server.awaitReceived("after\n"));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testReconnectWhileSpooling() throws Exception {
+        final InetAddress address = InetAddress.getByName("localhost");
+        Receiver server = new Receiver(address, PORT);
+        final SyslogHandler handler = new SyslogHandler(address, PORT, SyslogHandler.DEFAULT_FACILITY, SyslogType.RFC5424, Protocol.TCP, "test");
+        try {
+            handler.setFormatter(new PatternFormatter("%s"));
+            handler.setSpoolFile(file.getPath());
+            try {
+                handler.publish(createLogRecord("connected"));
+                server.awaitReceived("connected");
+            } finally {
+                server.close();
+            }
+            // Keep logging until the closed connection is noticed and the messages are spooled
+            final long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(20L);
+            while (! isSpooling() && System.nanoTime() < timeout) {
+                handler.publish(createLogRecord("lost"));
+                Thread.sleep(10L);
+            }
+            Assert.assertTrue("The handler did not start spooling", isSpooling());
+            for (int i = 0; i < 10; i++) {
+                handler.publish(createLogRecord("spooled %d.", i));
+            }
+            server = new Receiver(address, PORT);
+            // The new stream replays the spool file which the old stream was replaying
+            handler.setMaxSpoolSize(2 * TcpOutputStream.DEFAULT_MAX_SPOOL_SIZE);
+            handler.publish(createLogRecord("after"));
+            final String received = server.awaitReceived("after");
+            for (int i = 0; i < 10; i++) {
+                final String message = "spooled " + i + ".";
+                final int index = received.indexOf(message);
+                Assert.assertTrue(received, index >= 0);
+                Assert.assertEquals("Replayed more than once: " + message, -1, received.indexOf(message, index + 1));
+            }
+            Assert.assertTrue(received, received.indexOf("spooled 9.") < received.indexOf("after"));
+        } finally {
+            handler.close();
+            server.close();
+        }
+    }
+
+    /**
+     * Determines whether the spool file holds a frame which was not read.
+     */
+    private boolean isSpooling() throws Exception {
+        if (! file.exists()) {
+            return false;
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.length() < 12) {
+                return false;
+            }
+            raf.seek(4);
+            final int readPosition = raf.readInt();
+            if (readPosition < 8 || readPosition > raf.length() - 4) {
+                return false;
+            }
+            raf.seek(readPosition);
+            return raf.readInt() > 0;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static byte[] bytes(final String s) throws Exception {
+        return s.getBytes(ENCODING);
+    }
+
+    private static String string(final byte[] b) throws Exception {
+        return new String(b, ENCODING);
+    }
+
+    /**
+     * A server which accepts any number of connections and collects what is received on all of them.
+     */
+    private static final class Receiver implements Runnable {
+        private final ServerSocket serverSocket;
+        private final Thread acceptor;
+        private final List<Socket> sockets = new ArrayList<Socket>();
+        private final StringBuilder received = new StringBuilder();
+
+        Receiver(final InetAddress address, final int port) throws IOException {
+            serverSocket = new ServerSocket(port, 50, address);
+            acceptor = new Thread(this);
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        public void run() {
+            for (;;) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    // closed
+                    return;
+                }
+                synchronized (this) {
+                    if (serverSocket.isClosed()) {
+                        SimpleLogServer.safeClose(socket);
+                        return;
+                    }
+                    sockets.add(socket);
+                }
+                final Thread reader = new Thread(new Runnable() {
+                    public void run() {
+                        final byte[] buf = new byte[512];
+                        try {
+                            final InputStream in = socket.getInputStream();
+                            int len;
+                            while ((len = in.read(buf)) != -1) {
+                                synchronized (Receiver.this) {
+                                    received.append(new String(buf, 0, len, ENCODING));
+                                    Receiver.this.notifyAll();
+                                }
+                            }
+                        } catch (IOException ignore) {
+                        }
+                    }
+                });
+                reader.setDaemon(true);
+                reader.start();
+            }
+        }
+
+        /**
+         * Waits until the given text was received, and returns everything which was received.
+         */
+        synchronized String awaitReceived(final String text) throws InterruptedException {
+            final long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(20L);
+            long remaining;
+            while (received.indexOf(text) == -1 && (remaining = timeout - System.nanoTime()) > 0L) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            Assert.assertTrue("Did not receive " + text + ", received " + received, received.indexOf(text) != -1);
+            return received.toString();
+        }
+
+        void close() throws InterruptedException {
+            synchronized (this) {
+                SimpleLogServer.safeClose(serverSocket);
+                for (Socket socket : sockets) {
+                    SimpleLogServer.safeClose(socket);
+                }
+            }
+            // The port is only released once the accepting thread has stopped
+            acceptor.join();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.PerformanceTesting;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Measures the time taken and the bytes allocated by a {@link SyslogHandler} to encode and send messages, not
+ * counting the records themselves.
+ */
+public class SyslogHandlerPerformanceTests {
+    private static final int RECORDS = 200000;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testSendPath() throws Exception {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        final com.sun.management.ThreadMXBean threadBean = bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+        final long threadId = Thread.currentThread().getId();
+        final ExtLogRecord[] records = new ExtLogRecord[1000];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = new ExtLogRecord(Level.INFO, "Processed request " + i + " without any problems", SyslogHandlerPerformanceTests.class.getName());
+            records[i].setLoggerName("org.jboss.logmanager.performance");
+        }
+        for (SyslogHandler.SyslogType type : SyslogHandler.SyslogType.values()) {
+            final SyslogHandler handler = new SyslogHandler("localhost", 10999);
+            handler.setSyslogType(type);
+            handler.setHostname("test");
+            handler.setUseCountingFraming(true);
+            handler.setFormatter(new PatternFormatter("%s"));
+            handler.setOutputStream(new OutputStream() {
+                public void write(final int b) {
+                }
+
+                public void write(final byte[] b, final int off, final int len) {
+                }
+            });
+            for (int round = 0; round < 3; round++) {
+                final long allocated = threadBean == null ? 0L : threadBean.getThreadAllocatedBytes(threadId);
+                final long begin = System.nanoTime();
+                for (int i = 0; i < RECORDS; i++) {
+                    handler.publish(records[i % records.length]);
+                }
+                final long time = System.nanoTime() - begin;
+                final long bytes = threadBean == null ? -1L : threadBean.getThreadAllocatedBytes(threadId) - allocated;
+                System.out.printf("%s: %d messages in %d ms, %.1f bytes allocated per message%n", type, RECORDS, time / 1000000L, (double) bytes / RECORDS);
+            }
+            handler.close();
+        }
+    }
+}
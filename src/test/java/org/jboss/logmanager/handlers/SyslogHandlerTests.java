@@ -223,6 +223,74 @@ public class SyslogHandlerTests {
         Assert.assertTrue(String.format("Expected: %s:%n Received: %s", expectedMessage, createString(out)), Arrays.equals(expectedMessage.getBytes(ENCODING), out.toByteArray()));
     }
 
+    @Test
+    public void testTimestamps() throws Exception {
+        handler.setSyslogType(SyslogType.RFC5424);
+        handler.setUseMessageDelimiter(false);
+        handler.setHostname("test");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        handler.setOutputStream(out);
+
+        final Calendar cal = getCalendar();
+        cal.set(Calendar.MONTH, Calendar.OCTOBER);
+        final String suffix = calculateTimeZone(cal) + " test java " + handler.getPid() + " - - " + BOM + MSG;
+        cal.set(Calendar.MILLISECOND, 5);
+        handler.publish(createRecord(cal, MSG));
+        Assert.assertEquals("<14>1 2012-10-09T04:39:22.005" + suffix, createString(out));
+
+        // The same second with different milliseconds
+        out.reset();
+        cal.set(Calendar.MILLISECOND, 123);
+        handler.publish(createRecord(cal, MSG));
+        Assert.assertEquals("<14>1 2012-10-09T04:39:22.123" + suffix, createString(out));
+
+        // The next second
+        out.reset();
+        cal.set(Calendar.SECOND, 23);
+        cal.set(Calendar.MILLISECOND, 40);
+        handler.publish(createRecord(cal, MSG));
+        Assert.assertEquals("<14>1 2012-10-09T04:39:23.040" + suffix, createString(out));
+
+        out.reset();
+        handler.setSyslogType(SyslogType.RFC3164);
+        handler.publish(createRecord(cal, MSG));
+        Assert.assertEquals("<14>Oct  9 04:39:23 test java[" + handler.getPid() + "]: " + MSG, createString(out));
+    }
+
+    @Test
+    public void testNormalization() throws Exception {
+        handler.setSyslogType(SyslogType.RFC3164);
+        handler.setHostname("test");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        handler.setOutputStream(out);
+
+        // The ligature is replaced by its compatibility decomposition
+        handler.publish(createRecord(getCalendar(), "\ufb01le \u00e9t\u00e9"));
+        Assert.assertEquals("<14>Jan  9 04:39:22 test java[" + handler.getPid() + "]: file \u00e9t\u00e9", createString(out));
+    }
+
+    @Test
+    public void testOverriddenHeader() throws Exception {
+        final SyslogHandler handler = new SyslogHandler(HOSTNAME, PORT) {
+            @Override
+            protected byte[] createRFC5424Header(final ExtLogRecord record) {
+                return new byte[] {'<', '1', '>', ' '};
+            }
+        };
+        try {
+            handler.setFormatter(new PatternFormatter("%s"));
+            handler.setUseMessageDelimiter(true);
+            handler.setMessageDelimiter("\n");
+            handler.setUseCountingFraming(true);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            handler.setOutputStream(out);
+            handler.publish(createRecord(getCalendar(), MSG));
+            Assert.assertEquals((5 + MSG.length()) + " <1> " + MSG + "\n", createString(out));
+        } finally {
+            handler.close();
+        }
+    }
+
     private static ExtLogRecord createRecord(final Calendar cal, final String message) {
         final String loggerName = SyslogHandlerTests.class.getName();
         final ExtLogRecord record = new ExtLogRecord(Level.INFO, message, loggerName);
@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.handlers;
+
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.PerformanceTesting;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Measures the bytes allocated per record when a {@link WriterHandler} formats and writes records, comparing the
+ * reusable buffer path against formatting to an intermediate string, and the throughput of many threads publishing at
+ * once with and without combined writes.
+ */
+public class WriterHandlerPerformanceTests {
+    private static final int RECORDS = 20000;
+    private static final int ROUNDS = 5;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        PerformanceTesting.assumeEnabled();
+    }
+
+    @Test
+    public void testAllocation() throws Exception {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        final PatternFormatter formatter = new PatternFormatter("%-5p [%c] (%t) %s%n");
+        final Formatter stringFormatter = new Formatter() {
+            public String format(final LogRecord record) {
+                return formatter.format(record);
+            }
+        };
+        final ExtLogRecord[] records = new ExtLogRecord[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            records[i] = new ExtLogRecord(Level.INFO, "Test message " + i, WriterHandlerPerformanceTests.class.getName());
+            records[i].setLoggerName("org.jboss.logmanager.handlers");
+            // resolve the message up front so that only formatting and writing are measured
+            records[i].getFormattedMessage();
+        }
+
+        long stringBytes = 0L, bufferBytes = 0L;
+        for (int round = 0; round < ROUNDS; round++) {
+            // the early rounds warm up the code paths; keep the best figure
+            final long s = measure(threadBean, stringFormatter, records);
+            final long b = measure(threadBean, formatter, records);
+            stringBytes = round == 0 ? s : Math.min(stringBytes, s);
+            bufferBytes = round == 0 ? b : Math.min(bufferBytes, b);
+        }
+        System.out.printf("WriterHandler allocation per record: string %d bytes, reusable buffer %d bytes%n", stringBytes / RECORDS, bufferBytes / RECORDS);
+        Assert.assertTrue("Reusable buffer path should allocate less than the string path", bufferBytes < stringBytes);
+    }
+
+    @Test
+    public void testCombiningThroughput() throws Exception {
+        final PatternFormatter formatter = new PatternFormatter("%-5p [%c] (%t) %s%n");
+        for (int threads : new int[] {1, 16, 200}) {
+            final long locked = measureThroughput(formatter, threads, false);
+            final long combined = measureThroughput(formatter, threads, true);
+            System.out.printf("WriterHandler with %d threads: locked %d records/s, combining %d records/s%n", threads, locked, combined);
+        }
+    }
+
+    private static long measureThroughput(final Formatter formatter, final int threads, final boolean combining) throws Exception {
+        final WriterHandler handler = new WriterHandler();
+        handler.setFormatter(formatter);
+        // a flush, and so a write to the file, per record, as with the default autoFlush setting
+        handler.setAutoFlush(true);
+        handler.setCombiningWrites(combining);
+        final java.io.File file = java.io.File.createTempFile("combining", ".log");
+        file.deleteOnExit();
+        handler.setWriter(new java.io.OutputStreamWriter(new java.io.FileOutputStream(file), "UTF-8"));
+        final int perThread = RECORDS / threads;
+        final java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        final Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        handler.publish(new ExtLogRecord(Level.INFO, "Test message", WriterHandlerPerformanceTests.class.getName()));
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        final long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        final long elapsed = System.nanoTime() - begin;
+        handler.close();
+        file.delete();
+        return perThread * threads * 1000000000L / elapsed;
+    }
+
+    private static long measure(final com.sun.management.ThreadMXBean threadBean, final Formatter formatter, final ExtLogRecord[] records) {
+        final WriterHandler handler = new WriterHandler();
+        handler.setFormatter(formatter);
+        handler.setAutoFlush(false);
+        handler.setWriter(new NullWriter());
+        try {
+            final long threadId = Thread.currentThread().getId();
+            final long start = threadBean.getThreadAllocatedBytes(threadId);
+            for (ExtLogRecord record : records) {
+                handler.publish(record);
+            }
+            return threadBean.getThreadAllocatedBytes(threadId) - start;
+        } finally {
+            handler.close();
+        }
+    }
+
+    static final class NullWriter extends Writer {
+        public void write(final char[] cbuf, final int off, final int len) {
+        }
+
+        public void write(final String str, final int off, final int len) {
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.logmanager.handlers;
+
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WriterHandlerTests extends AbstractHandlerTest {
+
+    private static final Formatter NO_FORMATTER = new Formatter() {
+        public String format(final LogRecord record) {
+            return record.getMessage();
+        }
+    };
+
+    @Test
+    public void testPublishBatch() throws Exception {
+        final int[] flushes = new int[1];
+        final StringWriter counting = new StringWriter() {
+            public void flush() {
+                flushes[0]++;
+                super.flush();
+            }
+        };
+        final WriterHandler handler = new WriterHandler();
+        handler.setFormatter(NO_FORMATTER);
+        handler.setWriter(counting);
+        handler.setLevel(Level.INFO);
+        handler.setAutoFlush(true);
+        flushes[0] = 0;
+        final ExtLogRecord[] records = new ExtLogRecord[] {
+                createLogRecord(Level.INFO, "one "),
+                createLogRecord(Level.DEBUG, "filtered "),
+                createLogRecord(Level.WARN, "two"),
+                createLogRecord(Level.ERROR, "not in batch"),
+        };
+        handler.publishBatch(records, 3);
+        Assert.assertEquals("one two", counting.toString());
+        Assert.assertEquals(1, flushes[0]);
+        handler.close();
+    }
+
+    @Test
+    public void testPublishBatchFormattingError() throws Exception {
+        final StringWriter out = new StringWriter();
+        final WriterHandler handler = new WriterHandler();
+        handler.setFormatter(new PatternFormatter("%s|%n") {
+            public String format(final ExtLogRecord record) {
+                if (record.getMessage().equals("fail")) {
+                    throw new IllegalStateException();
+                }
+                return super.format(record);
+            }
+        });
+        handler.setErrorManager(new ErrorManager() {
+            public void error(final String msg, final Exception ex, final int code) {
+                // expected
+            }
+        });
+        handler.setWriter(out);
+        handler.publishBatch(new ExtLogRecord[] {
+                createLogRecord("one"),
+                createLogRecord("fail"),
+                createLogRecord(""),
+                createLogRecord("two"),
+        }, 4);
+        handler.flush();
+        Assert.assertEquals(String.format("one|%n|%ntwo|%n"), out.toString());
+        handler.close();
+    }
+
+    @Test
+    public void testPublishBatchOverriddenDoPublish() throws Exception {
+        final StringWriter out = new StringWriter();
+        final WriterHandler handler = new WriterHandler() {
+            protected void doPublish(final ExtLogRecord record) {
+                record.setMessage("[" + record.getMessage() + "]");
+                super.doPublish(record);
+            }
+        };
+        handler.setFormatter(NO_FORMATTER);
+        handler.setWriter(out);
+        handler.publishBatch(new ExtLogRecord[] {
+                createLogRecord("one"),
+                createLogRecord("two"),
+        }, 2);
+        handler.flush();
+        Assert.assertEquals("[one][two]", out.toString());
+        handler.close();
+    }
+
+    @Test
+    public void testCombiningWritesInterrupted() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StringWriter out = new StringWriter() {
+            public void write(final char[] chars, final int off, final int len) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(chars, off, len);
+            }
+        };
+        final WriterHandler handler = new WriterHandler();
+        handler.setFormatter(new PatternFormatter("%s|"));
+        handler.setWriter(out);
+        handler.setCombiningWrites(true);
+        // the first thread writes on behalf of the others and blocks in the writer
+        final Thread combiner = new Thread(new Runnable() {
+            public void run() {
+                handler.publish(createLogRecord("one"));
+            }
+        });
+        combiner.start();
+        Assert.assertTrue(writing.await(10, TimeUnit.SECONDS));
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final Thread waiter = new Thread(new Runnable() {
+            public void run() {
+                Thread.currentThread().interrupt();
+                handler.publish(createLogRecord("two"));
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        waiter.start();
+        // an interrupted thread must stay parked until its write is done, rather than spin
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        int parked = 0;
+        while (parked < 100 && System.nanoTime() < deadline) {
+            parked = waiter.getState() == Thread.State.WAITING ? parked + 1 : 0;
+            Thread.sleep(1);
+        }
+        Assert.assertEquals("The waiting thread did not stay parked", 100, parked);
+        release.countDown();
+        combiner.join();
+        waiter.join();
+        Assert.assertTrue("The interrupt status should be restored", interrupted.get());
+        handler.flush();
+        Assert.assertEquals("one|two|", out.toString());
+        handler.close();
+    }
+}